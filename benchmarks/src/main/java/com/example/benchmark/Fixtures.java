@@ -0,0 +1,269 @@
+package com.example.benchmark;
+
+import com.example.model.SignatureDistribution;
+import com.example.util.FontCache;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
+import org.apache.pdfbox.pdmodel.PDEmbeddedFilesNameTreeNode;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDComplexFileSpecification;
+import org.apache.pdfbox.pdmodel.common.filespecification.PDEmbeddedFile;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.X500NameBuilder;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSSignedDataGenerator;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Входные данные для бенчмарков, создаваемые на месте.
+ *
+ * PDF строятся PDFBox (страницы с кириллическим текстом, при необходимости
+ * со встроенным файлом для увеличения размера), подписи - BouncyCastle:
+ * отсоединенные CMS над содержимым PDF с сертификатами, выпущенными
+ * самоподписанным тестовым УЦ, и DN в формате российских квалифицированных
+ * сертификатов. Созданные файлы переиспользуются между запусками; каталог
+ * задается свойством nbdsig.bench.dir (по умолчанию target/fixtures).
+ */
+public final class Fixtures {
+    // ИНН, ОГРН и СНИЛС в DN квалифицированных сертификатов
+    private static final ASN1ObjectIdentifier INN = new ASN1ObjectIdentifier("1.2.643.3.131.1.1");
+    private static final ASN1ObjectIdentifier OGRN = new ASN1ObjectIdentifier("1.2.643.100.1");
+    private static final ASN1ObjectIdentifier SNILS = new ASN1ObjectIdentifier("1.2.643.100.3");
+
+    private static final String[] SURNAMES = {
+            "Иванов", "Петрова", "Сидоров", "Кузнецова", "Смирнов", "Волкова", "Соколов", "Лебедева",
+            "Козлов", "Новикова", "Морозов", "Павлова", "Федоров", "Михайлова", "Алексеев", "Егорова"
+    };
+    private static final String[] GIVEN_NAMES = {
+            "Иван Петрович", "Анна Сергеевна", "Алексей Викторович", "Мария Александровна",
+            "Дмитрий Олегович", "Елена Николаевна", "Сергей Андреевич", "Ольга Владимировна"
+    };
+    private static final String[] TITLES = {
+            "Генеральный директор", "Главный бухгалтер", "Начальник отдела кредитования",
+            "Заместитель председателя правления", "Управляющий дополнительным офисом", "Индивидуальный предприниматель"
+    };
+    private static final String[] ORGANIZATIONS = {
+            "ООО \"Ромашка\"", "ПАО \"Сбережения и кредит\"", "АО \"Северная строительная компания\"",
+            "ООО \"Торговый дом \"Восток\"\"", "ЗАО \"Промышленные технологии\""
+    };
+    private static final String PAGE_TEXT = "Настоящий договор заключен между сторонами в соответствии " +
+            "с требованиями законодательства Российской Федерации, условия договора изложены ниже.";
+
+    private static final Object KEY_LOCK = new Object();
+    private static KeyPair caKeys;
+    private static KeyPair signerKeys;
+    private static X509Certificate caCertificate;
+
+    static {
+        Security.addProvider(new BouncyCastleProvider());
+    }
+
+    private Fixtures() {
+    }
+
+    public static File directory() throws IOException {
+        File dir = new File(System.getProperty("nbdsig.bench.dir", "target/fixtures"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Не удалось создать каталог данных: " + dir);
+        }
+        return dir;
+    }
+
+    /**
+     * PDF из pageCount страниц A4 с 40 строками текста на каждой.
+     * payloadMb - объем встроенного файла из случайных данных, чтобы размер
+     * документа можно было задавать отдельно от числа страниц.
+     */
+    public static File pdf(int pageCount, int payloadMb) throws IOException {
+        File file = new File(directory(), String.format("doc-%dp-%dmb.pdf", pageCount, payloadMb));
+        if (file.isFile()) {
+            return file;
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (PDDocument doc = new PDDocument()) {
+            PDType0Font font = FontCache.load(doc, FontCache.TIMES_REGULAR);
+            for (int i = 0; i < pageCount; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                doc.addPage(page);
+                try (PDPageContentStream cs = new PDPageContentStream(doc, page)) {
+                    cs.beginText();
+                    cs.setFont(font, 10);
+                    cs.newLineAtOffset(50, 790);
+                    cs.showText("Страница " + (i + 1) + " из " + pageCount);
+                    for (int line = 0; line < 40; line++) {
+                        cs.newLineAtOffset(0, -18);
+                        cs.showText((line + 1) + ". " + PAGE_TEXT.substring(0, 60 + line % 30));
+                    }
+                    cs.endText();
+                }
+            }
+            if (payloadMb > 0) {
+                attachPayload(doc, payloadMb);
+            }
+            doc.save(temp);
+        }
+        Files.move(temp.toPath(), file.toPath());
+        return file;
+    }
+
+    /**
+     * Комплект отсоединенных подписей под pdfFile: примерно треть в колонке
+     * банка, каждая пятая - дополнительная, остальные - клиента.
+     */
+    public static SignatureDistribution signatures(File pdfFile, int signerCount) throws Exception {
+        String name = pdfFile.getName().replaceFirst("\\.pdf$", "");
+        File dir = new File(directory(), String.format("sig-%s-%d", name, signerCount));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Не удалось создать каталог подписей: " + dir);
+        }
+
+        byte[] content = null;
+        SignatureDistribution distribution = new SignatureDistribution();
+        for (int i = 0; i < signerCount; i++) {
+            File sigFile = new File(dir, String.format("signer-%02d.sig", i));
+            if (!sigFile.isFile()) {
+                if (content == null) {
+                    content = Files.readAllBytes(pdfFile.toPath());
+                }
+                Files.write(sigFile.toPath(), sign(content, i));
+            }
+
+            if (i % 3 == 0) {
+                distribution.bankSigFiles.add(sigFile);
+            } else if (i % 5 == 4) {
+                distribution.additionalSigFiles.add(sigFile);
+            } else {
+                distribution.rightSigFiles.add(sigFile);
+            }
+        }
+        return distribution;
+    }
+
+    // Отсоединенная подпись CMS (SHA256withRSA) с сертификатом подписанта
+    public static byte[] sign(byte[] content, int signerIndex) throws Exception {
+        X509Certificate certificate = signerCertificate(signerIndex);
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC")
+                .build(signerKeys.getPrivate());
+
+        CMSSignedDataGenerator generator = new CMSSignedDataGenerator();
+        generator.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(
+                new JcaDigestCalculatorProviderBuilder().setProvider("BC").build()).build(signer, certificate));
+        generator.addCertificates(new JcaCertStore(Arrays.asList(certificate, caCertificate)));
+        CMSSignedData signedData = generator.generate(new CMSProcessableByteArray(content), false);
+        return signedData.getEncoded();
+    }
+
+    // Сертификаты разные (DN, серийный номер), ключ подписанта общий - генерация RSA дорогая
+    private static X509Certificate signerCertificate(int index) throws Exception {
+        initKeys();
+        String surname = SURNAMES[index % SURNAMES.length];
+        String givenName = GIVEN_NAMES[index % GIVEN_NAMES.length];
+        String organization = ORGANIZATIONS[index % ORGANIZATIONS.length];
+
+        X500NameBuilder subject = new X500NameBuilder(BCStyle.INSTANCE);
+        subject.addRDN(BCStyle.C, "RU");
+        subject.addRDN(BCStyle.ST, "77 г. Москва");
+        subject.addRDN(BCStyle.L, "Москва");
+        subject.addRDN(BCStyle.STREET, "ул. Тверская, д. " + (index + 1));
+        subject.addRDN(BCStyle.O, organization);
+        subject.addRDN(BCStyle.T, TITLES[index % TITLES.length]);
+        subject.addRDN(BCStyle.CN, organization);
+        subject.addRDN(BCStyle.SURNAME, surname);
+        subject.addRDN(BCStyle.GIVENNAME, givenName);
+        subject.addRDN(BCStyle.E, "signer" + index + "@example.ru");
+        subject.addRDN(INN, String.format("77%010d", 1000 + index));
+        subject.addRDN(OGRN, String.format("1027700%06d", 132195 + index));
+        subject.addRDN(SNILS, String.format("%011d", 12345678900L + index));
+
+        long now = System.currentTimeMillis();
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                caCertificate, BigInteger.valueOf(0x1000000L + index),
+                new Date(now - 30L * 24 * 3600 * 1000), new Date(now + 365L * 24 * 3600 * 1000),
+                subject.build(), signerKeys.getPublic());
+        return toCertificate(builder, caKeys);
+    }
+
+    private static void initKeys() throws Exception {
+        synchronized (KEY_LOCK) {
+            if (caKeys != null) {
+                return;
+            }
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            caKeys = generator.generateKeyPair();
+            signerKeys = generator.generateKeyPair();
+
+            X500Name caName = new X500NameBuilder(BCStyle.INSTANCE)
+                    .addRDN(BCStyle.C, "RU")
+                    .addRDN(BCStyle.L, "Москва")
+                    .addRDN(BCStyle.O, "АО \"Тестовый удостоверяющий центр\"")
+                    .addRDN(BCStyle.CN, "Тестовый УЦ")
+                    .build();
+            long now = System.currentTimeMillis();
+            JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                    caName, BigInteger.ONE,
+                    new Date(now - 365L * 24 * 3600 * 1000), new Date(now + 5 * 365L * 24 * 3600 * 1000),
+                    caName, caKeys.getPublic());
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+            caCertificate = toCertificate(builder, caKeys);
+        }
+    }
+
+    private static X509Certificate toCertificate(JcaX509v3CertificateBuilder builder, KeyPair issuerKeys)
+            throws Exception {
+        ContentSigner signer = new JcaContentSignerBuilder("SHA256withRSA").setProvider("BC")
+                .build(issuerKeys.getPrivate());
+        X509CertificateHolder holder = builder.build(signer);
+        return new JcaX509CertificateConverter().setProvider("BC").getCertificate(holder);
+    }
+
+    // Случайные данные не сжимаются, поэтому размер файла растет на payloadMb
+    private static void attachPayload(PDDocument doc, int payloadMb) throws IOException {
+        byte[] payload = new byte[payloadMb * 1024 * 1024];
+        new Random(payloadMb).nextBytes(payload);
+
+        PDEmbeddedFile embedded = new PDEmbeddedFile(doc, new ByteArrayInputStream(payload));
+        embedded.setSubtype("application/octet-stream");
+        embedded.setSize(payload.length);
+        PDComplexFileSpecification spec = new PDComplexFileSpecification();
+        spec.setFile("payload.bin");
+        spec.setEmbeddedFile(embedded);
+
+        PDEmbeddedFilesNameTreeNode tree = new PDEmbeddedFilesNameTreeNode();
+        tree.setNames(Collections.singletonMap("payload.bin", spec));
+        PDDocumentNameDictionary names = new PDDocumentNameDictionary(doc.getDocumentCatalog());
+        names.setEmbeddedFiles(tree);
+        doc.getDocumentCatalog().setNames(names);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Поиск текста на странице (PDFContentAnalyzer.analyzePage) для первой и последней страницы
+// против разбора только геометрии (PageContentScanner), запросы к индексу (TextBlockIndex)
+// и к карте по изображению (RasterOccupancy)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentAnalyzerBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    @Param({"0", "32"})
+    public int payloadMb;
+
+    private DocumentLoader.LoadedDocument loaded;
+    private TextBlockIndex index;
+    private RasterOccupancy raster;
+
+    @Setup
+    public void setUp() throws IOException {
+        loaded = DocumentLoader.load(Fixtures.pdf(pages, payloadMb));
+        index = TextBlockIndex.build(loaded.getDocument(), 1);
+        raster = RasterOccupancy.render(loaded.getDocument(), 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        loaded.close();
+    }
+
+    @Benchmark
+    public List<PDFSigner.PDFContentAnalyzer.TextBlock> analyzeFirstPage() throws IOException {
+        return PDFSigner.PDFContentAnalyzer.analyzePage(loaded.getDocument(), 1);
+    }
+
+    @Benchmark
+    public List<PDFSigner.PDFContentAnalyzer.TextBlock> analyzeLastPage() throws IOException {
+        return PDFSigner.PDFContentAnalyzer.analyzePage(loaded.getDocument(), pages);
+    }
+
+    @Benchmark
+    public TextGeometry analyzeGeometryFirstPage() throws IOException {
+        return PDFSigner.PDFContentAnalyzer.analyzeGeometry(loaded.getDocument(), 1);
+    }
+
+    // Весь документ за один проход, только геометрия
+    @Benchmark
+    public List<TextGeometry> analyzeDocumentGeometry() throws IOException {
+        return PDFSigner.PDFContentAnalyzer.analyzeDocument(loaded.getDocument(), false);
+    }
+
+    @Benchmark
+    public TextGeometry scanFirstPage() throws IOException {
+        return PageContentScanner.scanPage(loaded.getDocument().getPage(0));
+    }
+
+    // Повторное обращение: только хэш потоков содержимого
+    @Benchmark
+    public TextGeometry scanFirstPageCached() throws IOException {
+        return PageContentScanner.scan(loaded.getDocument().getPage(0));
+    }
+
+    @Benchmark
+    public TextBlockIndex buildIndex() throws IOException {
+        return TextBlockIndex.build(loaded.getDocument(), 1);
+    }
+
+    // Размещение протокола: строки сверху вниз с обходом текста
+    @Benchmark
+    public float placeLines() {
+        float y = index.getPageHeight() - 50;
+        float sum = 0;
+        for (int line = 0; line < 40; line++) {
+            sum += index.findFreeAbove(50, y, 300, 12, 20);
+            y -= 18;
+        }
+        return sum;
+    }
+
+    // Карта занятости кэшируется в индексе, поэтому индекс строится заново
+    @Benchmark
+    public PDRectangle largestEmpty() {
+        return new TextBlockIndex(index.getGeometry(), index.getPageWidth(), index.getPageHeight())
+                .findLargestEmpty(150, 80);
+    }
+
+    // Карта занятости по изображению страницы (24 DPI)
+    @Benchmark
+    public RasterOccupancy renderRaster() throws IOException {
+        return RasterOccupancy.render(loaded.getDocument(), 0);
+    }
+
+    @Benchmark
+    public PDRectangle rasterSlot() {
+        PDRectangle area = new PDRectangle(50, 50, raster.getPageWidth() - 100, raster.getPageHeight() - 100);
+        return raster.findSlot(area, 400, 120, 10);
+    }
+}
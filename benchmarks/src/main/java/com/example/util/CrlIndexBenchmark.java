@@ -0,0 +1,92 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск серийного номера в индексе CRL: номер, которого в списке нет
+ * (отсекается фильтром Блума), и отозванный номер (двоичный поиск).
+ * CRL с revoked записями 20-байтовых номеров строится при подготовке.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CrlIndexBenchmark {
+
+    @Param({"10000", "300000"})
+    public int revoked;
+
+    private CrlIndex index;
+    private byte[][] present;
+    private byte[][] absent;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPair keys = generator.generateKeyPair();
+
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=Тестовый УЦ,O=Тест,C=RU"), new Date());
+        Random random = new Random(revoked);
+        present = new byte[1024][];
+        for (int i = 0; i < revoked; i++) {
+            BigInteger serial = new BigInteger(159, random);
+            builder.addCRLEntry(serial, new Date(), CRLReason.superseded);
+            if (i < present.length) {
+                present[i] = CrlIndex.serialKey(serial);
+            }
+        }
+        absent = new byte[1024][];
+        for (int i = 0; i < absent.length; i++) {
+            absent[i] = CrlIndex.serialKey(new BigInteger(159, random));
+        }
+
+        File dir = new File(Fixtures.directory(), "crl-" + revoked);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("Не удалось создать каталог " + dir);
+        }
+        File crl = new File(dir, "test.crl");
+        Files.write(crl.toPath(),
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(keys.getPrivate())).getEncoded());
+        File indexFile = new File(dir, "test.idx");
+        Files.deleteIfExists(indexFile.toPath());
+        index = CrlIndex.load(crl, indexFile);
+    }
+
+    @Benchmark
+    public int findAbsent() {
+        return index.find(absent[next++ & (absent.length - 1)]);
+    }
+
+    @Benchmark
+    public int findRevoked() {
+        return index.find(present[next++ & (present.length - 1)]);
+    }
+}
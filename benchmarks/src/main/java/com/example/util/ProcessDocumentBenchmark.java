@@ -0,0 +1,71 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import com.example.model.SignatureInfo;
+import com.example.model.StampSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PDFSigner.processDocument целиком: загрузка, план, штампы на всех страницах
+ * и сохранение ВИЗУАЛИЗАЦИЯ_*.pdf рядом с исходным файлом.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProcessDocumentBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    @Param({"3", "12", "40"})
+    public int signers;
+
+    @Param({"0", "32"})
+    public int payloadMb;
+
+    @Param({"true", "false"})
+    public boolean incrementalSave;
+
+    private File pdfFile;
+    private SignatureInfo signatureInfo;
+    private List<Integer> pageNumbers;
+    private StampSettings settings;
+
+    @Setup
+    public void setUp() throws Exception {
+        pdfFile = Fixtures.pdf(pages, payloadMb);
+        signatureInfo = PDFSigner.processSignatures(Fixtures.signatures(pdfFile, signers));
+        pageNumbers = new ArrayList<>();
+        for (int i = 1; i <= pages; i++) {
+            pageNumbers.add(i);
+        }
+        settings = StampSettings.defaults();
+        settings.setIncrementalSave(incrementalSave);
+    }
+
+    @Benchmark
+    public Object processDocument() throws Exception {
+        String docType = "Кредитное соглашение";
+        return PDFSigner.processDocument(pdfFile, pageNumbers, signatureInfo,
+                PDFSigner.getLeftColumnTitle(docType), PDFSigner.getRightColumnTitle(docType),
+                PDFSigner.getAdditionalTitle(docType), null, settings);
+    }
+}
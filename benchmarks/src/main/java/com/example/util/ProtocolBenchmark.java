@@ -0,0 +1,122 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import com.example.model.ProtocolData;
+import com.example.model.ProtocolSettings;
+import com.example.model.SignatureDistribution;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Протокол проверки: PDFSigner.createProtocol целиком (загрузка, вывод
+ * на последнюю страницу, сохранение ПОДПИСАННЫЙ_*.pdf), перенос строк
+ * списка подписантов (addProtocolTextWithWrap) и сами алгоритмы переноса
+ * (TextLayout) отдельно.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    @Param({"3", "12", "40"})
+    public int signers;
+
+    @Param({"0", "32"})
+    public int payloadMb;
+
+    private File pdfFile;
+    private ProtocolData protocolData;
+    private PDFAreaSelector.SelectedArea area;
+    private ProtocolSettings settings;
+
+    private PDDocument wrapDoc;
+    private PDType0Font wrapFont;
+    private FontCache.CachedFont wrapMetrics;
+
+    @Setup
+    public void setUp() throws Exception {
+        pdfFile = Fixtures.pdf(pages, payloadMb);
+        SignatureDistribution distribution = Fixtures.signatures(pdfFile, signers);
+        List<File> sigFiles = new ArrayList<>();
+        sigFiles.addAll(distribution.bankSigFiles);
+        sigFiles.addAll(distribution.rightSigFiles);
+        sigFiles.addAll(distribution.additionalSigFiles);
+
+        List<String> protocolSigners = new ArrayList<>();
+        for (File sigFile : sigFiles) {
+            protocolSigners.add(PDFSigner.formatSignerForProtocol(PDFSigner.extractSignerInfo(sigFile)));
+        }
+        protocolData = new ProtocolData("Кредитное соглашение", "КС-2024/0117", "01.02.2024",
+                "02.02.2024", "Иванова Мария Сергеевна", protocolSigners);
+        area = new PDFAreaSelector.SelectedArea(50, 700, pages - 1);
+        settings = new ProtocolSettings(false);
+
+        wrapDoc = new PDDocument();
+        wrapFont = FontCache.load(wrapDoc, FontCache.TIMES_REGULAR);
+        wrapMetrics = FontCache.get(FontCache.TIMES_REGULAR);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        wrapDoc.close();
+    }
+
+    @Benchmark
+    public void createProtocol() throws IOException {
+        PDFSigner.createProtocol(pdfFile, protocolData, area, null, settings);
+    }
+
+    // Страница не добавляется в документ, поэтому вызовы не накапливают содержимое
+    @Benchmark
+    public void addProtocolTextWithWrap(Blackhole blackhole) throws IOException {
+        PDPage page = new PDPage();
+        try (PDPageContentStream cs = new PDPageContentStream(wrapDoc, page)) {
+            float y = 700;
+            for (String signer : protocolData.getSigners()) {
+                y -= PDFSigner.addProtocolTextWithWrap(cs, wrapFont, wrapMetrics, 8.9f, 50, y, "• " + signer, 400);
+            }
+            blackhole.consume(y);
+        }
+    }
+
+    @Benchmark
+    public void wrapGreedy(Blackhole blackhole) {
+        for (String signer : protocolData.getSigners()) {
+            blackhole.consume(TextLayout.wrap(wrapMetrics, 8.9f, "• " + signer, 150));
+        }
+    }
+
+    @Benchmark
+    public void wrapBalanced(Blackhole blackhole) {
+        for (String signer : protocolData.getSigners()) {
+            blackhole.consume(TextLayout.wrapBalanced(wrapMetrics, 8.9f, "• " + signer, 150));
+        }
+    }
+}
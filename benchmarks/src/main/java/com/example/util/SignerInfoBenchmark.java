@@ -0,0 +1,70 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import com.example.model.SignatureDistribution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор файлов подписей: PDFSigner.extractSignerInfo с прогретым кэшем
+ * и разбор CMS без кэша (как при первой загрузке комплекта).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignerInfoBenchmark {
+
+    @Param({"3", "12", "40"})
+    public int signers;
+
+    private List<File> sigFiles;
+    private List<byte[]> contents;
+
+    @Setup
+    public void setUp() throws Exception {
+        SignatureDistribution distribution = Fixtures.signatures(Fixtures.pdf(1, 0), signers);
+        sigFiles = new ArrayList<>();
+        sigFiles.addAll(distribution.bankSigFiles);
+        sigFiles.addAll(distribution.rightSigFiles);
+        sigFiles.addAll(distribution.additionalSigFiles);
+
+        contents = new ArrayList<>();
+        for (File sigFile : sigFiles) {
+            contents.add(Files.readAllBytes(sigFile.toPath()));
+        }
+        SignerInfoCache.clear();
+    }
+
+    @Benchmark
+    public void extractSignerInfo(Blackhole blackhole) throws Exception {
+        for (File sigFile : sigFiles) {
+            blackhole.consume(PDFSigner.extractSignerInfo(sigFile));
+        }
+    }
+
+    @Benchmark
+    public void parseSignatureUncached(Blackhole blackhole) throws Exception {
+        for (byte[] content : contents) {
+            blackhole.consume(PDFSigner.parseSignature(content, "", PDFSigner::describeCertificate));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import com.example.model.SignatureInfo;
+import com.example.model.SignerRecord;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Создание штампов (PDFSigner.Stamp) для всех подписантов комплекта
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StampBenchmark {
+
+    @Param({"3", "12", "40"})
+    public int signers;
+
+    private PDDocument doc;
+    private PDType0Font font;
+    private PDType0Font boldFont;
+    private List<SignerRecord> records;
+
+    @Setup
+    public void setUp() throws Exception {
+        SignatureInfo info = PDFSigner.processSignatures(Fixtures.signatures(Fixtures.pdf(1, 0), signers));
+        records = new ArrayList<>();
+        records.addAll(info.bankSignerInfos);
+        records.addAll(info.rightSignerInfos);
+        records.addAll(info.additionalSignerInfos);
+
+        doc = new PDDocument();
+        font = FontCache.load(doc, FontCache.TIMES_REGULAR);
+        boldFont = FontCache.load(doc, FontCache.TIMES_BOLD);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        doc.close();
+    }
+
+    @Benchmark
+    public void createStamps(Blackhole blackhole) {
+        for (int i = 0; i < records.size(); i++) {
+            blackhole.consume(new PDFSigner.Stamp(records.get(i), i % 3 == 0, font, boldFont, false));
+        }
+    }
+}
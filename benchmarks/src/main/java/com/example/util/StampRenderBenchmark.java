@@ -0,0 +1,98 @@
+package com.example.util;
+
+import com.example.benchmark.Fixtures;
+import com.example.model.LayoutPlan;
+import com.example.model.SignatureInfo;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Размещение штампов на страницах в памяти, без загрузки и сохранения файла:
+ * план (StampLayoutPlanner) и вывод в потоки содержимого (renderPlan,
+ * бывший addStampsToPage). Штампы ставятся на каждую страницу документа.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StampRenderBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int pages;
+
+    @Param({"3", "12", "40"})
+    public int signers;
+
+    @Param({"true", "false"})
+    public boolean formXObjects;
+
+    private File pdfFile;
+    private SignatureInfo signatureInfo;
+    private List<Integer> pageNumbers;
+
+    private DocumentLoader.LoadedDocument loaded;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        pdfFile = Fixtures.pdf(pages, 0);
+        signatureInfo = PDFSigner.processSignatures(Fixtures.signatures(pdfFile, signers));
+        pageNumbers = new ArrayList<>();
+        for (int i = 1; i <= pages; i++) {
+            pageNumbers.add(i);
+        }
+    }
+
+    // Документ изменяется при каждом вызове, поэтому загружается заново
+    @Setup(Level.Invocation)
+    public void loadDocument() throws IOException {
+        loaded = DocumentLoader.load(pdfFile);
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeDocument() throws IOException {
+        loaded.close();
+    }
+
+    @Benchmark
+    public List<PDPage> planAndRender() throws IOException {
+        PDDocument doc = loaded.getDocument();
+        String docType = "Кредитное соглашение";
+        StampLayoutPlanner planner = new StampLayoutPlanner(signatureInfo,
+                PDFSigner.getLeftColumnTitle(docType), PDFSigner.getRightColumnTitle(docType),
+                PDFSigner.getAdditionalTitle(docType), null);
+
+        List<PDRectangle> pageSizes = new ArrayList<>(doc.getNumberOfPages());
+        for (PDPage page : doc.getPages()) {
+            pageSizes.add(page.getMediaBox());
+        }
+        LayoutPlan plan = planner.plan(pageSizes, pageNumbers);
+
+        PDType0Font font = FontCache.load(doc, FontCache.TIMES_REGULAR);
+        PDType0Font boldFont = FontCache.load(doc, FontCache.TIMES_BOLD);
+        PDFSigner.StampFormCache forms = formXObjects ? new PDFSigner.StampFormCache(doc, null) : null;
+        return PDFSigner.renderPlan(doc, plan, font, boldFont, null, forms, ProgressMonitor.NONE);
+    }
+}
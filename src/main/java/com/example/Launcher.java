@@ -1,7 +1,20 @@
 package com.example;
 
+import com.example.batch.BatchLauncher;
+import com.example.batch.ServiceLauncher;
+
 public class Launcher {
     public static void main(String[] args) {
+        // Пакетный режим и служба работают без JavaFX
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchLauncher.main(args);
+            return;
+        }
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            ServiceLauncher.main(args);
+            return;
+        }
+
         // Убедимся, что JavaFX правильно инициализируется
         try {
             MainApp.main(args);
@@ -1,6 +1,7 @@
 package com.example;
 
 import com.example.controller.MainController;
+import com.example.util.BackgroundJobs;
 import javafx.animation.*;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -34,6 +35,8 @@ public class MainApp extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
         this.primaryStage = primaryStage;
+        // Работа с PDF и подписями из этого потока запрещена (см. BackgroundJobs)
+        BackgroundJobs.registerFxThread();
 
         // Настраиваем полностью кастомное окно
         primaryStage.initStyle(StageStyle.TRANSPARENT);
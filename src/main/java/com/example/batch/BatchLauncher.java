@@ -0,0 +1,274 @@
+package com.example.batch;
+
+import com.example.model.SignaturePackage;
+import com.example.util.DocumentLoader;
+import com.example.util.FontCache;
+import com.example.util.CrlStore;
+import com.example.util.OcspClient;
+import com.example.util.MemoryPolicy;
+import com.example.util.TrustStore;
+import com.example.util.SignerInfoCache;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Консольный (headless) режим пакетной обработки без JavaFX.
+ *
+ * Пример:
+ * <pre>
+ *   java -cp nbdsig.jar com.example.batch.BatchLauncher --input /data/packages --threads 8
+ *   java -jar nbdsig.jar --batch --manifest packages.txt --protocol --employee "Иванов И.И."
+ * </pre>
+ */
+public class BatchLauncher {
+
+    public static void main(String[] args) {
+        BatchOptions options;
+        try {
+            options = parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        System.exit(run(options));
+    }
+
+    public static int run(BatchOptions options) {
+        try {
+            List<SignaturePackage> packages = PackageScanner.scan(options.getInput());
+            if (packages.isEmpty()) {
+                System.err.println("Пакеты документов не найдены: " + options.getInput());
+                return 1;
+            }
+
+            configure(options);
+            System.out.println("Найдено пакетов: " + packages.size() + ", потоков: " + options.getThreads() +
+                    ", память документа: " + DocumentLoader.getPolicy());
+
+            long start = System.nanoTime();
+            List<FileResult> results = new BatchProcessor(options).run(packages, result -> {
+                synchronized (System.out) {
+                    System.out.println(result);
+                }
+            });
+            long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+            long succeeded = results.stream().filter(FileResult::isSuccess).count();
+            long failed = results.size() - succeeded;
+
+            System.out.println();
+            System.out.println("Итого: файлов " + results.size() +
+                    ", успешно " + succeeded +
+                    ", с ошибками " + failed +
+                    ", время " + totalMs + " мс");
+            for (String line : statistics(options.isVerify())) {
+                System.out.println(line);
+            }
+
+            return failed == 0 ? 0 : 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Обработка прервана");
+            return 1;
+        } catch (Exception e) {
+            System.err.println("Ошибка пакетной обработки: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    // Память документа и хранилища проверки подписей - общие для всех пакетов процесса
+    static void configure(BatchOptions options) {
+        DocumentLoader.setPolicy(options.getMemoryPolicy());
+        if (options.getCrlDir() != null) {
+            CrlStore.setDefault(new CrlStore(options.getCrlDir()));
+        }
+        if (options.getTrustDir() != null) {
+            TrustStore.setDefault(new TrustStore(options.getTrustDir()));
+        }
+        if (options.isOcsp() || options.getOcspUrl() != null) {
+            OcspClient.setDefault(new OcspClient(options.getOcspUrl()));
+        }
+    }
+
+    // Статистика кэшей; verify - добавить хранилища проверки подписей
+    static List<String> statistics(boolean verify) {
+        List<String> lines = new ArrayList<>();
+        lines.add(FontCache.getStatistics());
+        lines.add(SignerInfoCache.getStatistics());
+        lines.add(DocumentLoader.getStatistics());
+        if (verify && CrlStore.getDefault() != null) {
+            lines.add(CrlStore.getDefault().getStatistics());
+        }
+        if (verify && TrustStore.getDefault() != null) {
+            lines.add(TrustStore.getDefault().getStatistics());
+        }
+        if (verify && OcspClient.getDefault() != null) {
+            lines.add(OcspClient.getDefault().getStatistics());
+        }
+        return lines;
+    }
+
+    static BatchOptions parseArguments(String[] args) {
+        BatchOptions options = parseOptions(args);
+        if (options.getInput() == null) {
+            throw new IllegalArgumentException("Не указан --input или --manifest");
+        }
+        if (options.isProtocolEnabled() && options.getEmployeeName().isEmpty()) {
+            throw new IllegalArgumentException("Для протокола требуется --employee");
+        }
+        return options;
+    }
+
+    // Разбор параметров без проверки обязательных (для службы часть их приходит с запросом)
+    static BatchOptions parseOptions(String[] args) {
+        BatchOptions options = new BatchOptions();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--batch":
+                    break;
+                case "--input":
+                case "--manifest":
+                    options.setInput(new File(requireValue(args, ++i, arg)));
+                    break;
+                case "--doc-type":
+                    options.setDocType(requireValue(args, ++i, arg));
+                    break;
+                case "--pages":
+                    options.setPages(requireValue(args, ++i, arg));
+                    break;
+                case "--threads":
+                    options.setThreads(parseInt(requireValue(args, ++i, arg), arg));
+                    break;
+                case "--inline-stamps":
+                    options.setInlineStamps(true);
+                    break;
+                case "--full-save":
+                    options.setFullSave(true);
+                    break;
+                case "--dry-run":
+                    options.setDryRun(true);
+                    break;
+                case "--avoid-content":
+                    options.setAvoidContent(true);
+                    break;
+                case "--auto-place":
+                    options.setAutoPlace(true);
+                    break;
+                case "--verify":
+                    options.setVerify(true);
+                    break;
+                case "--crl-dir":
+                    options.setCrlDir(new File(requireValue(args, ++i, arg)));
+                    break;
+                case "--trust-dir":
+                    options.setTrustDir(new File(requireValue(args, ++i, arg)));
+                    break;
+                case "--ocsp":
+                    options.setOcsp(true);
+                    break;
+                case "--ocsp-url":
+                    try {
+                        options.setOcspUrl(new URI(requireValue(args, ++i, arg)));
+                    } catch (URISyntaxException e) {
+                        throw new IllegalArgumentException("Некорректное значение для " + arg + ": " + args[i]);
+                    }
+                    break;
+                case "--memory-mode":
+                    try {
+                        options.setMemoryMode(MemoryPolicy.parseMode(requireValue(args, ++i, arg)));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Некорректное значение для " + arg + ": " + args[i]);
+                    }
+                    break;
+                case "--memory-budget":
+                    options.setMemoryBudgetMb(parseInt(requireValue(args, ++i, arg), arg));
+                    break;
+                case "--scratch-dir":
+                    options.setScratchDir(new File(requireValue(args, ++i, arg)));
+                    break;
+                case "--protocol":
+                    options.setProtocolEnabled(true);
+                    break;
+                case "--employee":
+                    options.setEmployeeName(requireValue(args, ++i, arg));
+                    break;
+                case "--verification-date":
+                    options.setVerificationDate(requireValue(args, ++i, arg));
+                    break;
+                case "--employee-signature":
+                    options.setEmployeeSignatureFile(new File(requireValue(args, ++i, arg)));
+                    break;
+                case "--blank-page":
+                    options.setAddBlankPage(true);
+                    break;
+                case "--protocol-x":
+                    options.setProtocolX(parseFloat(requireValue(args, ++i, arg), arg));
+                    break;
+                case "--protocol-y":
+                    options.setProtocolY(parseFloat(requireValue(args, ++i, arg), arg));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+        return options;
+    }
+
+    private static String requireValue(String[] args, int index, String name) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Не указано значение для " + name);
+        }
+        return args[index];
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число для " + name + ": " + value);
+        }
+    }
+
+    private static float parseFloat(String value, String name) {
+        try {
+            return Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число для " + name + ": " + value);
+        }
+    }
+
+    static void printUsage() {
+        System.err.println("Использование: BatchLauncher (--input <каталог> | --manifest <файл>) [параметры]");
+        System.err.println("  --doc-type <тип>            тип документа по умолчанию (Кредитный договор)");
+        System.err.println("  --pages <номера>            страницы для штампов: '1,3-5', -1 - последняя (по умолчанию -1)");
+        System.err.println("  --threads <N>               число потоков (по умолчанию - число ядер)");
+        System.err.println("  --inline-stamps             выводить штампы на каждой странице без Form XObject");
+        System.err.println("  --full-save                 перезаписывать PDF целиком вместо инкрементального обновления");
+        System.err.println("  --dry-run                   только построить план размещения штампов, без записи PDF");
+        System.err.println("  --avoid-content             не накладывать штампы и протокол на текст, изображения и графику");
+        System.err.println("  --auto-place                выбирать место штампов и протокола по изображению страницы (вместо --protocol-x/-y)");
+        System.err.println("  --verify                    проверять подписи по каждому PDF и указывать результат в штампах и протоколе");
+        System.err.println("  --crl-dir <каталог>         каталог списков отзыва (*.crl) для проверки отзыва сертификатов при --verify");
+        System.err.println("  --trust-dir <каталог>       каталог сертификатов корневых и промежуточных УЦ для проверки цепочки при --verify");
+        System.err.println("  --ocsp                      проверять отзыв сертификатов по OCSP при --verify (ответы кэшируются)");
+        System.err.println("  --ocsp-url <адрес>          ответчик OCSP вместо указанного в сертификатах (включает --ocsp)");
+        System.err.println("  --memory-mode <режим>       heap | mixed | temp - хранение данных документа (по умолчанию mixed)");
+        System.err.println("  --memory-budget <МБ>        бюджет кучи на документ в режиме mixed (по умолчанию 256)");
+        System.err.println("  --scratch-dir <каталог>     каталог временных файлов (по умолчанию java.io.tmpdir)");
+        System.err.println("  --protocol                  добавить протокол проверки");
+        System.err.println("  --employee <ФИО>            ФИО сотрудника для протокола");
+        System.err.println("  --verification-date <дата>  дата проверки (по умолчанию - сегодня)");
+        System.err.println("  --employee-signature <png>  изображение подписи сотрудника");
+        System.err.println("  --blank-page                разместить протокол на добавленной пустой странице");
+        System.err.println("  --protocol-x <x>, --protocol-y <y>  координаты протокола на странице");
+    }
+}
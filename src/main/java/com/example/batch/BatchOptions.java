@@ -0,0 +1,119 @@
+package com.example.batch;
+
+import com.example.util.DocumentLoader;
+import com.example.util.MemoryPolicy;
+
+import java.io.File;
+import java.net.URI;
+
+// Параметры пакетной обработки (из командной строки)
+public class BatchOptions {
+    private File input;
+    private String docType = "Кредитный договор";
+    private String pages = "-1";
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean inlineStamps;
+    private boolean dryRun;
+    private boolean fullSave;
+    private boolean avoidContent;
+    private boolean autoPlace;
+    private boolean verify;
+    // Каталог списков отзыва для --verify; null - хранилище из nbdsig.crl.dir
+    private File crlDir;
+    // Каталог доверенных сертификатов УЦ для --verify; null - хранилище из nbdsig.trust.dir
+    private File trustDir;
+    // Проверка отзыва по OCSP при --verify; ocspUrl - ответчик вместо указанного в сертификатах
+    private boolean ocsp;
+    private URI ocspUrl;
+
+    // Память на один документ: режим, бюджет кучи и каталог временных файлов
+    private MemoryPolicy.Mode memoryMode = DocumentLoader.getPolicy().getMode();
+    private long memoryBudgetMb = DocumentLoader.getPolicy().getHeapBudgetBytes() / (1024 * 1024);
+    private File scratchDir;
+
+    // Протокол проверки
+    private boolean protocolEnabled;
+    private String employeeName = "";
+    private String verificationDate = "";
+    private File employeeSignatureFile;
+    private boolean addBlankPage;
+    private float protocolX = 50;
+    private float protocolY = 300;
+
+    public File getInput() { return input; }
+    public void setInput(File input) { this.input = input; }
+
+    public String getDocType() { return docType; }
+    public void setDocType(String docType) { this.docType = docType; }
+
+    public String getPages() { return pages; }
+    public void setPages(String pages) { this.pages = pages; }
+
+    public int getThreads() { return threads; }
+    public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+
+    public boolean isInlineStamps() { return inlineStamps; }
+    public void setInlineStamps(boolean inlineStamps) { this.inlineStamps = inlineStamps; }
+
+    public boolean isDryRun() { return dryRun; }
+    public void setDryRun(boolean dryRun) { this.dryRun = dryRun; }
+
+    public boolean isFullSave() { return fullSave; }
+    public void setFullSave(boolean fullSave) { this.fullSave = fullSave; }
+
+    public boolean isAvoidContent() { return avoidContent; }
+    public void setAvoidContent(boolean avoidContent) { this.avoidContent = avoidContent; }
+
+    public boolean isAutoPlace() { return autoPlace; }
+    public void setAutoPlace(boolean autoPlace) { this.autoPlace = autoPlace; }
+
+    public boolean isVerify() { return verify; }
+    public void setVerify(boolean verify) { this.verify = verify; }
+
+    public File getCrlDir() { return crlDir; }
+    public void setCrlDir(File crlDir) { this.crlDir = crlDir; }
+
+    public File getTrustDir() { return trustDir; }
+    public void setTrustDir(File trustDir) { this.trustDir = trustDir; }
+
+    public boolean isOcsp() { return ocsp; }
+    public void setOcsp(boolean ocsp) { this.ocsp = ocsp; }
+
+    public URI getOcspUrl() { return ocspUrl; }
+    public void setOcspUrl(URI ocspUrl) { this.ocspUrl = ocspUrl; }
+
+    public MemoryPolicy.Mode getMemoryMode() { return memoryMode; }
+    public void setMemoryMode(MemoryPolicy.Mode memoryMode) { this.memoryMode = memoryMode; }
+
+    public long getMemoryBudgetMb() { return memoryBudgetMb; }
+    public void setMemoryBudgetMb(long memoryBudgetMb) { this.memoryBudgetMb = Math.max(1, memoryBudgetMb); }
+
+    public File getScratchDir() { return scratchDir; }
+    public void setScratchDir(File scratchDir) { this.scratchDir = scratchDir; }
+
+    public MemoryPolicy getMemoryPolicy() {
+        return new MemoryPolicy(memoryMode, memoryBudgetMb * 1024 * 1024,
+                scratchDir != null ? scratchDir : DocumentLoader.getPolicy().getScratchDir());
+    }
+
+    public boolean isProtocolEnabled() { return protocolEnabled; }
+    public void setProtocolEnabled(boolean protocolEnabled) { this.protocolEnabled = protocolEnabled; }
+
+    public String getEmployeeName() { return employeeName; }
+    public void setEmployeeName(String employeeName) { this.employeeName = employeeName; }
+
+    public String getVerificationDate() { return verificationDate; }
+    public void setVerificationDate(String verificationDate) { this.verificationDate = verificationDate; }
+
+    public File getEmployeeSignatureFile() { return employeeSignatureFile; }
+    public void setEmployeeSignatureFile(File employeeSignatureFile) { this.employeeSignatureFile = employeeSignatureFile; }
+
+    public boolean isAddBlankPage() { return addBlankPage; }
+    public void setAddBlankPage(boolean addBlankPage) { this.addBlankPage = addBlankPage; }
+
+    public float getProtocolX() { return protocolX; }
+    public void setProtocolX(float protocolX) { this.protocolX = protocolX; }
+
+    public float getProtocolY() { return protocolY; }
+    public void setProtocolY(float protocolY) { this.protocolY = protocolY; }
+}
@@ -0,0 +1,326 @@
+package com.example.batch;
+
+import com.example.model.*;
+import com.example.util.DocumentLoader;
+import com.example.util.PDFAreaSelector;
+import com.example.util.PDFSigner;
+import com.example.util.PdfProbe;
+import com.example.util.ProgressMonitor;
+import com.example.util.ProxyFileParser;
+import com.example.util.SignatureMatcher;
+import com.example.util.SignatureVerifier;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетная обработка: штампы и протокол для каждого PDF каждого пакета
+ * на ограниченном пуле потоков. Не использует JavaFX.
+ */
+public class BatchProcessor {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final BatchOptions options;
+
+    public BatchProcessor(BatchOptions options) {
+        this.options = options;
+    }
+
+    public List<FileResult> run(List<SignaturePackage> packages, Consumer<FileResult> listener)
+            throws InterruptedException {
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "batch-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            if (options.isVerify()) {
+                // Отзыв по OCSP - одним запросом на издателя для всех пакетов, а не по документу
+                List<File> sigFiles = new ArrayList<>();
+                for (SignaturePackage pkg : packages) {
+                    if (pkg.hasSignatures()) {
+                        sigFiles.addAll(PDFSigner.allSignatureFiles(pkg.getDistribution()));
+                    }
+                }
+                SignatureVerifier.prefetchRevocation(sigFiles);
+            }
+
+            List<Future<List<FileResult>>> futures = new ArrayList<>();
+            for (SignaturePackage pkg : packages) {
+                futures.add(executor.submit(() -> processPackage(pkg, listener)));
+            }
+
+            List<FileResult> results = new ArrayList<>();
+            for (Future<List<FileResult>> future : futures) {
+                try {
+                    results.addAll(future.get());
+                } catch (ExecutionException e) {
+                    // processPackage сам перехватывает ошибки, сюда попадаем только при сбое JVM-уровня
+                    results.add(new FileResult("?", null, false, String.valueOf(e.getCause()), 0));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    List<FileResult> processPackage(SignaturePackage pkg, Consumer<FileResult> listener) {
+        List<FileResult> results = new ArrayList<>();
+        if (!checkPackage(pkg, listener, results)) {
+            return results;
+        }
+
+        String docType = pkg.getProperty("docType", options.getDocType());
+        String leftTitle = PDFSigner.getLeftColumnTitle(docType);
+        String rightTitle = PDFSigner.getRightColumnTitle(docType);
+        String additionalTitle = PDFSigner.getAdditionalTitle(docType);
+
+        // Подписи и доверенность разбираются один раз на пакет. Если в пакете
+        // несколько PDF и подписи сопоставлены с ними по хэшу, у каждого PDF
+        // свои подписи; с проверкой или сопоставлением записи подписантов
+        // строятся для каждого PDF
+        SignatureInfo signatureInfo = null;
+        ProxyInfo proxyInfo = null;
+        List<String> protocolSigners = null;
+        SignatureMatch match = null;
+        try {
+            match = matchSignatures(pkg);
+            if (!options.isVerify() && match == null) {
+                signatureInfo = PDFSigner.processSignatures(pkg.getDistribution());
+                protocolSigners = collectProtocolSigners(pkg.getDistribution(), null);
+            }
+            if (pkg.getProxyFile() != null) {
+                proxyInfo = ProxyFileParser.parse(pkg.getProxyFile());
+            }
+        } catch (Exception e) {
+            for (File pdfFile : pkg.getPdfFiles()) {
+                FileResult result = new FileResult(pkg.getName(), pdfFile, false,
+                        "Ошибка обработки подписей: " + e.getMessage(), 0);
+                listener.accept(result);
+                results.add(result);
+            }
+            return results;
+        }
+
+        for (File pdfFile : pkg.getPdfFiles()) {
+            long start = System.nanoTime();
+            DocumentLoader.startJob();
+            FileResult result;
+            try {
+                PdfProbe.Result probe = PdfProbe.probe(pdfFile);
+                List<Integer> pages = PDFSigner.parsePageNumbers(pkg.getProperty("pages", options.getPages()),
+                        probe.getPageCount());
+
+                SignatureInfo fileSignatureInfo = signatureInfo;
+                List<String> fileProtocolSigners = protocolSigners;
+                Map<File, SignatureVerification> verifications = null;
+                if (options.isVerify() || match != null) {
+                    SignatureDistribution distribution = match != null
+                            ? match.distributionFor(pdfFile, pkg.getDistribution()) : pkg.getDistribution();
+                    List<File> sigFiles = PDFSigner.allSignatureFiles(distribution);
+                    if (sigFiles.isEmpty()) {
+                        throw new IllegalStateException("к документу не найдено подписей");
+                    }
+                    if (options.isVerify()) {
+                        verifications = SignatureVerifier.verify(pdfFile, sigFiles);
+                    }
+                    fileSignatureInfo = PDFSigner.processSignatures(distribution, verifications,
+                            ProgressMonitor.NONE);
+                    fileProtocolSigners = collectProtocolSigners(distribution, verifications);
+                }
+
+                StampSettings settings = new StampSettings(!options.isInlineStamps());
+                settings.setDryRun(options.isDryRun());
+                settings.setIncrementalSave(!options.isFullSave());
+                settings.setAvoidContent(options.isAvoidContent());
+                settings.setAutoPlace(options.isAutoPlace());
+                LayoutPlan plan = PDFSigner.processDocument(pdfFile, pages, fileSignatureInfo,
+                        leftTitle, rightTitle, additionalTitle, proxyInfo, settings);
+
+                File output = new File(pdfFile.getParent(), "ВИЗУАЛИЗАЦИЯ_" + pdfFile.getName());
+                String message;
+                if (options.isDryRun()) {
+                    // Пробный запуск: только план, протокол не формируется
+                    message = "план: " + plan;
+                } else {
+                    message = "штампы на страницах " +
+                            pages.stream().map(String::valueOf).collect(Collectors.joining(", "));
+                    if (plan.getContinuationPageCount() > 0) {
+                        message += ", страниц продолжения " + plan.getContinuationPageCount();
+                    }
+                    if (!plan.getUnplaced().isEmpty()) {
+                        message += ", не размещено штампов: " + plan.getUnplaced().size();
+                    }
+                }
+
+                if (options.isProtocolEnabled() && !options.isDryRun()) {
+                    createProtocol(pkg, output, docType, fileProtocolSigners);
+                    output = new File(output.getParent(), "ПОДПИСАННЫЙ_" + output.getName());
+                    message += ", протокол добавлен";
+                }
+
+                if (match != null) {
+                    message += ", подписей по хэшу документа: " + match.getSignatures(pdfFile).size();
+                }
+                if (verifications != null) {
+                    message += ", " + SignatureVerifier.summarize(verifications);
+                }
+
+                if (probe.hasSignatures()) {
+                    message += options.isFullSave()
+                            ? ", ВНИМАНИЕ: встроенные подписи исходного PDF нарушены полной перезаписью"
+                            : ", встроенные подписи исходного PDF сохранены";
+                }
+
+                long spilled = DocumentLoader.getJobSpilledBytes();
+                if (spilled > 0) {
+                    message += ", вытеснено на диск " + DocumentLoader.formatBytes(spilled);
+                }
+
+                result = new FileResult(pkg.getName(), pdfFile, true, message, elapsedMs(start),
+                        options.isDryRun() ? null : output);
+            } catch (Exception e) {
+                result = new FileResult(pkg.getName(), pdfFile, false, "Ошибка: " + e.getMessage(), elapsedMs(start));
+            }
+            listener.accept(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Только протокол проверки на исходных PDF пакета, без штампов
+     * (протокол, который создает PDFSigner.createProtocol).
+     */
+    List<FileResult> processProtocol(SignaturePackage pkg, Consumer<FileResult> listener) {
+        List<FileResult> results = new ArrayList<>();
+        if (!checkPackage(pkg, listener, results)) {
+            return results;
+        }
+
+        String docType = pkg.getProperty("docType", options.getDocType());
+        SignatureMatch match;
+        try {
+            match = matchSignatures(pkg);
+        } catch (Exception e) {
+            for (File pdfFile : pkg.getPdfFiles()) {
+                FileResult result = new FileResult(pkg.getName(), pdfFile, false,
+                        "Ошибка обработки подписей: " + e.getMessage(), 0);
+                listener.accept(result);
+                results.add(result);
+            }
+            return results;
+        }
+        for (File pdfFile : pkg.getPdfFiles()) {
+            long start = System.nanoTime();
+            DocumentLoader.startJob();
+            FileResult result;
+            try {
+                SignatureDistribution distribution = match != null
+                        ? match.distributionFor(pdfFile, pkg.getDistribution()) : pkg.getDistribution();
+                List<File> sigFiles = PDFSigner.allSignatureFiles(distribution);
+                if (sigFiles.isEmpty()) {
+                    throw new IllegalStateException("к документу не найдено подписей");
+                }
+                Map<File, SignatureVerification> verifications = options.isVerify()
+                        ? SignatureVerifier.verify(pdfFile, sigFiles) : null;
+                createProtocol(pkg, pdfFile, docType, collectProtocolSigners(distribution, verifications));
+
+                String message = "протокол добавлен, подписантов " + sigFiles.size();
+                if (verifications != null) {
+                    message += ", " + SignatureVerifier.summarize(verifications);
+                }
+                result = new FileResult(pkg.getName(), pdfFile, true, message, elapsedMs(start),
+                        new File(pdfFile.getParent(), "ПОДПИСАННЫЙ_" + pdfFile.getName()));
+            } catch (Exception e) {
+                result = new FileResult(pkg.getName(), pdfFile, false, "Ошибка: " + e.getMessage(), elapsedMs(start));
+            }
+            listener.accept(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    // Есть PDF и подписи; иначе результат-ошибка пакета добавляется в results
+    private static boolean checkPackage(SignaturePackage pkg, Consumer<FileResult> listener, List<FileResult> results) {
+        if (!pkg.getPdfFiles().isEmpty() && pkg.hasSignatures()) {
+            return true;
+        }
+        FileResult result = new FileResult(pkg.getName(), null, false,
+                pkg.getPdfFiles().isEmpty() ? "Не найден PDF файл" : "Не найдены файлы подписей (.sig)", 0);
+        listener.accept(result);
+        results.add(result);
+        return false;
+    }
+
+    // Подписи по документам пакета (по хэшу), если в пакете несколько PDF; null - общие для всех
+    private static SignatureMatch matchSignatures(SignaturePackage pkg) throws Exception {
+        if (pkg.getPdfFiles().size() < 2) {
+            return null;
+        }
+        SignatureMatch match = SignatureMatcher.match(pkg.getPdfFiles(), PDFSigner.allSignatureFiles(pkg.getDistribution()));
+        if (!match.hasMatches()) {
+            return null;
+        }
+        if (!match.getUnmatched().isEmpty()) {
+            System.err.println(pkg.getName() + ": подписи не подходят ни к одному PDF пакета: " +
+                    match.getUnmatched().stream().map(File::getName).collect(Collectors.joining(", ")));
+        }
+        return match;
+    }
+
+    private void createProtocol(SignaturePackage pkg, File pdfFile, String docType,
+                                List<String> signers) throws Exception {
+        String today = LocalDate.now().format(DATE_FORMAT);
+        String verificationDate = options.getVerificationDate().isEmpty() ? today : options.getVerificationDate();
+
+        ProtocolData protocolData = new ProtocolData(
+                docType,
+                pkg.getProperty("docNumber", ""),
+                pkg.getProperty("docDate", today),
+                verificationDate,
+                options.getEmployeeName(),
+                signers);
+
+        // Протокол размещается на последней странице (или на добавленной пустой)
+        int pageCount = PDFSigner.getPageCount(pdfFile);
+        int pageIndex = options.isAddBlankPage() ? pageCount : pageCount - 1;
+        PDFAreaSelector.SelectedArea area = new PDFAreaSelector.SelectedArea(
+                options.getProtocolX(), options.getProtocolY(), pageIndex);
+
+        ProtocolSettings settings = new ProtocolSettings(options.isAddBlankPage());
+        settings.setIncrementalSave(!options.isFullSave());
+        settings.setAvoidContent(options.isAvoidContent());
+        settings.setAutoPlace(options.isAutoPlace());
+        PDFSigner.createProtocol(pdfFile, protocolData, area, options.getEmployeeSignatureFile(), settings);
+    }
+
+    // verifications - результаты проверки подписей или null, если подписи не проверялись
+    private static List<String> collectProtocolSigners(SignatureDistribution distribution,
+                                                       Map<File, SignatureVerification> verifications) throws Exception {
+        List<String> signers = new ArrayList<>();
+        for (File sigFile : PDFSigner.allSignatureFiles(distribution)) {
+            signers.add(PDFSigner.formatSignerForProtocol(PDFSigner.extractSignerInfo(sigFile),
+                    verifications != null ? verifications.get(sigFile) : null));
+        }
+        return signers;
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.batch;
+
+import com.example.model.SignaturePackage;
+import com.example.util.PDFSigner;
+import com.example.util.SignerInfoCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Локальная HTTP-служба визуализации и протокола проверки (только
+ * com.sun.net.httpserver из JDK).
+ *
+ * Пакет документов присылается телом запроса в виде ZIP-архива со
+ * структурой каталога пакета (см. PackageScanner); в архиве может быть
+ * и несколько пакетов-подкаталогов.
+ * <pre>
+ *   POST /visualize?verify&amp;protocol&amp;employee=...  - PDF со штампами (и протоколом)
+ *   POST /protocol?employee=...&amp;verify            - исходный PDF с протоколом проверки
+ *   GET  /status                                   - статистика кэшей
+ * </pre>
+ * Параметры запроса - те же, что у пакетного режима, без "--" (doc-type,
+ * pages, verify, protocol, employee, ...), а также docNumber и docDate
+ * пакета; пути на сервере (подпись сотрудника, CRL, временные файлы)
+ * задаются только при запуске. Ответ - итоговый PDF или, если документов
+ * несколько, ZIP с ними и файлом result.txt.
+ *
+ * Каждый запрос обслуживается в своем виртуальном потоке: архив
+ * распаковывается по мере приема, результат отдается из файла, и потоки
+ * платформы медленными клиентами не заняты. Обработку документов
+ * одновременно ведут не более threads запросов. Кэши шрифтов,
+ * сертификатов, списков отзыва и OCSP общие для всех запросов и живут,
+ * пока работает служба; разборы присланных подписей забываются вместе
+ * с временным каталогом запроса.
+ */
+public class DocumentService {
+    private static final String RESULT_FILE = "result.txt";
+    // Параметры пакетного режима, которые можно задать в запросе
+    private static final Set<String> REQUEST_FLAGS = Set.of(
+            "inline-stamps", "full-save", "avoid-content", "auto-place", "verify", "protocol", "blank-page");
+    private static final Set<String> REQUEST_VALUES = Set.of(
+            "doc-type", "pages", "employee", "verification-date", "protocol-x", "protocol-y");
+    private static final Set<String> PACKAGE_PROPERTIES = Set.of("docNumber", "docDate");
+
+    private final List<String> baseArguments;
+    private final long maxUploadBytes;
+    private final File scratchDir;
+    private final int threads;
+    private final Semaphore jobs;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * baseArguments - параметры пакетного режима, общие для всех запросов
+     * (запрос может их дополнить); maxUploadBytes - предел распакованного
+     * содержимого архива.
+     */
+    public DocumentService(List<String> baseArguments, long maxUploadBytes) {
+        BatchOptions defaults = BatchLauncher.parseOptions(baseArguments.toArray(new String[0]));
+        this.baseArguments = new ArrayList<>(baseArguments);
+        this.maxUploadBytes = maxUploadBytes;
+        this.scratchDir = defaults.getScratchDir() != null
+                ? defaults.getScratchDir() : new File(System.getProperty("java.io.tmpdir"));
+        this.threads = defaults.getThreads();
+        this.jobs = new Semaphore(threads);
+        BatchLauncher.configure(defaults);
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.createContext("/visualize", exchange -> handle(exchange, false));
+        server.createContext("/protocol", exchange -> handle(exchange, true));
+        server.createContext("/status", this::status);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // delaySeconds - сколько ждать завершения начатых запросов
+    public synchronized void stop(int delaySeconds) {
+        if (server != null) {
+            server.stop(delaySeconds);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    public synchronized InetSocketAddress getAddress() {
+        return server != null ? server.getAddress() : null;
+    }
+
+    public String getStatistics() {
+        return String.format("Служба: запросов %d, документов %d, ошибок %d, обрабатывается %d",
+                requests.get(), documents.get(), failures.get(), threads - jobs.availablePermits());
+    }
+
+    private void status(HttpExchange exchange) throws IOException {
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add(getStatistics());
+            lines.addAll(BatchLauncher.statistics(true));
+            sendText(exchange, 200, String.join("\n", lines));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // protocolOnly - только протокол на исходном PDF (/protocol), иначе штампы (/visualize)
+    private void handle(HttpExchange exchange, boolean protocolOnly) throws IOException {
+        requests.incrementAndGet();
+        Path workDir = null;
+        List<File> sigFiles = new ArrayList<>();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendText(exchange, 405, "Требуется POST с ZIP-архивом пакета");
+                return;
+            }
+            Map<String, String> properties = new LinkedHashMap<>();
+            BatchOptions options;
+            try {
+                options = requestOptions(exchange.getRequestURI(), properties, protocolOnly);
+            } catch (IllegalArgumentException e) {
+                sendText(exchange, 400, e.getMessage());
+                return;
+            }
+
+            workDir = Files.createTempDirectory(scratchDir.toPath(), "nbdsig-service-");
+            try {
+                unpack(exchange.getRequestBody(), workDir);
+            } catch (UploadTooLargeException e) {
+                sendText(exchange, 413, e.getMessage());
+                return;
+            } catch (IOException | IllegalArgumentException e) {
+                // IllegalArgumentException - имена файлов архива не в UTF-8
+                sendText(exchange, 400, "Архив пакета не читается: " + e.getMessage());
+                return;
+            }
+
+            List<SignaturePackage> packages = PackageScanner.scan(workDir.toFile());
+            if (packages.isEmpty()) {
+                sendText(exchange, 400, "В архиве нет PDF документов");
+                return;
+            }
+            for (SignaturePackage pkg : packages) {
+                properties.forEach(pkg.getProperties()::setProperty);
+                if (pkg.hasSignatures()) {
+                    sigFiles.addAll(PDFSigner.allSignatureFiles(pkg.getDistribution()));
+                }
+            }
+
+            List<FileResult> results = new ArrayList<>();
+            BatchProcessor processor = new BatchProcessor(options);
+            jobs.acquire();
+            try {
+                for (SignaturePackage pkg : packages) {
+                    results.addAll(protocolOnly
+                            ? processor.processProtocol(pkg, result -> { })
+                            : processor.processPackage(pkg, result -> { }));
+                }
+            } finally {
+                jobs.release();
+            }
+            sendResults(exchange, results);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.incrementAndGet();
+            sendError(exchange, 503, "Служба останавливается, запрос не обработан");
+        } catch (IOException | RuntimeException e) {
+            failures.incrementAndGet();
+            System.err.println("Ошибка запроса " + exchange.getRequestURI() + ": " + e.getMessage());
+            sendError(exchange, 500, "Ошибка обработки запроса: " + e.getMessage());
+        } finally {
+            exchange.close();
+            SignerInfoCache.forget(sigFiles);
+            if (workDir != null) {
+                deleteRecursively(workDir);
+            }
+        }
+    }
+
+    // Параметры запроса поверх параметров запуска; docNumber, docDate - в properties
+    private BatchOptions requestOptions(URI uri, Map<String, String> properties, boolean protocolOnly) {
+        List<String> args = new ArrayList<>(baseArguments);
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            for (String pair : query.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+                int eq = pair.indexOf('=');
+                String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+                String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+                if (REQUEST_FLAGS.contains(name)) {
+                    if (value.isEmpty() || Boolean.parseBoolean(value)) {
+                        args.add("--" + name);
+                    }
+                } else if (REQUEST_VALUES.contains(name)) {
+                    args.add("--" + name);
+                    args.add(value);
+                } else if (PACKAGE_PROPERTIES.contains(name)) {
+                    properties.put(name, value);
+                } else {
+                    throw new IllegalArgumentException("Неизвестный параметр запроса: " + name);
+                }
+            }
+        }
+        BatchOptions options = BatchLauncher.parseOptions(args.toArray(new String[0]));
+        options.setDryRun(false);
+        if (protocolOnly) {
+            options.setProtocolEnabled(true);
+        }
+        if (options.isProtocolEnabled() && options.getEmployeeName().isEmpty()) {
+            throw new IllegalArgumentException("Для протокола требуется параметр employee");
+        }
+        return options;
+    }
+
+    // Распаковка по мере приема; имена вне каталога и содержимое сверх maxUploadBytes отклоняются
+    private void unpack(InputStream body, Path dir) throws IOException {
+        long total = 0;
+        int entries = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (ZipInputStream zip = new ZipInputStream(body, StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                Path target = dir.resolve(entry.getName()).normalize();
+                if (!target.startsWith(dir) || target.equals(dir)) {
+                    throw new ZipException("недопустимое имя " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    int read;
+                    while ((read = zip.read(buffer)) > 0) {
+                        total += read;
+                        if (total > maxUploadBytes) {
+                            throw new UploadTooLargeException("Пакет больше " + maxUploadBytes / (1024 * 1024) + " МБ");
+                        }
+                        out.write(buffer, 0, read);
+                    }
+                }
+                entries++;
+            }
+        }
+        if (entries == 0) {
+            throw new ZipException("архив пуст");
+        }
+    }
+
+    // Один PDF - сам файл; несколько - ZIP; ни одного - 422 с сообщениями
+    private void sendResults(HttpExchange exchange, List<FileResult> results) throws IOException {
+        List<FileResult> written = new ArrayList<>();
+        for (FileResult result : results) {
+            documents.incrementAndGet();
+            if (result.isSuccess() && result.getOutputFile() != null && result.getOutputFile().isFile()) {
+                written.add(result);
+            } else {
+                failures.incrementAndGet();
+            }
+        }
+        String report = results.stream().map(FileResult::toString).collect(Collectors.joining("\n"));
+
+        if (written.isEmpty()) {
+            sendText(exchange, 422, report);
+            return;
+        }
+        if (written.size() == 1 && results.size() == 1) {
+            File output = written.get(0).getOutputFile();
+            exchange.getResponseHeaders().set("Content-Type", "application/pdf");
+            exchange.getResponseHeaders().set("Content-Disposition", attachment(output.getName()));
+            // Сообщение о результате - в процентной кодировке UTF-8 (заголовки только ASCII)
+            exchange.getResponseHeaders().set("X-Nbdsig-Result", percentEncode(written.get(0).getMessage()));
+            exchange.sendResponseHeaders(200, output.length());
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(output.toPath(), out);
+            }
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.getResponseHeaders().set("Content-Disposition", attachment("result.zip"));
+        // Длина неизвестна - ответ частями по мере упаковки
+        exchange.sendResponseHeaders(200, 0);
+        try (ZipOutputStream zip = new ZipOutputStream(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            for (FileResult result : written) {
+                zip.putNextEntry(new ZipEntry(result.getPackageName() + "/" + result.getOutputFile().getName()));
+                Files.copy(result.getOutputFile().toPath(), zip);
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry(RESULT_FILE));
+            zip.write(report.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    // Ответ с ошибкой, пока заголовки не отправлены; после начала передачи остается только закрыть обмен
+    private static void sendError(HttpExchange exchange, int status, String text) {
+        if (exchange.getResponseCode() >= 0) {
+            return;
+        }
+        try {
+            sendText(exchange, status, text);
+        } catch (IOException e) {
+            // Клиент уже отключился
+        }
+    }
+
+    // Имя файла в Content-Disposition: латиница для старых клиентов и UTF-8 (RFC 6266)
+    private static String attachment(String fileName) {
+        String fallback = fileName.endsWith(".zip") ? "result.zip" : "result.pdf";
+        return "attachment; filename=\"" + fallback + "\"; filename*=UTF-8''" + percentEncode(fileName);
+    }
+
+    private static String percentEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный каталог " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private static final class UploadTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UploadTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
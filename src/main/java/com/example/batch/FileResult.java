@@ -0,0 +1,45 @@
+package com.example.batch;
+
+import java.io.File;
+
+// Результат обработки одного PDF файла в пакетном режиме
+public class FileResult {
+    private final String packageName;
+    private final File pdfFile;
+    private final boolean success;
+    private final String message;
+    private final long durationMs;
+    // Итоговый PDF (со штампами и/или протоколом); null - файл не записывался
+    private final File outputFile;
+
+    public FileResult(String packageName, File pdfFile, boolean success, String message, long durationMs) {
+        this(packageName, pdfFile, success, message, durationMs, null);
+    }
+
+    public FileResult(String packageName, File pdfFile, boolean success, String message, long durationMs,
+                      File outputFile) {
+        this.packageName = packageName;
+        this.pdfFile = pdfFile;
+        this.success = success;
+        this.message = message;
+        this.durationMs = durationMs;
+        this.outputFile = outputFile;
+    }
+
+    public String getPackageName() { return packageName; }
+    public File getPdfFile() { return pdfFile; }
+    public boolean isSuccess() { return success; }
+    public String getMessage() { return message; }
+    public long getDurationMs() { return durationMs; }
+    public File getOutputFile() { return outputFile; }
+
+    @Override
+    public String toString() {
+        return String.format("[%s] %s/%s - %s (%d мс)",
+                success ? "OK" : "ОШИБКА",
+                packageName,
+                pdfFile != null ? pdfFile.getName() : "-",
+                message,
+                durationMs);
+    }
+}
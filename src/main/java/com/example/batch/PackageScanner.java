@@ -0,0 +1,135 @@
+package com.example.batch;
+
+import com.example.model.SignaturePackage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Поиск пакетов документов для пакетной обработки.
+ *
+ * Структура каталога пакета:
+ * <pre>
+ *   пакет/
+ *     договор.pdf          - документы для визуализации
+ *     *.sig                - подписи контрагента (правая колонка)
+ *     bank/*.sig           - подписи со стороны банка
+ *     additional/*.sig     - поручители и/или залогодатели
+ *     *.xml                - доверенность (необязательно)
+ *     package.properties   - docType, docNumber, docDate, pages (необязательно)
+ * </pre>
+ * Входом может быть каталог пакета, каталог с подкаталогами-пакетами
+ * или файл-манифест со списком каталогов пакетов (по одному на строку, # - комментарий).
+ */
+public class PackageScanner {
+    public static final String BANK_DIR = "bank";
+    public static final String ADDITIONAL_DIR = "additional";
+    public static final String PROPERTIES_FILE = "package.properties";
+
+    // Префиксы результатов предыдущих запусков - такие PDF повторно не обрабатываем
+    private static final String[] OUTPUT_PREFIXES = {"ВИЗУАЛИЗАЦИЯ_", "ПОДПИСАННЫЙ_"};
+
+    public static List<SignaturePackage> scan(File input) throws IOException {
+        if (!input.exists()) {
+            throw new IOException("Не найден вход пакетной обработки: " + input);
+        }
+
+        List<SignaturePackage> packages = new ArrayList<>();
+        if (input.isFile()) {
+            for (File dir : readManifest(input)) {
+                packages.add(scanPackage(dir));
+            }
+            return packages;
+        }
+
+        // Каталог с PDF в корне - это один пакет
+        if (listFiles(input, ".pdf").length > 0) {
+            packages.add(scanPackage(input));
+            return packages;
+        }
+
+        File[] subDirs = input.listFiles(File::isDirectory);
+        if (subDirs != null) {
+            Arrays.sort(subDirs, Comparator.comparing(File::getName));
+            for (File dir : subDirs) {
+                if (listFiles(dir, ".pdf").length > 0) {
+                    packages.add(scanPackage(dir));
+                }
+            }
+        }
+        return packages;
+    }
+
+    public static SignaturePackage scanPackage(File dir) throws IOException {
+        if (!dir.isDirectory()) {
+            throw new IOException("Каталог пакета не найден: " + dir);
+        }
+
+        SignaturePackage pkg = new SignaturePackage(dir.getName(), dir);
+
+        for (File pdf : listFiles(dir, ".pdf")) {
+            if (!isOutputFile(pdf)) {
+                pkg.getPdfFiles().add(pdf);
+            }
+        }
+
+        pkg.getDistribution().rightSigFiles.addAll(Arrays.asList(listFiles(dir, ".sig")));
+        pkg.getDistribution().bankSigFiles.addAll(Arrays.asList(listFiles(new File(dir, BANK_DIR), ".sig")));
+        pkg.getDistribution().additionalSigFiles.addAll(Arrays.asList(listFiles(new File(dir, ADDITIONAL_DIR), ".sig")));
+
+        File[] xmlFiles = listFiles(dir, ".xml");
+        if (xmlFiles.length > 0) {
+            pkg.setProxyFile(xmlFiles[0]);
+        }
+
+        File propertiesFile = new File(dir, PROPERTIES_FILE);
+        if (propertiesFile.isFile()) {
+            try (InputStreamReader reader = new InputStreamReader(
+                    new FileInputStream(propertiesFile), StandardCharsets.UTF_8)) {
+                pkg.getProperties().load(reader);
+            }
+        }
+
+        return pkg;
+    }
+
+    private static List<File> readManifest(File manifest) throws IOException {
+        List<File> dirs = new ArrayList<>();
+        File baseDir = manifest.getAbsoluteFile().getParentFile();
+        for (String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            File dir = new File(trimmed);
+            dirs.add(dir.isAbsolute() ? dir : new File(baseDir, trimmed));
+        }
+        return dirs;
+    }
+
+    private static File[] listFiles(File dir, String extension) {
+        File[] files = dir.listFiles(f -> f.isFile() && f.getName().toLowerCase().endsWith(extension));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return files;
+    }
+
+    private static boolean isOutputFile(File file) {
+        for (String prefix : OUTPUT_PREFIXES) {
+            if (file.getName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.batch;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Режим локальной HTTP-службы (DocumentService) без JavaFX: процесс
+ * работает, пока его не остановят, и обрабатывает пакеты по запросам.
+ *
+ * Пример:
+ * <pre>
+ *   java -jar nbdsig.jar --serve --port 8090 --threads 8 --employee-signature sign.png
+ *   curl --data-binary @пакет.zip -o результат.pdf "http://127.0.0.1:8090/visualize?verify"
+ * </pre>
+ * Остальные параметры - как у пакетного режима, они действуют для всех запросов.
+ */
+public class ServiceLauncher {
+    private static final int DEFAULT_PORT = 8090;
+    private static final long DEFAULT_MAX_UPLOAD_MB = 512;
+
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        long maxUploadMb = DEFAULT_MAX_UPLOAD_MB;
+        List<String> batchArguments = new ArrayList<>();
+        DocumentService service;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--serve":
+                        break;
+                    case "--host":
+                        host = requireValue(args, ++i, "--host");
+                        break;
+                    case "--port":
+                        port = parseInt(requireValue(args, ++i, "--port"), "--port");
+                        break;
+                    case "--max-upload-mb":
+                        maxUploadMb = parseInt(requireValue(args, ++i, "--max-upload-mb"), "--max-upload-mb");
+                        break;
+                    case "--input":
+                    case "--manifest":
+                        throw new IllegalArgumentException("Пакеты службе передаются запросами, а не " + args[i]);
+                    default:
+                        batchArguments.add(args[i]);
+                }
+            }
+            service = new DocumentService(batchArguments, maxUploadMb * 1024 * 1024);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+            return;
+        }
+
+        try {
+            service.start(new InetSocketAddress(host, port));
+        } catch (Exception e) {
+            System.err.println("Не удалось запустить службу на " + host + ":" + port + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        InetSocketAddress address = service.getAddress();
+        System.out.println("Служба запущена: http://" + address.getHostString() + ":" + address.getPort() +
+                " (/visualize, /protocol, /status)");
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.stop(5);
+            System.out.println(service.getStatistics());
+            stopped.countDown();
+        }, "service-shutdown"));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String requireValue(String[] args, int index, String name) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Не указано значение для " + name);
+        }
+        return args[index];
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число для " + name + ": " + value);
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Использование: --serve [--host <адрес>] [--port <порт>] [--max-upload-mb <МБ>] [параметры пакетного режима]");
+        System.err.println("  --host <адрес>              адрес службы (по умолчанию 127.0.0.1)");
+        System.err.println("  --port <порт>               порт службы (по умолчанию " + DEFAULT_PORT + ", 0 - любой свободный)");
+        System.err.println("  --max-upload-mb <МБ>        предел распакованного пакета в запросе (по умолчанию " + DEFAULT_MAX_UPLOAD_MB + ")");
+        BatchLauncher.printUsage();
+    }
+}
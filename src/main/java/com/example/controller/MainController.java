@@ -1,21 +1,34 @@
 package com.example.controller;
 
+import com.example.util.BackgroundJob;
+import com.example.util.BackgroundJobs;
+import com.example.util.PackageSigner;
+import com.example.util.SignatureMatcher;
+import com.example.util.SignatureVerifier;
 import com.example.util.PDFAreaSelector;
+import com.example.util.ProgressMonitor;
+import javafx.application.Platform;
+import javafx.concurrent.WorkerStateEvent;
 import javafx.fxml.FXML;
+import javafx.geometry.Pos;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import com.example.model.*;
 import com.example.util.PDFSigner;
+import com.example.util.ProxyFileParser;
+import com.example.util.SignerInfoCache;
 import com.example.util.UIUtils;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javafx.animation.*;
@@ -39,6 +52,13 @@ public class MainController {
     private Timeline processingAnimation;
     private Button exitButton; // Теперь создаем программно
 
+    // Работа с PDF и подписями выполняется вне потока интерфейса, по одной операции
+    private final BackgroundJobs jobs = new BackgroundJobs();
+    private BackgroundJob<?> currentJob;
+    private HBox progressPanel;
+    private ProgressBar progressBar;
+    private Label progressLabel;
+
     public void setPrimaryStage(Stage stage) {
         this.primaryStage = stage;
         setupWindowDragging();
@@ -82,6 +102,7 @@ public class MainController {
         setupModernDesign();
         startFastEntranceAnimations();
         createAndSetupExitButton(); // Создаем кнопку программно
+        createProgressPanel();
 
         docTypeComboBox.getItems().addAll(
                 "Кредитный договор",
@@ -221,6 +242,91 @@ public class MainController {
         return false;
     }
 
+    // Ход фоновой операции под областью статуса: этап, прогресс и отмена
+    private void createProgressPanel() {
+        progressLabel = new Label();
+        progressBar = new ProgressBar(0);
+        progressBar.setPrefWidth(260);
+        Button cancelButton = new Button("Отмена");
+        cancelButton.setOnAction(e -> handleCancelJob());
+
+        progressPanel = new HBox(10, progressLabel, progressBar, cancelButton);
+        progressPanel.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(progressLabel, Priority.ALWAYS);
+        progressPanel.setVisible(false);
+        progressPanel.setManaged(false);
+
+        if (statusTextArea.getParent() instanceof Pane) {
+            ((Pane) statusTextArea.getParent()).getChildren().add(progressPanel);
+        } else {
+            mainContainer.getChildren().add(progressPanel);
+        }
+    }
+
+    private boolean isJobRunning() {
+        if (currentJob != null) {
+            showAlert("ПРЕДУПРЕЖДЕНИЕ", "Дождитесь завершения текущей операции или отмените ее");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Запуск операции в фоновом потоке. Этапы выводятся в статус и на панель
+     * хода; onSuccess вызывается в потоке интерфейса, ошибки и отмена
+     * сообщаются здесь.
+     */
+    private <T> BackgroundJob<T> runJob(String title, BackgroundJob.Work<T> work,
+                                        Consumer<T> onSuccess, String errorMessage) {
+        BackgroundJob<T> job = new BackgroundJob<>(title, work);
+        currentJob = job;
+
+        progressLabel.textProperty().bind(job.messageProperty());
+        progressBar.progressProperty().bind(job.progressProperty());
+        progressPanel.setVisible(true);
+        progressPanel.setManaged(true);
+        job.messageProperty().addListener((obs, oldMessage, message) -> {
+            if (message != null && !message.isEmpty()) {
+                appendStatus(message + "...", "ИНФО");
+            }
+        });
+
+        job.setOnSucceeded(e -> {
+            finishJob(job);
+            onSuccess.accept(job.getValue());
+        });
+        job.setOnCancelled(e -> {
+            finishJob(job);
+            appendStatus(title + ": операция отменена", "ПРЕДУПРЕЖДЕНИЕ");
+        });
+        job.setOnFailed(e -> {
+            finishJob(job);
+            Throwable error = job.getException();
+            showAlert("Ошибка", "Ошибка: " + error.getMessage());
+            appendStatus(errorMessage + ": " + error.getMessage(), "ОШИБКА");
+        });
+
+        return jobs.submit(job);
+    }
+
+    private void finishJob(BackgroundJob<?> job) {
+        if (currentJob != job) {
+            return;
+        }
+        currentJob = null;
+        progressLabel.textProperty().unbind();
+        progressBar.progressProperty().unbind();
+        progressPanel.setVisible(false);
+        progressPanel.setManaged(false);
+        hideProcessingAnimation();
+    }
+
+    private void handleCancelJob() {
+        if (currentJob != null && !currentJob.cancel()) {
+            appendStatus("Сохранение уже началось, операция будет завершена", "ИНФО");
+        }
+    }
+
     private void startFastEntranceAnimations() {
         Timeline delayTimeline = new Timeline(new KeyFrame(Duration.millis(50), e -> {
             animateFastEntrance();
@@ -321,6 +427,7 @@ public class MainController {
         playFastButtonAnimation();
 
         cleanupResources();
+        SignerInfoCache.clear();
 
         pdfFiles.clear();
         sigFiles.clear();
@@ -378,25 +485,13 @@ public class MainController {
                     }
                 }),
                 new KeyFrame(Duration.millis(250), e -> {
-                    if (!sigFiles.isEmpty()) {
-                        appendStatus("Добавлены подписи:", "УСПЕХ");
-                        for (File sigFile : sigFiles) {
-                            try {
-                                String signerInfo = PDFSigner.extractSignerInfo(sigFile);
-                                String[] lines = signerInfo.split("\n");
-                                String ownerLine = lines.length > 0 ? lines[lines.length - 1] : "Неизвестно";
-                                appendStatus("  • " + sigFile.getName() + " (" + ownerLine + ")", "ИНФО");
-                            } catch (Exception ex) {
-                                appendStatus("  • " + sigFile.getName() + " (не удалось прочитать информацию о подписи)", "ПРЕДУПРЕЖДЕНИЕ");
-                            }
-                        }
-                    }
-
                     if (pdfFiles.isEmpty()) {
                         appendStatus("ВНИМАНИЕ: Не выбран PDF файл!", "ПРЕДУПРЕЖДЕНИЕ");
                     }
                     if (sigFiles.isEmpty()) {
                         appendStatus("ВНИМАНИЕ: Не выбраны файлы подписей!", "ПРЕДУПРЕЖДЕНИЕ");
+                    } else {
+                        showSignerList(new ArrayList<>(sigFiles));
                     }
                 })
         );
@@ -405,6 +500,39 @@ public class MainController {
         trackAnimation(processingAnimation);
     }
 
+    // Подписи разбираются в фоне (результат остается в SignerInfoCache), список выводится по готовности
+    private void showSignerList(List<File> files) {
+        if (currentJob != null) {
+            appendStatus("Подписи будут прочитаны при подписании документа", "ИНФО");
+            return;
+        }
+
+        runJob("Чтение подписей", monitor -> {
+            List<String> ownerLines = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                monitor.checkCancelled();
+                monitor.phase(ProgressMonitor.Phase.PARSE_SIGNATURES, i, files.size());
+                try {
+                    SignerRecord record = PDFSigner.extractSignerRecord(files.get(i));
+                    ownerLines.add(record.getLine(record.getLineCount() - 1));
+                } catch (Exception ex) {
+                    ownerLines.add(null);
+                }
+            }
+            return ownerLines;
+        }, ownerLines -> {
+            appendStatus("Добавлены подписи:", "УСПЕХ");
+            for (int i = 0; i < files.size(); i++) {
+                String ownerLine = ownerLines.get(i);
+                if (ownerLine != null) {
+                    appendStatus("  • " + files.get(i).getName() + " (" + ownerLine + ")", "ИНФО");
+                } else {
+                    appendStatus("  • " + files.get(i).getName() + " (не удалось прочитать информацию о подписи)", "ПРЕДУПРЕЖДЕНИЕ");
+                }
+            }
+        }, "Ошибка чтения подписей");
+    }
+
     @FXML
     private void handleAddProxy() {
         playFastButtonAnimation();
@@ -454,45 +582,211 @@ public class MainController {
             return;
         }
 
-        try {
-            showProcessingAnimation();
-
-            String leftTitle = PDFSigner.getLeftColumnTitle(docType);
-            String rightTitle = PDFSigner.getRightColumnTitle(docType);
-            String additionalTitle = PDFSigner.getAdditionalTitle(docType);
-
-            SignatureDistribution distribution = PDFSigner.distributeSignatures(sigFiles, rightTitle, additionalTitle);
-            SignatureInfo signatureInfo = PDFSigner.processSignatures(distribution);
+        if (isJobRunning()) {
+            return;
+        }
 
-            if (signatureInfo.isEmpty()) {
-                showAlert("Ошибка", "Нет информации о подписях");
-                hideProcessingAnimation();
-                return;
+        List<File> documents = new ArrayList<>(pdfFiles);
+        List<File> files = new ArrayList<>(sigFiles);
+        showProcessingAnimation();
+
+        // 1. В фоне: разбор подписей и число страниц; 2. диалоги; 3. в фоне: штампы и сохранение.
+        // Для нескольких PDF диалоги общие, число страниц - по самому короткому документу,
+        // подписи сопоставляются с документами по хэшу
+        runJob("Подготовка документа", monitor -> {
+            Map<File, String> errors = readSignatures(files, monitor);
+            List<File> readable = new ArrayList<>(files);
+            readable.removeAll(errors.keySet());
+            List<SignerClassification> classifications = PDFSigner.classifySignatures(readable, errors);
+            SignatureMatch match = documents.size() > 1
+                    ? SignatureMatcher.match(documents, files, monitor) : null;
+            monitor.phase(ProgressMonitor.Phase.LOAD, 0, 0);
+            int pageCount = Integer.MAX_VALUE;
+            for (File pdfFile : documents) {
+                pageCount = Math.min(pageCount, PDFSigner.getPageCount(pdfFile));
             }
+            return new SignPreparation(pageCount, errors, classifications, match);
+        }, preparation -> signDocuments(documents, docType, files, preparation), "Ошибка");
+    }
 
-            File pdfFile = pdfFiles.get(0);
-            Optional<String> pagesInput = UIUtils.showPagesInputDialog(pdfFile);
-            if (!pagesInput.isPresent()) {
-                hideProcessingAnimation();
-                return;
-            }
+    private void signDocuments(List<File> documents, String docType, List<File> files, SignPreparation preparation) {
+        String leftTitle = PDFSigner.getLeftColumnTitle(docType);
+        String rightTitle = PDFSigner.getRightColumnTitle(docType);
+        String additionalTitle = PDFSigner.getAdditionalTitle(docType);
 
-            List<Integer> requestedPages = PDFSigner.parsePageNumbers(pagesInput.get(),
-                    PDFSigner.getPageCount(pdfFile));
+        for (File file : files) {
+            String error = preparation.errors.get(file);
+            if (error != null) {
+                UIUtils.showErrorAlert("Ошибка обработки подписи: " + file.getName() + "\n" + error);
+            }
+        }
 
-            PDFSigner.processDocument(pdfFile, requestedPages, signatureInfo,
-                    leftTitle, rightTitle, additionalTitle, proxyInfo);
+        // Подписи уже разобраны и классифицированы, здесь только диалог выбора колонки
+        SignatureDistribution distribution = PDFSigner.distributeSignatures(preparation.classifications,
+                rightTitle, additionalTitle);
+        if (distribution.bankSigFiles.isEmpty() && distribution.rightSigFiles.isEmpty()
+                && distribution.additionalSigFiles.isEmpty()) {
+            showAlert("Ошибка", "Нет информации о подписях");
+            hideProcessingAnimation();
+            return;
+        }
 
+        Optional<String> pagesInput = UIUtils.showPagesInputDialog(preparation.pageCount);
+        if (!pagesInput.isPresent()) {
             hideProcessingAnimation();
+            return;
+        }
+        ProxyInfo proxy = proxyInfo;
+
+        if (documents.size() > 1) {
+            String pages = pagesInput.get();
+            Map<File, SignatureDistribution> distributions = distributeByDocument(documents, distribution,
+                    preparation.match);
+            appendStatus("Пакет документов: " + documents.size() + " PDF, потоков: " +
+                    Math.min(PackageSigner.DEFAULT_THREADS, documents.size()), "ИНФО");
+            runJob("Подписание пакета документов", monitor -> PackageSigner.signAll(documents, pages,
+                    distributions, true, leftTitle, rightTitle, additionalTitle, proxy, StampSettings.defaults(),
+                    PackageSigner.DEFAULT_THREADS, monitor,
+                    result -> Platform.runLater(() -> showDocumentResult(result))),
+                    this::showPackageSummary, "Ошибка");
+            return;
+        }
+
+        File pdfFile = documents.get(0);
+        List<Integer> requestedPages = PDFSigner.parsePageNumbers(pagesInput.get(), preparation.pageCount);
+
+        // Подписи проверяются по документу (одно чтение файла), результат - в штампах
+        runJob("Подписание документа", monitor -> {
+            long start = System.nanoTime();
+            Map<File, SignatureVerification> verifications =
+                    SignatureVerifier.verify(pdfFile, PDFSigner.allSignatureFiles(distribution), monitor);
+            SignatureInfo signatureInfo = PDFSigner.processSignatures(distribution, verifications, monitor);
+            LayoutPlan plan = PDFSigner.processDocument(pdfFile, requestedPages, signatureInfo,
+                    leftTitle, rightTitle, additionalTitle, proxy, StampSettings.defaults(), monitor);
+            return DocumentResult.success(pdfFile, requestedPages, plan,
+                    (System.nanoTime() - start) / 1_000_000, verifications);
+        }, result -> {
+            LayoutPlan plan = result.getPlan();
             showAlert("Успех", "Документ успешно подписан!");
             appendStatus("Обработка завершена успешно", "УСПЕХ");
             appendStatus("Штампы добавлены на страницы: " +
                     requestedPages.stream().map(String::valueOf).collect(Collectors.joining(", ")), "ИНФО");
+            if (plan.getContinuationPageCount() > 0) {
+                appendStatus("Не поместившиеся штампы перенесены на страницы продолжения: " +
+                        plan.getContinuationPageCount(), "ИНФО");
+            }
+            if (!plan.getUnplaced().isEmpty()) {
+                appendStatus("Не удалось разместить штампов: " + plan.getUnplaced().size(), "ПРЕДУПРЕЖДЕНИЕ");
+            }
+            showVerifications(result.getVerifications());
+        }, "Ошибка");
+    }
+
+    /**
+     * Подписи документов пакета: если хотя бы одна подпись сопоставлена с
+     * документом по хэшу, каждый документ получает только свои подписи;
+     * иначе (подписи не к этим файлам) - все подписи, как раньше.
+     */
+    private Map<File, SignatureDistribution> distributeByDocument(List<File> documents,
+                                                                  SignatureDistribution distribution,
+                                                                  SignatureMatch match) {
+        Map<File, SignatureDistribution> distributions = new HashMap<>();
+        boolean routed = match != null && match.hasMatches();
+        for (File document : documents) {
+            distributions.put(document, routed ? match.distributionFor(document, distribution) : distribution);
+        }
+        if (routed) {
+            appendStatus("Подписи сопоставлены с документами по хэшу: " + match, "ИНФО");
+            for (File sigFile : match.getUnmatched()) {
+                appendStatus(sigFile.getName() + ": не подходит ни к одному документу пакета, не используется",
+                        "ПРЕДУПРЕЖДЕНИЕ");
+            }
+        } else {
+            appendStatus("Подписи не сопоставлены ни с одним документом по хэшу, все подписи добавляются " +
+                    "во все документы", "ПРЕДУПРЕЖДЕНИЕ");
+        }
+        return distributions;
+    }
 
-        } catch (Exception e) {
-            hideProcessingAnimation();
-            showAlert("Ошибка", "Ошибка: " + e.getMessage());
-            appendStatus("Ошибка: " + e.getMessage(), "ОШИБКА");
+    // Строка статуса по каждому документу пакета - по мере готовности
+    private void showDocumentResult(DocumentResult result) {
+        String name = result.getPdfFile().getName();
+        if (!result.isSuccess()) {
+            appendStatus(name + ": " + result.getError(), "ОШИБКА");
+            return;
+        }
+
+        LayoutPlan plan = result.getPlan();
+        String message = name + ": штампы на страницах " +
+                result.getPages().stream().map(String::valueOf).collect(Collectors.joining(", "));
+        if (plan.getContinuationPageCount() > 0) {
+            message += ", страниц продолжения " + plan.getContinuationPageCount();
+        }
+        if (result.getVerifications() != null) {
+            message += ", " + SignatureVerifier.summarize(result.getVerifications());
+        }
+        message += " (" + result.getDurationMs() + " мс)";
+        appendStatus(message, "УСПЕХ");
+        if (!plan.getUnplaced().isEmpty()) {
+            appendStatus(name + ": не удалось разместить штампов: " + plan.getUnplaced().size(), "ПРЕДУПРЕЖДЕНИЕ");
+        }
+        if (result.getVerifications() != null) {
+            for (Map.Entry<File, SignatureVerification> entry : result.getVerifications().entrySet()) {
+                if (!entry.getValue().isValid()) {
+                    appendStatus(name + ": " + entry.getKey().getName() + " - " + entry.getValue().getMessage(),
+                            "ПРЕДУПРЕЖДЕНИЕ");
+                }
+            }
+        }
+    }
+
+    private void showVerifications(Map<File, SignatureVerification> verifications) {
+        appendStatus("Проверка подписей по документу: " + SignatureVerifier.summarize(verifications),
+                verifications.values().stream().allMatch(SignatureVerification::isValid) ? "УСПЕХ" : "ПРЕДУПРЕЖДЕНИЕ");
+        for (Map.Entry<File, SignatureVerification> entry : verifications.entrySet()) {
+            appendStatus("  • " + entry.getKey().getName() + " - " + entry.getValue().getMessage(),
+                    entry.getValue().isValid() ? "ИНФО" : "ПРЕДУПРЕЖДЕНИЕ");
+        }
+    }
+
+    private void showPackageSummary(List<DocumentResult> results) {
+        long succeeded = results.stream().filter(DocumentResult::isSuccess).count();
+        long totalMs = results.stream().mapToLong(DocumentResult::getDurationMs).sum();
+        String summary = String.format("Подписано документов: %d из %d, с ошибками: %d (суммарно %d мс)",
+                succeeded, results.size(), results.size() - succeeded, totalMs);
+        appendStatus(summary, succeeded == results.size() ? "УСПЕХ" : "ПРЕДУПРЕЖДЕНИЕ");
+        showAlert(succeeded == results.size() ? "Успех" : "ПРЕДУПРЕЖДЕНИЕ", summary);
+    }
+
+    // Фоновый поток: разобранные подписи попадают в SignerInfoCache, ошибки возвращаются по файлам
+    private static Map<File, String> readSignatures(List<File> files, ProgressMonitor monitor) {
+        Map<File, String> errors = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.PARSE_SIGNATURES, i, files.size());
+            try {
+                PDFSigner.extractSignerRecord(files.get(i));
+            } catch (Exception e) {
+                errors.put(files.get(i), e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    private static class SignPreparation {
+        final int pageCount;
+        final Map<File, String> errors;
+        // Предложенные категории подписей без ошибок разбора
+        final List<SignerClassification> classifications;
+        // Подписи по документам пакета; null для одного документа
+        final SignatureMatch match;
+
+        SignPreparation(int pageCount, Map<File, String> errors, List<SignerClassification> classifications,
+                        SignatureMatch match) {
+            this.pageCount = pageCount;
+            this.errors = errors;
+            this.classifications = classifications;
+            this.match = match;
         }
     }
 
@@ -525,65 +819,79 @@ public class MainController {
             return;
         }
 
-        try {
-            showProcessingAnimation();
-
-            List<String> signers = sigFiles.stream()
-                    .map(sigFile -> {
-                        try {
-                            String signerInfo = PDFSigner.extractSignerInfo(sigFile);
-                            SignatureDetails details = PDFSigner.parseSignatureFromText(signerInfo);
-                            StringBuilder sb = new StringBuilder();
-                            if (!details.getPosition().isEmpty()) {
-                                sb.append(details.getPosition());
-                            }
-                            if (!details.getCompany().isEmpty()) {
-                                if (sb.length() > 0) sb.append(", ");
-                                sb.append(details.getCompany());
-                            }
-                            if (!details.getFullName().isEmpty()) {
-                                if (sb.length() > 0) sb.append(" - ");
-                                sb.append(details.getFullName());
-                            }
-                            return sb.toString();
-                        } catch (Exception e) {
-                            return sigFile.getName() + " (ошибка чтения)";
-                        }
-                    })
-                    .collect(Collectors.toList());
-
-            Optional<PDFAreaSelector.SelectedArea> selectedArea =
-                    new PDFAreaSelector(protocolPdfFile, settings.get().isAddBlankPage())
-                            .selectArea(primaryStage);
+        if (isJobRunning()) {
+            return;
+        }
 
-            if (!selectedArea.isPresent()) {
-                appendStatus("Отменено размещение протокола", "ИНФО");
-                hideProcessingAnimation();
-                return;
+        List<File> files = new ArrayList<>(sigFiles);
+        ProtocolSettings protocolSettings = settings.get();
+        PDFAreaSelector selector = new PDFAreaSelector(protocolPdfFile, protocolSettings.isAddBlankPage());
+        showProcessingAnimation();
+
+        // Документ для окна выбора открывается в фоне; при отмене он закрывается следующей операцией
+        // Подписи проверяются по исходному документу, если протокол добавляется в результат программы
+        BackgroundJob<List<String>> job = runJob("Подготовка протокола", monitor -> {
+            Map<File, SignatureVerification> verifications =
+                    SignatureVerifier.verify(SignatureVerifier.findSignedOriginal(protocolPdfFile), files, monitor);
+            List<String> signers = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                monitor.checkCancelled();
+                monitor.phase(ProgressMonitor.Phase.PARSE_SIGNATURES, i, files.size());
+                try {
+                    signers.add(PDFSigner.formatSignerForProtocol(PDFSigner.extractSignerInfo(files.get(i)),
+                            verifications.get(files.get(i))));
+                } catch (Exception e) {
+                    signers.add(files.get(i).getName() + " (ошибка чтения)");
+                }
             }
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.LOAD, 0, 0);
+            selector.open();
+            return signers;
+        }, signers -> placeProtocol(protocolPdfFile, defaultDocType, protocolSettings, selector, signers),
+                "Ошибка при создании протокола");
+        job.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, e -> closeSelector(selector));
+        job.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, e -> closeSelector(selector));
+    }
+
+    private void placeProtocol(File protocolPdfFile, String defaultDocType, ProtocolSettings settings,
+                               PDFAreaSelector selector, List<String> signers) {
+        Optional<PDFAreaSelector.SelectedArea> selectedArea = selector.selectArea(primaryStage);
+        closeSelector(selector);
+
+        if (!selectedArea.isPresent()) {
+            appendStatus("Отменено размещение протокола", "ИНФО");
+            hideProcessingAnimation();
+            return;
+        }
 
-            Optional<ProtocolData> protocolData = UIUtils.showProtocolInputDialog(
-                    defaultDocType, signers);
-
-            if (protocolData.isPresent()) {
-                PDFSigner.createProtocol(
-                        protocolPdfFile,
-                        protocolData.get(),
-                        selectedArea.get(),
-                        employeeSignatureFile,
-                        settings.get()
-                );
-
-                hideProcessingAnimation();
-                showAlert("Успех", "Протокол проверки успешно создан!");
-                appendStatus("Протокол добавлен в файл: " + protocolPdfFile.getName(), "УСПЕХ");
-                employeeSignatureFile = null;
-            }
-        } catch (Exception e) {
+        Optional<ProtocolData> protocolData = UIUtils.showProtocolInputDialog(defaultDocType, signers);
+        if (!protocolData.isPresent()) {
             hideProcessingAnimation();
-            showAlert("Ошибка", "Ошибка: " + e.getMessage());
-            appendStatus("Ошибка при создании протокола: " + e.getMessage(), "ОШИБКА");
+            return;
         }
+
+        File signatureImage = employeeSignatureFile;
+        runJob("Создание протокола", monitor -> {
+            PDFSigner.createProtocol(protocolPdfFile, protocolData.get(), selectedArea.get(),
+                    signatureImage, settings, monitor);
+            return null;
+        }, ignored -> {
+            showAlert("Успех", "Протокол проверки успешно создан!");
+            appendStatus("Протокол добавлен в файл: " + protocolPdfFile.getName(), "УСПЕХ");
+            employeeSignatureFile = null;
+        }, "Ошибка при создании протокола");
+    }
+
+    // Закрытие документа окна выбора в очереди фоновых операций
+    private void closeSelector(PDFAreaSelector selector) {
+        jobs.execute(() -> {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Ошибка закрытия документа: " + e.getMessage());
+            }
+        });
     }
 
     // Упрощенные анимации
@@ -650,48 +958,7 @@ public class MainController {
 
     // Упрощенный парсинг XML файла доверенности
     private ProxyInfo parseProxyFile(File proxyFile) throws Exception {
-        String content = new String(Files.readAllBytes(proxyFile.toPath()));
-
-        String number = extractXmlValue(content, "НомДовер");
-        String issueDate = extractXmlValue(content, "ДатаВыдДовер");
-        String expiryDate = extractXmlValue(content, "СрокДейст");
-
-        if (number.isEmpty()) {
-            throw new IllegalArgumentException("Не найден номер доверенности");
-        }
-        if (issueDate.isEmpty()) {
-            throw new IllegalArgumentException("Не найдена дата выдачи доверенности");
-        }
-        if (expiryDate.isEmpty()) {
-            throw new IllegalArgumentException("Не найден срок действия доверенности");
-        }
-
-        String fullName = extractFullNameFromXml(content);
-
-        return new ProxyInfo(number, issueDate, expiryDate, fullName);
-    }
-
-    private String extractXmlValue(String xmlContent, String attributeName) {
-        String pattern = attributeName + "=\"([^\"]*)\"";
-        java.util.regex.Pattern regex = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher matcher = regex.matcher(xmlContent);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return "";
-    }
-
-    private String extractFullNameFromXml(String xmlContent) {
-        if (xmlContent.contains("ФИО")) {
-            String lastName = extractXmlValue(xmlContent, "Фамилия");
-            String firstName = extractXmlValue(xmlContent, "Имя");
-            String middleName = extractXmlValue(xmlContent, "Отчество");
-
-            if (!lastName.isEmpty() || !firstName.isEmpty() || !middleName.isEmpty()) {
-                return String.format("%s %s %s", lastName, firstName, middleName).trim();
-            }
-        }
-        return "";
+        return ProxyFileParser.parse(proxyFile);
     }
 
     // Методы для управления анимациями и предотвращения утечек памяти
@@ -701,6 +968,10 @@ public class MainController {
     }
 
     private void cleanupResources() {
+        if (currentJob != null) {
+            currentJob.cancel();
+        }
+
         for (Animation animation : activeAnimations) {
             if (animation != null) {
                 animation.stop();
@@ -722,6 +993,7 @@ public class MainController {
     // Метод для закрытия приложения и освобождения ресурсов
     public void shutdown() {
         cleanupResources();
+        jobs.shutdown();
 
         if (primaryStage != null) {
             primaryStage.close();
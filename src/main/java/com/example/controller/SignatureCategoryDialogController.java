@@ -8,8 +8,17 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
+import javafx.util.StringConverter;
+import javafx.scene.Node;
 import com.example.model.SignatureDetails;
-
+import com.example.model.SignerCategory;
+import com.example.model.SignerClassification;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class SignatureCategoryDialogController {
@@ -84,6 +93,108 @@ public class SignatureCategoryDialogController {
         return -1;
     }
 
+    /**
+     * Одно окно для всех подписей: категории, определенные уверенно,
+     * уже выбраны; для неоднозначных (SignerClassification.isAmbiguous)
+     * выбор нужно сделать, подсказка показывается в поле выбора.
+     * Пустой результат - пользователь отменил распределение.
+     */
+    public static Optional<Map<File, SignerCategory>> showSummaryDialog(List<SignerClassification> classifications,
+                                                                        String rightTitle, String additionalTitle) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Определение принадлежности подписей");
+        long ambiguous = classifications.stream().filter(SignerClassification::isAmbiguous).count();
+        dialog.setHeaderText(ambiguous == 0
+                ? "Категории всех подписей определены по сертификатам. Проверьте и подтвердите:"
+                : "Выберите категорию для отмеченных подписей (" + ambiguous + " из " + classifications.size() + "):");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(6);
+        grid.setPadding(new Insets(15));
+
+        List<ComboBox<SignerCategory>> choices = new ArrayList<>();
+        for (int row = 0; row < classifications.size(); row++) {
+            SignerClassification classification = classifications.get(row);
+
+            Label marker = new Label(classification.isAmbiguous() ? "!" : "✓");
+            marker.setStyle(classification.isAmbiguous() ? "-fx-text-fill: #c0392b; -fx-font-weight: bold;" : "");
+
+            Label owner = new Label(classification.getOwner());
+            owner.setWrapText(true);
+            owner.setMaxWidth(360);
+            owner.setTooltip(new Tooltip(classification.getSigFile().getName()));
+
+            ComboBox<SignerCategory> choice = new ComboBox<>();
+            choice.getItems().addAll(SignerCategory.BANK, SignerCategory.RIGHT, SignerCategory.ADDITIONAL);
+            choice.setConverter(new StringConverter<SignerCategory>() {
+                @Override
+                public String toString(SignerCategory category) {
+                    return category == null ? "" : categoryTitle(category, rightTitle, additionalTitle);
+                }
+
+                @Override
+                public SignerCategory fromString(String text) {
+                    return null;
+                }
+            });
+            if (classification.isAmbiguous()) {
+                choice.setPromptText("предложено: " +
+                        categoryTitle(classification.getCategory(), rightTitle, additionalTitle));
+            } else {
+                choice.setValue(classification.getCategory());
+            }
+            choices.add(choice);
+
+            Label reason = new Label(String.format("%.0f%% - %s",
+                    classification.getConfidence() * 100, classification.getReason()));
+            reason.setStyle("-fx-font-size: 10px; -fx-text-fill: #666666;");
+
+            grid.add(marker, 0, row);
+            grid.add(owner, 1, row);
+            grid.add(choice, 2, row);
+            grid.add(reason, 3, row);
+        }
+
+        ScrollPane scroll = new ScrollPane(grid);
+        scroll.setFitToWidth(true);
+        scroll.setPrefViewportHeight(Math.min(420, 34 * classifications.size() + 30));
+        dialog.getDialogPane().setContent(scroll);
+
+        ButtonType okButton = new ButtonType("Подтвердить", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(okButton, ButtonType.CANCEL);
+
+        // Подтвердить можно, только когда выбраны категории всех подписей
+        Node ok = dialog.getDialogPane().lookupButton(okButton);
+        Runnable updateOk = () -> ok.setDisable(choices.stream().anyMatch(c -> c.getValue() == null));
+        for (ComboBox<SignerCategory> choice : choices) {
+            choice.valueProperty().addListener((obs, oldValue, value) -> updateOk.run());
+        }
+        updateOk.run();
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (!result.isPresent() || result.get() != okButton) {
+            return Optional.empty();
+        }
+
+        Map<File, SignerCategory> categories = new LinkedHashMap<>();
+        for (int i = 0; i < classifications.size(); i++) {
+            categories.put(classifications.get(i).getSigFile(), choices.get(i).getValue());
+        }
+        return Optional.of(categories);
+    }
+
+    private static String categoryTitle(SignerCategory category, String rightTitle, String additionalTitle) {
+        switch (category) {
+            case BANK:
+                return "Подписант со стороны банка";
+            case RIGHT:
+                return rightTitle;
+            default:
+                return additionalTitle;
+        }
+    }
+
     private static SignatureDetails parseSignatureFromText(String ownerLine) {
         SignatureDetails details = new SignatureDetails();
         String[] lines = ownerLine.split("\n");
@@ -0,0 +1,41 @@
+package com.example.model;
+
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
+
+// Результат построения и проверки цепочки сертификата до доверенного корневого
+public class ChainValidation {
+    public enum Status {
+        // Цепочка до доверенного сертификата построена, подписи и сроки действия в порядке
+        VALID,
+        // Цепочку нельзя построить: нет сертификата издателя или корневой не в доверенных
+        UNTRUSTED,
+        // Цепочка построена, но нарушена: подпись, срок действия или ограничения УЦ
+        INVALID
+    }
+
+    private final Status status;
+    // От сертификата подписанта к корневому; при ошибке - построенная часть
+    private final List<X509Certificate> chain;
+    private final String message;
+
+    public ChainValidation(Status status, List<X509Certificate> chain, String message) {
+        this.status = status;
+        this.chain = Collections.unmodifiableList(chain);
+        this.message = message;
+    }
+
+    public Status getStatus() { return status; }
+    public List<X509Certificate> getChain() { return chain; }
+    public String getMessage() { return message; }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.model;
+
+import java.util.Collections;
+import java.util.List;
+
+// Колонка штампов на странице: заголовок и размещенные под ним штампы
+public class ColumnPlacement {
+    public enum Column { BANK, RIGHT, ADDITIONAL }
+
+    private final Column column;
+    private final String title;
+    private final float x;
+    private final float titleY;
+    private final float width;
+    private final List<StampPlacement> stamps;
+
+    public ColumnPlacement(Column column, String title, float x, float titleY, float width,
+                           List<StampPlacement> stamps) {
+        this.column = column;
+        this.title = title;
+        this.x = x;
+        this.titleY = titleY;
+        this.width = width;
+        this.stamps = Collections.unmodifiableList(stamps);
+    }
+
+    public Column getColumn() { return column; }
+    public String getTitle() { return title; }
+    public float getX() { return x; }
+    public float getTitleY() { return titleY; }
+    public float getWidth() { return width; }
+    public List<StampPlacement> getStamps() { return stamps; }
+}
@@ -0,0 +1,46 @@
+package com.example.model;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+// Результат подписания одного PDF в режиме пакета документов
+public class DocumentResult {
+    private final File pdfFile;
+    private final List<Integer> pages;
+    private final LayoutPlan plan;
+    private final String error;
+    private final long durationMs;
+    // Результаты проверки подписей по документу; null - подписи не проверялись
+    private final Map<File, SignatureVerification> verifications;
+
+    private DocumentResult(File pdfFile, List<Integer> pages, LayoutPlan plan, String error, long durationMs,
+                           Map<File, SignatureVerification> verifications) {
+        this.pdfFile = pdfFile;
+        this.pages = pages;
+        this.plan = plan;
+        this.error = error;
+        this.durationMs = durationMs;
+        this.verifications = verifications;
+    }
+
+    public static DocumentResult success(File pdfFile, List<Integer> pages, LayoutPlan plan, long durationMs,
+                                         Map<File, SignatureVerification> verifications) {
+        return new DocumentResult(pdfFile, pages, plan, null, durationMs, verifications);
+    }
+
+    public static DocumentResult failure(File pdfFile, String error, long durationMs) {
+        return new DocumentResult(pdfFile, null, null, error, durationMs, null);
+    }
+
+    public File getPdfFile() { return pdfFile; }
+    public List<Integer> getPages() { return pages; }
+    public LayoutPlan getPlan() { return plan; }
+    public String getError() { return error; }
+    public long getDurationMs() { return durationMs; }
+    public Map<File, SignatureVerification> getVerifications() { return verifications; }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * План размещения штампов по всему документу: запрошенные страницы,
+ * страницы продолжения и штампы, которые не помещаются даже на пустую страницу.
+ */
+public class LayoutPlan {
+    private final int sourcePageCount;
+    private final List<PagePlan> pages;
+    private final List<SignerRecord> unplaced;
+
+    public LayoutPlan(int sourcePageCount, List<PagePlan> pages, List<SignerRecord> unplaced) {
+        this.sourcePageCount = sourcePageCount;
+        this.pages = Collections.unmodifiableList(pages);
+        this.unplaced = Collections.unmodifiableList(unplaced);
+    }
+
+    public int getSourcePageCount() { return sourcePageCount; }
+    public List<PagePlan> getPages() { return pages; }
+    public List<SignerRecord> getUnplaced() { return unplaced; }
+
+    public int getContinuationPageCount() {
+        int count = 0;
+        for (PagePlan page : pages) {
+            if (page.isContinuation()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getStampCount() {
+        int count = 0;
+        for (PagePlan page : pages) {
+            count += page.getStampCount();
+        }
+        return count;
+    }
+
+    public String getSummary() {
+        String summary = String.format("страниц со штампами %d, страниц продолжения %d, штампов %d",
+                pages.size() - getContinuationPageCount(), getContinuationPageCount(), getStampCount());
+        if (!unplaced.isEmpty()) {
+            summary += ", не размещено " + unplaced.size();
+        }
+        return summary;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getSummary());
+        for (PagePlan page : pages) {
+            sb.append('\n').append("  ").append(page);
+        }
+        for (SignerRecord record : unplaced) {
+            sb.append('\n').append("  Не размещен: ").append(record.getFullName());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.model;
+
+import java.util.List;
+
+/**
+ * План одной страницы со штампами. Запрошенная страница документа имеет
+ * continuation = 0; не поместившиеся штампы переносятся на страницы
+ * продолжения (1, 2, ...), которые вставляются сразу после нее.
+ */
+public class PagePlan {
+    private final int pageNumber;
+    private final int continuation;
+    private final float pageWidth;
+    private final float pageHeight;
+    private final List<ColumnPlacement> columns;
+
+    public PagePlan(int pageNumber, int continuation, float pageWidth, float pageHeight,
+                    List<ColumnPlacement> columns) {
+        this.pageNumber = pageNumber;
+        this.continuation = continuation;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.columns = columns;
+    }
+
+    // Номер страницы исходного документа (с 1), к которой относится план
+    public int getPageNumber() { return pageNumber; }
+    public int getContinuation() { return continuation; }
+    public boolean isContinuation() { return continuation > 0; }
+    public float getPageWidth() { return pageWidth; }
+    public float getPageHeight() { return pageHeight; }
+    public List<ColumnPlacement> getColumns() { return columns; }
+
+    public int getStampCount() {
+        int count = 0;
+        for (ColumnPlacement column : columns) {
+            count += column.getStamps().size();
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Страница ").append(pageNumber);
+        if (isContinuation()) {
+            sb.append(" (продолжение ").append(continuation).append(')');
+        }
+        sb.append(String.format(" %.0fx%.0f:", pageWidth, pageHeight));
+        for (ColumnPlacement column : columns) {
+            sb.append(' ').append(column.getColumn()).append('=').append(column.getStamps().size());
+        }
+        return sb.toString();
+    }
+}
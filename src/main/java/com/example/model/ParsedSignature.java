@@ -0,0 +1,32 @@
+package com.example.model;
+
+import java.security.cert.X509Certificate;
+import java.util.Date;
+
+// Результат разбора файла подписи (.sig)
+public class ParsedSignature {
+    private final String digest;
+    private final SignerCertificate certificate;
+    private final Date signingTime;
+    private final SignerRecord record;
+    // Сертификат издателя из файла подписи или null, если его там нет
+    private final X509Certificate issuer;
+
+    public ParsedSignature(String digest, SignerCertificate certificate, Date signingTime, SignerRecord record,
+                           X509Certificate issuer) {
+        this.digest = digest;
+        this.certificate = certificate;
+        this.signingTime = signingTime;
+        this.record = record;
+        this.issuer = issuer;
+    }
+
+    public String getDigest() { return digest; }
+    public SignerCertificate getCertificate() { return certificate; }
+    public Date getSigningTime() { return signingTime; }
+    public X509Certificate getIssuer() { return issuer; }
+
+    // Текст штампа: сведения о подписи и владельце сертификата
+    public String getSignerInfo() { return record.getText(); }
+    public SignerRecord getRecord() { return record; }
+}
@@ -2,6 +2,12 @@ package com.example.model;
 
 public class ProtocolSettings {
     private boolean addBlankPage;
+    // Дописывать изменения к исходному файлу (инкрементальное обновление) вместо полной перезаписи
+    private boolean incrementalSave = true;
+    // Сдвигать протокол с выбранного места, если он ложится на содержимое страницы
+    private boolean avoidContent;
+    // Место протокола на странице выбирается автоматически (выбранная точка не используется)
+    private boolean autoPlace;
 
     public ProtocolSettings(boolean addBlankPage) {
         this.addBlankPage = addBlankPage;
@@ -14,4 +20,28 @@ public class ProtocolSettings {
     public void setAddBlankPage(boolean addBlankPage) {
         this.addBlankPage = addBlankPage;
     }
-}
\ No newline at end of file
+
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    public void setIncrementalSave(boolean incrementalSave) {
+        this.incrementalSave = incrementalSave;
+    }
+
+    public boolean isAvoidContent() {
+        return avoidContent;
+    }
+
+    public void setAvoidContent(boolean avoidContent) {
+        this.avoidContent = avoidContent;
+    }
+
+    public boolean isAutoPlace() {
+        return autoPlace;
+    }
+
+    public void setAutoPlace(boolean autoPlace) {
+        this.autoPlace = autoPlace;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.model;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+// Состояние сертификата по спискам отзыва (CRL) или ответу OCSP
+public class RevocationStatus {
+    public enum Status {
+        // Сертификата нет в списке отзыва издателя
+        GOOD,
+        // Сертификат в списке отзыва
+        REVOKED,
+        // Списка отзыва издателя нет или он не читается
+        UNKNOWN
+    }
+
+    // Откуда состояние: список отзыва или ответ OCSP
+    public enum Method {
+        CRL,
+        OCSP
+    }
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm").withZone(ZoneId.systemDefault());
+
+    private final Status status;
+    private final Method method;
+    private final Date revocationDate;
+    private final String reason;
+    private final Date thisUpdate;
+    private final Date nextUpdate;
+    private final String source;
+
+    private RevocationStatus(Status status, Method method, Date revocationDate, String reason,
+                             Date thisUpdate, Date nextUpdate, String source) {
+        this.status = status;
+        this.method = method;
+        this.revocationDate = revocationDate;
+        this.reason = reason;
+        this.thisUpdate = thisUpdate;
+        this.nextUpdate = nextUpdate;
+        this.source = source;
+    }
+
+    // thisUpdate, nextUpdate - самого свежего списка отзыва или ответа OCSP; nextUpdate может быть null
+    public static RevocationStatus good(Method method, Date thisUpdate, Date nextUpdate, String source) {
+        return new RevocationStatus(Status.GOOD, method, null, null, thisUpdate, nextUpdate, source);
+    }
+
+    // reason - причина отзыва или null
+    public static RevocationStatus revoked(Method method, Date revocationDate, String reason, String source) {
+        return new RevocationStatus(Status.REVOKED, method, revocationDate, reason, null, null, source);
+    }
+
+    public static RevocationStatus unknown(Method method, String reason) {
+        return new RevocationStatus(Status.UNKNOWN, method, null, reason, null, null, null);
+    }
+
+    public Status getStatus() { return status; }
+    public Method getMethod() { return method; }
+    public Date getRevocationDate() { return revocationDate; }
+    public String getReason() { return reason; }
+    public Date getThisUpdate() { return thisUpdate; }
+    public Date getNextUpdate() { return nextUpdate; }
+    public String getSource() { return source; }
+
+    // Отозван не позже time; time == null - отозван вообще
+    public boolean isRevokedAt(Date time) {
+        return status == Status.REVOKED && (time == null || !revocationDate.after(time));
+    }
+
+    // Срок следующего выпуска списка отзыва прошел
+    public boolean isStale(Date now) {
+        return nextUpdate != null && nextUpdate.before(now);
+    }
+
+    public String getMessage() {
+        switch (status) {
+            case GOOD:
+                return "сертификат не отозван (" + method + " от " + DATE_FORMAT.format(thisUpdate.toInstant()) +
+                        (isStale(new Date()) ? ", срок обновления истек" : "") + ")";
+            case REVOKED:
+                return "сертификат отозван " + DATE_TIME_FORMAT.format(revocationDate.toInstant()) +
+                        (reason != null ? " (" + reason + ")" : "") + " по " + method;
+            default:
+                return "отзыв по " + method + " не проверен: " + reason;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сопоставление файлов подписей с документами пакета по хэшу документа
+ * (атрибут messageDigest подписи). Подпись, хэш которой не совпал ни с
+ * одним документом, попадает в unmatched.
+ */
+public class SignatureMatch {
+    // Документ -> его подписи, в порядке документов и подписей
+    private final Map<File, List<File>> byDocument;
+    private final List<File> unmatched;
+
+    public SignatureMatch(List<File> pdfFiles) {
+        this.byDocument = new LinkedHashMap<>();
+        for (File pdfFile : pdfFiles) {
+            byDocument.put(pdfFile, new ArrayList<>());
+        }
+        this.unmatched = new ArrayList<>();
+    }
+
+    public void add(File pdfFile, File sigFile) {
+        byDocument.get(pdfFile).add(sigFile);
+    }
+
+    public void addUnmatched(File sigFile) {
+        unmatched.add(sigFile);
+    }
+
+    public List<File> getSignatures(File pdfFile) {
+        List<File> signatures = byDocument.get(pdfFile);
+        return signatures != null ? Collections.unmodifiableList(signatures) : Collections.emptyList();
+    }
+
+    public List<File> getUnmatched() {
+        return Collections.unmodifiableList(unmatched);
+    }
+
+    // Хотя бы одна подпись сопоставлена с документом
+    public boolean hasMatches() {
+        return byDocument.values().stream().anyMatch(signatures -> !signatures.isEmpty());
+    }
+
+    /**
+     * Распределение по колонкам только с подписями этого документа; порядок
+     * подписей внутри колонок - как в исходном распределении.
+     */
+    public SignatureDistribution distributionFor(File pdfFile, SignatureDistribution distribution) {
+        Set<File> own = new HashSet<>(getSignatures(pdfFile));
+        SignatureDistribution result = new SignatureDistribution();
+        for (File file : distribution.bankSigFiles) {
+            if (own.contains(file)) {
+                result.bankSigFiles.add(file);
+            }
+        }
+        for (File file : distribution.rightSigFiles) {
+            if (own.contains(file)) {
+                result.rightSigFiles.add(file);
+            }
+        }
+        for (File file : distribution.additionalSigFiles) {
+            if (own.contains(file)) {
+                result.additionalSigFiles.add(file);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<File, List<File>> entry : byDocument.entrySet()) {
+            if (result.length() > 0) {
+                result.append(", ");
+            }
+            result.append(entry.getKey().getName()).append(" - ").append(entry.getValue().size());
+        }
+        if (!unmatched.isEmpty()) {
+            result.append(", не сопоставлено: ").append(unmatched.size());
+        }
+        return result.toString();
+    }
+}
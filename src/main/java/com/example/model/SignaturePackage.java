@@ -0,0 +1,41 @@
+package com.example.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// Пакет документов для пакетной обработки: PDF + подписи + доверенность
+public class SignaturePackage {
+    private final String name;
+    private final File directory;
+    private final List<File> pdfFiles = new ArrayList<>();
+    private final SignatureDistribution distribution = new SignatureDistribution();
+    private final Properties properties = new Properties();
+    private File proxyFile;
+
+    public SignaturePackage(String name, File directory) {
+        this.name = name;
+        this.directory = directory;
+    }
+
+    public String getName() { return name; }
+    public File getDirectory() { return directory; }
+    public List<File> getPdfFiles() { return pdfFiles; }
+    public SignatureDistribution getDistribution() { return distribution; }
+    public Properties getProperties() { return properties; }
+
+    public File getProxyFile() { return proxyFile; }
+    public void setProxyFile(File proxyFile) { this.proxyFile = proxyFile; }
+
+    public String getProperty(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    public boolean hasSignatures() {
+        return !distribution.bankSigFiles.isEmpty()
+                || !distribution.rightSigFiles.isEmpty()
+                || !distribution.additionalSigFiles.isEmpty();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.model;
+
+// Результат криптографической проверки отсоединенной подписи по документу
+public class SignatureVerification {
+    public enum Status {
+        // Подпись соответствует документу и сертификату
+        VALID,
+        // Документ изменен, подпись к другому документу или сертификат недействителен на момент подписания
+        INVALID,
+        // Подпись соответствует документу, но сертификат отозван до подписания
+        REVOKED,
+        // Подпись соответствует документу, но цепочка сертификата до доверенного корневого не подтверждена
+        UNTRUSTED,
+        // Проверить не удалось (поврежденный файл, неподдерживаемый алгоритм)
+        ERROR
+    }
+
+    private final Status status;
+    private final String message;
+
+    public SignatureVerification(Status status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public static SignatureVerification valid() {
+        return new SignatureVerification(Status.VALID, "подпись верна");
+    }
+
+    public Status getStatus() { return status; }
+    public String getMessage() { return message; }
+
+    public boolean isValid() {
+        return status == Status.VALID;
+    }
+
+    // Строка штампа
+    public String getStampLine() {
+        switch (status) {
+            case VALID:
+                return "Подпись проверена: верна";
+            case INVALID:
+                return "Подпись проверена: НЕ ВЕРНА";
+            case REVOKED:
+                return "Подпись проверена: сертификат ОТОЗВАН";
+            case UNTRUSTED:
+                return "Подпись проверена: сертификат НЕ ПОДТВЕРЖДЕН";
+            default:
+                return "Подпись не проверена";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
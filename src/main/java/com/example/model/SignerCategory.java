@@ -0,0 +1,8 @@
+package com.example.model;
+
+// Колонка штампа подписанта: банк, правая колонка (контрагент) или дополнительная (поручители, залогодатели)
+public enum SignerCategory {
+    BANK,
+    RIGHT,
+    ADDITIONAL
+}
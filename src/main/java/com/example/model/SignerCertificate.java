@@ -0,0 +1,27 @@
+package com.example.model;
+
+import java.security.cert.X509Certificate;
+
+// Сведения о сертификате подписанта (общие для всех подписей одним сертификатом)
+public class SignerCertificate {
+    private final X509Certificate certificate;
+    private final String serialNumber;
+    private final String validFrom;
+    private final String validTo;
+    private final String ownerInfo;
+
+    public SignerCertificate(X509Certificate certificate, String serialNumber,
+                             String validFrom, String validTo, String ownerInfo) {
+        this.certificate = certificate;
+        this.serialNumber = serialNumber;
+        this.validFrom = validFrom;
+        this.validTo = validTo;
+        this.ownerInfo = ownerInfo;
+    }
+
+    public X509Certificate getCertificate() { return certificate; }
+    public String getSerialNumber() { return serialNumber; }
+    public String getValidFrom() { return validFrom; }
+    public String getValidTo() { return validTo; }
+    public String getOwnerInfo() { return ownerInfo; }
+}
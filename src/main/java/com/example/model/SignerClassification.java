@@ -0,0 +1,42 @@
+package com.example.model;
+
+import java.io.File;
+
+/**
+ * Предварительная категория подписи по атрибутам сертификата:
+ * уверенность от 0 до 1 и правило, по которому категория выбрана.
+ * При уверенности ниже CONFIDENT решение остается за пользователем.
+ */
+public class SignerClassification {
+    public static final double CONFIDENT = 0.75;
+
+    private final File sigFile;
+    private final String owner;
+    private final SignerCategory category;
+    private final double confidence;
+    private final String reason;
+
+    public SignerClassification(File sigFile, String owner, SignerCategory category,
+                                double confidence, String reason) {
+        this.sigFile = sigFile;
+        this.owner = owner;
+        this.category = category;
+        this.confidence = confidence;
+        this.reason = reason;
+    }
+
+    public File getSigFile() { return sigFile; }
+    public String getOwner() { return owner; }
+    public SignerCategory getCategory() { return category; }
+    public double getConfidence() { return confidence; }
+    public String getReason() { return reason; }
+
+    public boolean isAmbiguous() {
+        return confidence < CONFIDENT;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s (%.0f%%, %s)", sigFile.getName(), category, confidence * 100, reason);
+    }
+}
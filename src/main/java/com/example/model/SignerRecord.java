@@ -0,0 +1,66 @@
+package com.example.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Неизменяемые сведения о подписанте для штампа: строки текста уже разбиты,
+ * ФИО и фамилия выделены, ширины строк посчитаны один раз при разборе подписи.
+ */
+public final class SignerRecord {
+    private static final String OWNER_PREFIX = "Владелец: ";
+
+    private final String text;
+    private final List<String> lines;
+    private final String fullName;
+    private final String surname;
+    // Ширины строк в 1/1000 кегля: первая строка - полужирным шрифтом, остальные - обычным
+    private final float[] lineWidths;
+
+    public SignerRecord(String text, float[] lineWidths) {
+        String[] split = text.split("\n");
+        if (lineWidths.length != split.length) {
+            throw new IllegalArgumentException("Число ширин не совпадает с числом строк");
+        }
+        this.text = text;
+        this.lines = Collections.unmodifiableList(Arrays.asList(split));
+        this.fullName = split[split.length - 1].replace(OWNER_PREFIX, "").trim();
+        this.surname = surnameOf(fullName);
+        this.lineWidths = lineWidths.clone();
+    }
+
+    // Фамилия - первое слово ФИО
+    public static String surnameOf(String fullName) {
+        if (fullName == null) {
+            return null;
+        }
+        String trimmed = fullName.trim();
+        int space = 0;
+        while (space < trimmed.length() && !Character.isWhitespace(trimmed.charAt(space))) {
+            space++;
+        }
+        return trimmed.substring(0, space);
+    }
+
+    public String getText() { return text; }
+    public List<String> getLines() { return lines; }
+    public int getLineCount() { return lines.size(); }
+    public String getLine(int index) { return lines.get(index); }
+    public String getFullName() { return fullName; }
+    public String getSurname() { return surname; }
+
+    // Ширина строки при заданном кегле
+    public float getLineWidth(int index, float fontSize) {
+        return lineWidths[index] / 1000 * fontSize;
+    }
+
+    public boolean hasSurname(String otherSurname) {
+        return otherSurname != null && surname.equalsIgnoreCase(otherSurname);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.model;
+
+// Положение одного штампа на странице (координаты левого нижнего угла, пункты PDF)
+public class StampPlacement {
+    private final SignerRecord record;
+    private final boolean hasProxyInfo;
+    private final float x;
+    private final float y;
+    private final float width;
+    private final float height;
+
+    public StampPlacement(SignerRecord record, boolean hasProxyInfo, float x, float y, float width, float height) {
+        this.record = record;
+        this.hasProxyInfo = hasProxyInfo;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public SignerRecord getRecord() { return record; }
+    public boolean hasProxyInfo() { return hasProxyInfo; }
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getWidth() { return width; }
+    public float getHeight() { return height; }
+}
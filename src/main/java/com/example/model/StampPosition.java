@@ -5,7 +5,8 @@ import java.util.List;
 public class StampPosition {
     private final SignatureInfo remaining;
 
-    public StampPosition(List<String> remainingLeft, List<String> remainingRight, List<String> remainingAdditional) {
+    public StampPosition(List<SignerRecord> remainingLeft, List<SignerRecord> remainingRight,
+                         List<SignerRecord> remainingAdditional) {
         this.remaining = new SignatureInfo();
         this.remaining.bankSignerInfos = remainingLeft;
         this.remaining.rightSignerInfos = remainingRight;
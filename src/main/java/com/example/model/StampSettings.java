@@ -0,0 +1,63 @@
+package com.example.model;
+
+public class StampSettings {
+    // Каждый уникальный штамп и заголовок колонки формируется один раз
+    // на документ как Form XObject и переиспользуется на всех страницах
+    private boolean useFormXObjects;
+    // Только построить план размещения, не изменяя и не сохраняя PDF
+    private boolean dryRun;
+    // Дописывать изменения к исходному файлу (инкрементальное обновление) вместо полной перезаписи
+    private boolean incrementalSave = true;
+    // Не накладывать штампы на текст, изображения и графику страницы
+    private boolean avoidContent;
+    // То же по изображению страницы с низким разрешением (учитываются и сканы, и заливки)
+    private boolean autoPlace;
+
+    public StampSettings(boolean useFormXObjects) {
+        this.useFormXObjects = useFormXObjects;
+    }
+
+    public static StampSettings defaults() {
+        return new StampSettings(true);
+    }
+
+    public boolean isUseFormXObjects() {
+        return useFormXObjects;
+    }
+
+    public void setUseFormXObjects(boolean useFormXObjects) {
+        this.useFormXObjects = useFormXObjects;
+    }
+
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    public void setIncrementalSave(boolean incrementalSave) {
+        this.incrementalSave = incrementalSave;
+    }
+
+    public boolean isAvoidContent() {
+        return avoidContent;
+    }
+
+    public void setAvoidContent(boolean avoidContent) {
+        this.avoidContent = avoidContent;
+    }
+
+    public boolean isAutoPlace() {
+        return autoPlace;
+    }
+
+    public void setAutoPlace(boolean autoPlace) {
+        this.autoPlace = autoPlace;
+    }
+}
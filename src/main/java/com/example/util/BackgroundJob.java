@@ -0,0 +1,54 @@
+package com.example.util;
+
+import javafx.concurrent.Task;
+
+/**
+ * Фоновая операция для графического интерфейса: выполняется вне потока
+ * JavaFX, этапы ProgressMonitor публикуются как message/progress задачи.
+ * Отмена кооперативная: задача не прерывается, а останавливается на
+ * ближайшей проверке; после начала сохранения отмена не принимается.
+ */
+public final class BackgroundJob<T> extends Task<T> implements ProgressMonitor {
+
+    public interface Work<T> {
+        T run(ProgressMonitor monitor) throws Exception;
+    }
+
+    private final Work<T> work;
+    private final Object cancelLock = new Object();
+    private boolean committed;
+
+    public BackgroundJob(String title, Work<T> work) {
+        this.work = work;
+        updateTitle(title);
+    }
+
+    @Override
+    protected T call() throws Exception {
+        return work.run(this);
+    }
+
+    @Override
+    public void phase(Phase phase, long done, long total) {
+        if (!phase.isCancellable()) {
+            synchronized (cancelLock) {
+                checkCancelled();
+                committed = true;
+            }
+        }
+        updateMessage(phase.getTitle());
+        if (total > 0) {
+            updateProgress(done, total);
+        } else {
+            updateProgress(-1, 1);
+        }
+    }
+
+    // Без прерывания потока: PDFBox не рассчитан на прерывание посреди чтения или записи
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (cancelLock) {
+            return !committed && super.cancel(false);
+        }
+    }
+}
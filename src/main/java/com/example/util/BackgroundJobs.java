@@ -0,0 +1,54 @@
+package com.example.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Поток для работы с PDF и подписями в графическом режиме.
+ *
+ * Операции выполняются по одной в порядке постановки, поэтому, например,
+ * закрытие документа всегда завершается до следующей операции с ним.
+ * Загрузка, разбор подписей и сохранение проверяют, что они вызваны
+ * не из потока JavaFX (checkNotFxThread).
+ */
+public final class BackgroundJobs {
+    private static volatile Thread fxThread;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Вызывается из потока JavaFX при запуске приложения
+    public static void registerFxThread() {
+        fxThread = Thread.currentThread();
+    }
+
+    // В пакетном режиме поток JavaFX не зарегистрирован и проверка ничего не делает
+    public static void checkNotFxThread(String operation) {
+        if (Thread.currentThread() == fxThread) {
+            throw new IllegalStateException(operation + " нельзя выполнять в потоке интерфейса");
+        }
+    }
+
+    public <T> BackgroundJob<T> submit(BackgroundJob<T> job) {
+        executor.execute(job);
+        return job;
+    }
+
+    // Служебное действие без отображения хода (например, закрытие документа)
+    public void execute(Runnable action) {
+        executor.execute(() -> {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.err.println("Ошибка фоновой операции: " + e.getMessage());
+            }
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,532 @@
+package com.example.util;
+
+import org.bouncycastle.asn1.ASN1BitString;
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1Enumerated;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1SequenceParser;
+import org.bouncycastle.asn1.ASN1StreamParser;
+import org.bouncycastle.asn1.ASN1TaggedObject;
+import org.bouncycastle.asn1.ASN1TaggedObjectParser;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentVerifier;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс одного списка отзыва (CRL) в файле, отображенном в память.
+ *
+ * CRL разбирается потоково (записи по одной, без дерева всего списка),
+ * серийные номера отозванных сертификатов сортируются и записываются
+ * массивами фиксированной ширины: номера, даты отзыва, причины. Перед
+ * двоичным поиском стоит фильтр Блума, поэтому поиск номера, которого в
+ * списке нет (обычный случай), - несколько обращений к памяти.
+ *
+ * Формат (big-endian): заголовок с размером и временем изменения CRL,
+ * датами выпуска, издателем (DER) и идентификатором его ключа (Authority
+ * Key Identifier CRL, может быть пустым), затем фильтр Блума (long[]),
+ * номера (count x width байт, без знака, дополнены нулями слева), даты
+ * отзыва (long[], мс) и причины (byte[], -1 - не указана).
+ *
+ * Подпись CRL в индекс не входит: она проверяется по исходному файлу
+ * ключом издателя (isSignedBy) один раз для каждого ключа.
+ */
+final class CrlIndex {
+    private static final int MAGIC = 0x4E43524C; // "NCRL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int SEQUENCE = 0x30;
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+    private static final int BLOOM_HASHES = 7;
+    static final byte NO_REASON = -1;
+    private static final Provider PROVIDER = new BouncyCastleProvider();
+
+    private final long sourceLength;
+    private final long sourceModified;
+    private final X500Name issuer;
+    // Authority Key Identifier CRL; пустой, если расширения нет
+    private final byte[] authorityKeyId;
+    private final long thisUpdate;
+    private final long nextUpdate;
+    private final int count;
+    private final int width;
+    private final int bloomWords;
+    private final int bloomHashes;
+    // Только абсолютные get: буфер читается из нескольких потоков
+    private final MappedByteBuffer buffer;
+    private final int bloomOffset;
+    private final int serialsOffset;
+    private final int datesOffset;
+    private final int reasonsOffset;
+    private final File source;
+    private final File file;
+    // Результат проверки подписи CRL по ключу издателя (DER ключа)
+    private final Map<ByteBuffer, Boolean> signatureChecks = new ConcurrentHashMap<>();
+
+    private CrlIndex(File source, File file, MappedByteBuffer buffer) throws IOException {
+        this.source = source;
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Неверный формат индекса CRL: " + file);
+        }
+        sourceLength = buffer.getLong(8);
+        sourceModified = buffer.getLong(16);
+        thisUpdate = buffer.getLong(24);
+        nextUpdate = buffer.getLong(32);
+        count = buffer.getInt(40);
+        width = buffer.getInt(44);
+        bloomWords = buffer.getInt(48);
+        bloomHashes = buffer.getInt(52);
+        int issuerLength = buffer.getInt(56);
+        int keyIdLength = buffer.getInt(60);
+        if (HEADER_SIZE + issuerLength + keyIdLength > buffer.capacity()) {
+            throw new IOException("Индекс CRL поврежден: " + file);
+        }
+
+        byte[] issuerDer = new byte[issuerLength];
+        buffer.get(HEADER_SIZE, issuerDer);
+        issuer = X500Name.getInstance(issuerDer);
+        authorityKeyId = new byte[keyIdLength];
+        buffer.get(HEADER_SIZE + issuerLength, authorityKeyId);
+
+        bloomOffset = HEADER_SIZE + issuerLength + keyIdLength;
+        serialsOffset = bloomOffset + bloomWords * 8;
+        datesOffset = serialsOffset + count * width;
+        reasonsOffset = datesOffset + count * 8;
+        if (reasonsOffset + count > buffer.capacity()) {
+            throw new IOException("Индекс CRL поврежден: " + file);
+        }
+    }
+
+    /**
+     * Индекс CRL из файла index, если он построен по текущей версии CRL;
+     * иначе индекс строится заново и записывается в index.
+     */
+    static CrlIndex load(File source, File index) throws IOException {
+        if (index.isFile()) {
+            try {
+                CrlIndex existing = open(source, index);
+                if (existing.isCurrent()) {
+                    return existing;
+                }
+            } catch (IOException e) {
+                System.err.println("Индекс CRL будет построен заново: " + e.getMessage());
+            }
+        }
+        build(source, index);
+        return open(source, index);
+    }
+
+    private static CrlIndex open(File source, File index) throws IOException {
+        try (FileChannel channel = FileChannel.open(index.toPath(), StandardOpenOption.READ)) {
+            return new CrlIndex(source, index, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Индекс построен по этой версии CRL (размер и время изменения совпадают)
+    boolean isCurrent() {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    File getSource() { return source; }
+    File getFile() { return file; }
+    X500Name getIssuer() { return issuer; }
+    // null - в CRL нет Authority Key Identifier
+    byte[] getAuthorityKeyId() { return authorityKeyId.length > 0 ? authorityKeyId.clone() : null; }
+    long getThisUpdate() { return thisUpdate; }
+    // -1 - дата следующего выпуска не указана
+    long getNextUpdate() { return nextUpdate; }
+    int size() { return count; }
+
+    /**
+     * Номер записи с этим серийным номером или -1. key - serialKey(номер).
+     */
+    int find(byte[] key) {
+        if (key.length > width || !mightContain(key)) {
+            return -1;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // CRL подписан этим ключом; файл читается заново только при первой проверке ключа
+    boolean isSignedBy(PublicKey key) {
+        return signatureChecks.computeIfAbsent(ByteBuffer.wrap(key.getEncoded()), k -> verifySignature(key));
+    }
+
+    long getRevocationDate(int entry) {
+        return buffer.getLong(datesOffset + entry * 8);
+    }
+
+    // Код причины отзыва (CRLReason) или NO_REASON
+    int getReason(int entry) {
+        return buffer.get(reasonsOffset + entry);
+    }
+
+    private boolean mightContain(byte[] key) {
+        long bits = (long) bloomWords * 64;
+        long h1 = hash(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < bloomHashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((buffer.getLong(bloomOffset + (int) (bit >>> 6) * 8) & (1L << (bit & 63))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Сравнение записи с ключом, дополненным нулями слева до width
+    private int compare(int entry, byte[] key) {
+        int base = serialsOffset + entry * width;
+        int padding = width - key.length;
+        for (int i = 0; i < width; i++) {
+            int stored = buffer.get(base + i) & 0xFF;
+            int wanted = i < padding ? 0 : key[i - padding] & 0xFF;
+            if (stored != wanted) {
+                return stored - wanted;
+            }
+        }
+        return 0;
+    }
+
+    // Серийный номер без ведущего нулевого байта знака
+    static byte[] serialKey(BigInteger serial) {
+        byte[] bytes = serial.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            return Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return bytes;
+    }
+
+    // FNV-1a
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Перемешивание SplitMix64 - второй хэш для двойного хэширования
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static void build(File source, File index) throws IOException {
+        long sourceLength = source.length();
+        long sourceModified = source.lastModified();
+        Entries entries = new Entries();
+        X500Name issuer;
+        long thisUpdate;
+        long nextUpdate = -1;
+        byte[] authorityKeyId = new byte[0];
+
+        try (InputStream in = openCrl(source)) {
+            ASN1StreamParser parser = new ASN1StreamParser(in);
+            ASN1SequenceParser certificateList = (ASN1SequenceParser) parser.readObject();
+            ASN1SequenceParser tbs = (ASN1SequenceParser) certificateList.readObject();
+
+            ASN1Encodable field = tbs.readObject();
+            if (field instanceof ASN1Integer) {
+                field = tbs.readObject();
+            }
+            // Алгоритм подписи
+            field.toASN1Primitive();
+            issuer = X500Name.getInstance(tbs.readObject().toASN1Primitive());
+            thisUpdate = Time.getInstance(tbs.readObject().toASN1Primitive()).getDate().getTime();
+
+            field = tbs.readObject();
+            if (field instanceof ASN1UTCTime || field instanceof ASN1GeneralizedTime) {
+                nextUpdate = Time.getInstance(field).getDate().getTime();
+                field = tbs.readObject();
+            }
+            if (field instanceof ASN1SequenceParser) {
+                ASN1SequenceParser revoked = (ASN1SequenceParser) field;
+                ASN1Encodable item;
+                while ((item = revoked.readObject()) != null) {
+                    entries.add(TBSCertList.CRLEntry.getInstance(item.toASN1Primitive()));
+                }
+                field = tbs.readObject();
+            }
+            // Расширения CRL: [0] EXPLICIT Extensions
+            if (field instanceof ASN1TaggedObjectParser && ((ASN1TaggedObjectParser) field).getTagNo() == 0) {
+                Extensions extensions = Extensions.getInstance(
+                        ASN1TaggedObject.getInstance(field.toASN1Primitive()), true);
+                AuthorityKeyIdentifier aki = AuthorityKeyIdentifier.fromExtensions(extensions);
+                if (aki != null && aki.getKeyIdentifier() != null) {
+                    authorityKeyId = aki.getKeyIdentifier();
+                }
+            }
+        } catch (ClassCastException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Файл не является списком отзыва: " + source.getName(), e);
+        }
+
+        byte[] issuerDer = issuer.getEncoded();
+        int width = entries.width();
+        int[] order = entries.sortedOrder(width);
+        int bloomWords = Math.max(1, (int) (((long) entries.size * BLOOM_BITS_PER_ENTRY + 63) / 64));
+        long[] bloom = new long[bloomWords];
+        long bits = (long) bloomWords * 64;
+        for (int i = 0; i < entries.size; i++) {
+            long h1 = hash(entries.serials[i]);
+            long h2 = mix(h1) | 1;
+            for (int k = 0; k < BLOOM_HASHES; k++) {
+                long bit = Long.remainderUnsigned(h1 + k * h2, bits);
+                bloom[(int) (bit >>> 6)] |= 1L << (bit & 63);
+            }
+        }
+
+        // Запись во временный файл и замена: открытый индекс другого процесса не портится
+        File parent = index.getParentFile();
+        File temp = File.createTempFile("crl", ".tmp", parent);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(sourceLength);
+                out.writeLong(sourceModified);
+                out.writeLong(thisUpdate);
+                out.writeLong(nextUpdate);
+                out.writeInt(entries.size);
+                out.writeInt(width);
+                out.writeInt(bloomWords);
+                out.writeInt(BLOOM_HASHES);
+                out.writeInt(issuerDer.length);
+                out.writeInt(authorityKeyId.length);
+                out.write(issuerDer);
+                out.write(authorityKeyId);
+                for (long word : bloom) {
+                    out.writeLong(word);
+                }
+                for (int entry : order) {
+                    byte[] serial = entries.serials[entry];
+                    for (int i = serial.length; i < width; i++) {
+                        out.writeByte(0);
+                    }
+                    out.write(serial);
+                }
+                for (int entry : order) {
+                    out.writeLong(entries.dates[entry]);
+                }
+                for (int entry : order) {
+                    out.writeByte(entries.reasons[entry]);
+                }
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Подпись CRL (CertificateList: tbsCertList, алгоритм, подпись) ключом
+     * key. Файл читается дважды потоково: сначала алгоритм и подпись за
+     * tbsCertList, затем tbsCertList - в проверку подписи.
+     */
+    private boolean verifySignature(PublicKey key) {
+        try {
+            AlgorithmIdentifier algorithm;
+            byte[] signature;
+            try (InputStream in = openCrl(source)) {
+                readSequenceHeader(in, OutputStream.nullOutputStream());
+                in.skipNBytes(readSequenceHeader(in, OutputStream.nullOutputStream()));
+                ASN1InputStream rest = new ASN1InputStream(in);
+                algorithm = AlgorithmIdentifier.getInstance(rest.readObject());
+                signature = ASN1BitString.getInstance(rest.readObject()).getOctets();
+            }
+            ContentVerifier verifier = new JcaContentVerifierProviderBuilder().setProvider(PROVIDER)
+                    .build(key).get(algorithm);
+            try (InputStream in = openCrl(source); OutputStream out = verifier.getOutputStream()) {
+                readSequenceHeader(in, OutputStream.nullOutputStream());
+                long remaining = readSequenceHeader(in, out);
+                byte[] chunk = new byte[1 << 16];
+                while (remaining > 0) {
+                    int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                    if (read < 0) {
+                        return false;
+                    }
+                    out.write(chunk, 0, read);
+                    remaining -= read;
+                }
+            }
+            if (!verifier.verify(signature)) {
+                System.err.println("Список отзыва " + source.getName() + " подписан не ключом издателя, не учитывается");
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            System.err.println("Подпись списка отзыва " + source.getName() + " не проверена: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Заголовок SEQUENCE (тег и длина DER), байты заголовка - в copy; возвращает длину содержимого
+    private static long readSequenceHeader(InputStream in, OutputStream copy) throws IOException {
+        int tag = in.read();
+        if (tag != SEQUENCE) {
+            throw new IOException("ожидался SEQUENCE");
+        }
+        copy.write(tag);
+        int first = in.read();
+        if (first < 0) {
+            throw new IOException("неожиданный конец файла");
+        }
+        copy.write(first);
+        if (first < 0x80) {
+            return first;
+        }
+        int octets = first & 0x7F;
+        if (octets == 0 || octets > 4) {
+            throw new IOException("неподдерживаемая длина DER");
+        }
+        long length = 0;
+        for (int i = 0; i < octets; i++) {
+            int next = in.read();
+            if (next < 0) {
+                throw new IOException("неожиданный конец файла");
+            }
+            copy.write(next);
+            length = (length << 8) | next;
+        }
+        return length;
+    }
+
+    // DER или PEM (-----BEGIN X509 CRL-----)
+    private static InputStream openCrl(File source) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(source.toPath()), 1 << 16);
+        in.mark(1);
+        int first = in.read();
+        in.reset();
+        if (first != '-') {
+            return in;
+        }
+        try (InputStream pem = in) {
+            String text = new String(pem.readAllBytes(), StandardCharsets.US_ASCII);
+            String body = text.replaceAll("-----[^-]+-----", "");
+            return new ByteArrayInputStream(Base64.getMimeDecoder().decode(body));
+        }
+    }
+
+    // Записи CRL в порядке файла, массивы растут по мере разбора
+    private static final class Entries {
+        byte[][] serials = new byte[1024][];
+        long[] dates = new long[1024];
+        byte[] reasons = new byte[1024];
+        int size;
+
+        void add(TBSCertList.CRLEntry entry) {
+            byte reason = NO_REASON;
+            Extensions extensions = entry.getExtensions();
+            Extension reasonCode = extensions != null ? extensions.getExtension(Extension.reasonCode) : null;
+            if (reasonCode != null) {
+                reason = (byte) ASN1Enumerated.getInstance(reasonCode.getParsedValue()).intValueExact();
+                // Запись разностного CRL о снятии приостановки - сертификат не отозван
+                if (reason == CRLReason.removeFromCRL) {
+                    return;
+                }
+            }
+            if (size == serials.length) {
+                serials = Arrays.copyOf(serials, size * 2);
+                dates = Arrays.copyOf(dates, size * 2);
+                reasons = Arrays.copyOf(reasons, size * 2);
+            }
+            serials[size] = serialKey(entry.getUserCertificate().getValue());
+            dates[size] = entry.getRevocationDate().getDate().getTime();
+            reasons[size] = reason;
+            size++;
+        }
+
+        int width() {
+            int width = 1;
+            for (int i = 0; i < size; i++) {
+                width = Math.max(width, serials[i].length);
+            }
+            return width;
+        }
+
+        // Порядок записей по ключам, дополненным нулями до width (как в файле индекса):
+        // поразрядная сортировка подсчетом, от младшего байта к старшему
+        int[] sortedOrder(int width) {
+            int[] order = new int[size];
+            int[] buffer = new int[size];
+            int[] counts = new int[257];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            for (int position = width - 1; position >= 0; position--) {
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < size; i++) {
+                    counts[paddedByte(order[i], position, width) + 1]++;
+                }
+                for (int b = 0; b < 256; b++) {
+                    counts[b + 1] += counts[b];
+                }
+                for (int i = 0; i < size; i++) {
+                    int entry = order[i];
+                    buffer[counts[paddedByte(entry, position, width)]++] = entry;
+                }
+                int[] sorted = buffer;
+                buffer = order;
+                order = sorted;
+            }
+            return order;
+        }
+
+        private int paddedByte(int entry, int position, int width) {
+            byte[] serial = serials[entry];
+            int index = position - (width - serial.length);
+            return index < 0 ? 0 : serial[index] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.util;
+
+import com.example.model.RevocationStatus;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.X509Certificate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Локальное хранилище списков отзыва (CRL) для проверки без сети.
+ *
+ * Файлы *.crl (DER или PEM) из каталога разбираются один раз в индексы
+ * (CrlIndex) в каталоге индексов; при следующем запуске индекс
+ * открывается отображением в память без разбора CRL. Каталог
+ * просматривается заново не чаще refreshInterval: перестраиваются только
+ * новые и измененные файлы, удаленные исключаются.
+ *
+ * CRL сопоставляется с сертификатом по имени издателя. Если известен
+ * сертификат издателя, учитываются только CRL, подписанные его ключом;
+ * иначе - CRL с тем же идентификатором ключа издателя (Authority Key
+ * Identifier), что и у сертификата. Просроченный CRL (nextUpdate прошел)
+ * подтверждает отзыв, но не действительность: сертификат, которого в нем
+ * нет, - в состоянии UNKNOWN. Косвенные CRL (certificateIssuer) не
+ * поддерживаются.
+ *
+ * Хранилище по умолчанию задается свойствами nbdsig.crl.dir,
+ * nbdsig.crl.indexDir (по умолчанию - подкаталог .index) и
+ * nbdsig.crl.refreshSeconds; без nbdsig.crl.dir отзыв не проверяется.
+ */
+public final class CrlStore {
+    private static final long DEFAULT_REFRESH_SECONDS = 60;
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+
+    private static volatile CrlStore defaultStore = fromSystemProperties();
+
+    private final File crlDir;
+    private final File indexDir;
+    private final long refreshIntervalMs;
+
+    // Изменяются только под монитором хранилища
+    private final Map<File, CrlIndex> loaded = new HashMap<>();
+    private volatile Map<X500Name, List<CrlIndex>> byIssuer = Collections.emptyMap();
+    private volatile long lastRefresh;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong revoked = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+
+    public CrlStore(File crlDir) {
+        this(crlDir, new File(crlDir, ".index"), DEFAULT_REFRESH_SECONDS * 1000);
+    }
+
+    public CrlStore(File crlDir, File indexDir, long refreshIntervalMs) {
+        this.crlDir = crlDir;
+        this.indexDir = indexDir;
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public static CrlStore fromSystemProperties() {
+        String dir = System.getProperty("nbdsig.crl.dir");
+        if (dir == null || dir.trim().isEmpty()) {
+            return null;
+        }
+        File crlDir = new File(dir.trim());
+        String indexDir = System.getProperty("nbdsig.crl.indexDir");
+        long refreshSeconds = Long.getLong("nbdsig.crl.refreshSeconds", DEFAULT_REFRESH_SECONDS);
+        return new CrlStore(crlDir, indexDir != null ? new File(indexDir) : new File(crlDir, ".index"),
+                refreshSeconds * 1000);
+    }
+
+    // null - отзыв не проверяется
+    public static CrlStore getDefault() {
+        return defaultStore;
+    }
+
+    public static void setDefault(CrlStore store) {
+        defaultStore = store;
+    }
+
+    public File getCrlDir() {
+        return crlDir;
+    }
+
+    /**
+     * Просмотр каталога: новые и измененные CRL индексируются, удаленные
+     * исключаются. Нечитаемый CRL пропускается с сообщением.
+     */
+    public synchronized void refresh() throws IOException {
+        File[] files = crlDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".crl"));
+        if (files == null) {
+            throw new IOException("Каталог списков отзыва недоступен: " + crlDir);
+        }
+        File targetDir = indexDirectory();
+
+        Set<File> present = new HashSet<>();
+        for (File file : files) {
+            if (!file.isFile()) {
+                continue;
+            }
+            present.add(file);
+            CrlIndex index = loaded.get(file);
+            if (index != null && index.isCurrent()) {
+                continue;
+            }
+            try {
+                File indexFile = new File(targetDir, indexName(file));
+                boolean existed = indexFile.isFile();
+                loaded.put(file, CrlIndex.load(file, indexFile));
+                if (!existed) {
+                    builds.incrementAndGet();
+                }
+            } catch (IOException | RuntimeException e) {
+                loaded.remove(file);
+                System.err.println("Список отзыва " + file.getName() + " не читается: " + e.getMessage());
+            }
+        }
+        loaded.keySet().retainAll(present);
+        removeStaleIndexes(targetDir);
+
+        Map<X500Name, List<CrlIndex>> issuers = new HashMap<>();
+        for (CrlIndex index : loaded.values()) {
+            issuers.computeIfAbsent(index.getIssuer(), key -> new ArrayList<>()).add(index);
+        }
+        byIssuer = issuers;
+        lastRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * Состояние сертификата по спискам отзыва его издателя. issuer -
+     * сертификат издателя (подпись CRL проверяется его ключом) или null
+     * (CRL выбираются по Authority Key Identifier). Если сертификат есть
+     * хотя бы в одном из списков - отозван; иначе данные самого свежего
+     * списка, если его срок не истек.
+     */
+    public RevocationStatus check(X509Certificate certificate, X509Certificate issuer) {
+        refreshIfDue();
+        lookups.incrementAndGet();
+        X500Name issuerName = X500Name.getInstance(certificate.getIssuerX500Principal().getEncoded());
+        List<CrlIndex> crls = byIssuer.get(issuerName);
+        if (crls == null) {
+            return RevocationStatus.unknown(RevocationStatus.Method.CRL, "нет списка отзыва издателя");
+        }
+
+        byte[] key = CrlIndex.serialKey(certificate.getSerialNumber());
+        byte[] authorityKeyId = authorityKeyId(certificate);
+        CrlIndex newest = null;
+        for (CrlIndex crl : crls) {
+            if (issuer != null ? !crl.isSignedBy(issuer.getPublicKey()) : !sameKeyId(crl, authorityKeyId)) {
+                continue;
+            }
+            int entry = crl.find(key);
+            if (entry >= 0) {
+                revoked.incrementAndGet();
+                return RevocationStatus.revoked(RevocationStatus.Method.CRL, new Date(crl.getRevocationDate(entry)),
+                        reasonName(crl.getReason(entry)), crl.getSource().getName());
+            }
+            if (newest == null || crl.getThisUpdate() > newest.getThisUpdate()) {
+                newest = crl;
+            }
+        }
+        if (newest == null) {
+            return RevocationStatus.unknown(RevocationStatus.Method.CRL, issuer != null
+                    ? "список отзыва не подписан издателем" : "нет списка отзыва ключа издателя");
+        }
+        if (newest.getNextUpdate() >= 0 && newest.getNextUpdate() < System.currentTimeMillis()) {
+            return RevocationStatus.unknown(RevocationStatus.Method.CRL, "список отзыва " +
+                    newest.getSource().getName() + " устарел (обновление до " +
+                    DATE_FORMAT.format(new Date(newest.getNextUpdate()).toInstant()) + ")");
+        }
+        return RevocationStatus.good(RevocationStatus.Method.CRL, new Date(newest.getThisUpdate()),
+                newest.getNextUpdate() >= 0 ? new Date(newest.getNextUpdate()) : null,
+                newest.getSource().getName());
+    }
+
+    public String getStatistics() {
+        Map<X500Name, List<CrlIndex>> issuers = byIssuer;
+        long entries = issuers.values().stream().flatMap(List::stream).mapToLong(CrlIndex::size).sum();
+        long crls = issuers.values().stream().mapToLong(List::size).sum();
+        return String.format("Списки отзыва: CRL %d, издателей %d, отозванных сертификатов %d, " +
+                        "построено индексов %d, проверок %d, отозвано %d",
+                crls, issuers.size(), entries, builds.get(), lookups.get(), revoked.get());
+    }
+
+    private void refreshIfDue() {
+        if (System.currentTimeMillis() - lastRefresh < refreshIntervalMs) {
+            return;
+        }
+        synchronized (this) {
+            if (System.currentTimeMillis() - lastRefresh < refreshIntervalMs) {
+                return;
+            }
+            try {
+                refresh();
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                // Повтор через интервал, а не при каждой проверке
+                lastRefresh = System.currentTimeMillis();
+            }
+        }
+    }
+
+    // Каталог индексов; если его нельзя создать (CRL на диске только для чтения) - временный каталог
+    private File indexDirectory() throws IOException {
+        if (indexDir.isDirectory() || indexDir.mkdirs()) {
+            if (indexDir.canWrite()) {
+                return indexDir;
+            }
+        }
+        File fallback = new File(System.getProperty("java.io.tmpdir"), "nbdsig-crl-" + sha1(crlDir.getAbsolutePath()));
+        if (!fallback.isDirectory() && !fallback.mkdirs()) {
+            throw new IOException("Не удалось создать каталог индексов CRL: " + indexDir);
+        }
+        return fallback;
+    }
+
+    // Имя индекса зависит от версии CRL: открытый (отображенный) индекс старой версии не перезаписывается
+    private static String indexName(File crl) {
+        return sha1(crl.getAbsolutePath()) + "-" + crl.length() + "-" + crl.lastModified() + ".idx";
+    }
+
+    private void removeStaleIndexes(File targetDir) {
+        Set<String> used = new HashSet<>();
+        for (CrlIndex index : loaded.values()) {
+            used.add(index.getFile().getName());
+        }
+        File[] indexes = targetDir.listFiles((dir, name) -> name.endsWith(".idx"));
+        if (indexes == null) {
+            return;
+        }
+        for (File index : indexes) {
+            // Отображенный файл в Windows не удаляется - будет удален при следующем просмотре
+            if (!used.contains(index.getName()) && !index.delete()) {
+                index.deleteOnExit();
+            }
+        }
+    }
+
+    // Без идентификатора у CRL или сертификата сопоставление только по имени издателя
+    private static boolean sameKeyId(CrlIndex crl, byte[] authorityKeyId) {
+        byte[] crlKeyId = crl.getAuthorityKeyId();
+        return crlKeyId == null || authorityKeyId == null || Arrays.equals(crlKeyId, authorityKeyId);
+    }
+
+    // Authority Key Identifier сертификата или null
+    private static byte[] authorityKeyId(X509Certificate certificate) {
+        byte[] extension = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+        if (extension == null) {
+            return null;
+        }
+        try {
+            return AuthorityKeyIdentifier.getInstance(ASN1OctetString.getInstance(extension).getOctets())
+                    .getKeyIdentifier();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Причина отзыва (CRLReason) по-русски; null - не указана или неизвестна
+    static String reasonName(int reason) {
+        switch (reason) {
+            case CRLReason.keyCompromise:
+                return "компрометация ключа";
+            case CRLReason.cACompromise:
+                return "компрометация ключа УЦ";
+            case CRLReason.affiliationChanged:
+                return "изменение сведений о владельце";
+            case CRLReason.superseded:
+                return "сертификат заменен";
+            case CRLReason.cessationOfOperation:
+                return "прекращение деятельности";
+            case CRLReason.certificateHold:
+                return "действие приостановлено";
+            case CRLReason.privilegeWithdrawn:
+                return "полномочия отозваны";
+            case CRLReason.aACompromise:
+                return "компрометация ключа центра атрибутов";
+            default:
+                return null;
+        }
+    }
+
+    private static String sha1(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.util;
+
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Единая точка загрузки PDF с учетом политики памяти (MemoryPolicy).
+ *
+ * Каждый документ получает собственный каталог временных файлов, поэтому
+ * после работы видно, сколько данных документа было вытеснено на диск.
+ * Объем вытеснения суммируется по процессу и по текущему заданию (потоку).
+ */
+public final class DocumentLoader {
+    private static volatile MemoryPolicy policy = MemoryPolicy.fromSystemProperties();
+
+    private static final AtomicLong LOADS = new AtomicLong();
+    private static final AtomicLong SPILLED_LOADS = new AtomicLong();
+    private static final AtomicLong SPILLED_BYTES = new AtomicLong();
+    private static final AtomicLong MAX_SPILLED_BYTES = new AtomicLong();
+
+    // Вытеснение в рамках текущего задания (файла пакетной обработки)
+    private static final ThreadLocal<long[]> JOB_SPILLED_BYTES = ThreadLocal.withInitial(() -> new long[1]);
+
+    private DocumentLoader() {
+    }
+
+    public static MemoryPolicy getPolicy() {
+        return policy;
+    }
+
+    public static void setPolicy(MemoryPolicy newPolicy) {
+        policy = newPolicy;
+    }
+
+    public static LoadedDocument load(File pdfFile) throws IOException {
+        BackgroundJobs.checkNotFxThread("Загрузку PDF");
+        MemoryPolicy current = policy;
+        File tempDir = null;
+        if (current.usesScratchFile()) {
+            File scratchRoot = current.getScratchDir();
+            if (!scratchRoot.isDirectory() && !scratchRoot.mkdirs()) {
+                throw new IOException("Не удалось создать каталог временных файлов: " + scratchRoot);
+            }
+            tempDir = Files.createTempDirectory(scratchRoot.toPath(), "nbdsig-").toFile();
+        }
+
+        // Как PDDocument.load(File, MemoryUsageSetting), но с собственным каталогом временных файлов
+        RandomAccessBufferedFileInputStream source = null;
+        ScratchFile scratchFile = null;
+        try {
+            source = new RandomAccessBufferedFileInputStream(pdfFile);
+            scratchFile = new ScratchFile(current.toMemoryUsageSetting(tempDir));
+            PDFParser parser = new PDFParser(source, "", null, null, scratchFile);
+            parser.parse();
+            LOADS.incrementAndGet();
+            return new LoadedDocument(parser.getPDDocument(), tempDir);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(scratchFile);
+            closeQuietly(source);
+            deleteDirectory(tempDir);
+            throw e;
+        }
+    }
+
+    // Начало нового задания в текущем потоке
+    public static void startJob() {
+        JOB_SPILLED_BYTES.get()[0] = 0;
+    }
+
+    // Сколько байт вытеснено на диск документами текущего задания
+    public static long getJobSpilledBytes() {
+        return JOB_SPILLED_BYTES.get()[0];
+    }
+
+    public static long getLoadCount() {
+        return LOADS.get();
+    }
+
+    public static long getSpilledBytes() {
+        return SPILLED_BYTES.get();
+    }
+
+    public static String getStatistics() {
+        return String.format("Память документов (%s): загрузок %d, с вытеснением на диск %d, " +
+                        "вытеснено всего %s, максимум на документ %s",
+                policy, LOADS.get(), SPILLED_LOADS.get(),
+                formatBytes(SPILLED_BYTES.get()), formatBytes(MAX_SPILLED_BYTES.get()));
+    }
+
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + " КБ";
+        }
+        return String.format("%.1f МБ", bytes / (1024.0 * 1024.0));
+    }
+
+    private static void recordSpill(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        SPILLED_LOADS.incrementAndGet();
+        SPILLED_BYTES.addAndGet(bytes);
+        MAX_SPILLED_BYTES.accumulateAndGet(bytes, Math::max);
+        JOB_SPILLED_BYTES.get()[0] += bytes;
+    }
+
+    private static long directorySize(File dir) {
+        long size = 0;
+        File[] files = dir != null ? dir.listFiles() : null;
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    private static void deleteDirectory(File dir) {
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        }
+        if (!dir.delete()) {
+            dir.deleteOnExit();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Закрываем после ошибки загрузки - исходная ошибка важнее
+            }
+        }
+    }
+
+    /**
+     * Загруженный документ. Закрытие освобождает документ, учитывает объем
+     * вытеснения на диск и удаляет временные файлы.
+     */
+    public static final class LoadedDocument implements Closeable {
+        private final PDDocument document;
+        private final File tempDir;
+        private long spilledBytes;
+        private boolean closed;
+
+        private LoadedDocument(PDDocument document, File tempDir) {
+            this.document = document;
+            this.tempDir = tempDir;
+        }
+
+        public PDDocument getDocument() {
+            return document;
+        }
+
+        // Текущий объем временного файла документа (файл только растет до закрытия)
+        public long getSpilledBytes() {
+            return Math.max(spilledBytes, directorySize(tempDir));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            spilledBytes = getSpilledBytes();
+            try {
+                document.close();
+            } finally {
+                recordSpill(spilledBytes);
+                deleteDirectory(tempDir);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.util;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Сохранение результата: полная перезапись PDF или инкрементальное обновление.
+ *
+ * При инкрементальном сохранении исходный файл копируется без изменений,
+ * а в конец дописываются только измененные страницы, их ресурсы, новые
+ * потоки содержимого и шрифты. Время записи зависит от объема штампов,
+ * а не документа, и встроенные в исходный PDF подписи остаются действительными.
+ */
+public final class DocumentSaver {
+
+    private DocumentSaver() {
+    }
+
+    public static void save(PDDocument doc, File output, boolean incremental,
+                            Collection<PDPage> changedPages, Collection<? extends PDFont> fonts) throws IOException {
+        BackgroundJobs.checkNotFxThread("Сохранение PDF");
+        // Зашифрованный документ пересохраняется целиком (PDFBox перешифровывает все объекты)
+        if (!incremental || doc.isEncrypted()) {
+            doc.save(output);
+            return;
+        }
+
+        // PDDocument.save встраивает подмножества шрифтов сам, saveIncremental - нет
+        for (PDFont font : fonts) {
+            if (font.willBeSubset()) {
+                font.subset();
+            }
+        }
+
+        Set<COSDictionary> objectsToWrite = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PDPage page : changedPages) {
+            addPage(page.getCOSObject(), objectsToWrite);
+        }
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            doc.saveIncremental(out, objectsToWrite);
+        }
+    }
+
+    // Страница, ее ресурсы (в том числе унаследованные) и цепочка родителей в дереве страниц
+    private static void addPage(COSDictionary page, Set<COSDictionary> objectsToWrite) {
+        boolean resourcesFound = false;
+        for (COSDictionary node = page; node != null; node = node.getCOSDictionary(COSName.PARENT)) {
+            objectsToWrite.add(node);
+            if (!resourcesFound) {
+                COSDictionary resources = node.getCOSDictionary(COSName.RESOURCES);
+                if (resources != null) {
+                    addResources(resources, objectsToWrite);
+                    resourcesFound = true;
+                }
+            }
+        }
+    }
+
+    // Словари ресурсов (/Font, /XObject, ...), в которые добавлены новые записи
+    private static void addResources(COSDictionary resources, Set<COSDictionary> objectsToWrite) {
+        objectsToWrite.add(resources);
+        for (COSBase value : resources.getValues()) {
+            COSBase resolved = value instanceof COSObject ? ((COSObject) value).getObject() : value;
+            if (resolved instanceof COSDictionary) {
+                objectsToWrite.add((COSDictionary) resolved);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.util;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.HorizontalMetricsTable;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общий для процесса кэш разобранных шрифтов TrueType из ресурсов приложения.
+ *
+ * Файл шрифта читается и разбирается один раз; на каждый документ создается
+ * только легкая обертка PDType0Font. Разобранный TrueTypeFont потокобезопасен
+ * (fontbox синхронизирует чтение таблиц), поэтому кэш можно использовать
+ * из нескольких потоков пакетной обработки.
+ */
+public final class FontCache {
+    public static final String TIMES_REGULAR = "/com/example/fonts/times.ttf";
+    public static final String TIMES_BOLD = "/com/example/fonts/timesbd.ttf";
+
+    private static final Map<String, CachedFont> FONTS = new ConcurrentHashMap<>();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private FontCache() {
+    }
+
+    // Обертка шрифта для документа (подмножество глифов встраивается при сохранении)
+    public static PDType0Font load(PDDocument doc, String resource) throws IOException {
+        return PDType0Font.load(doc, get(resource).getTrueTypeFont(), true);
+    }
+
+    public static CachedFont get(String resource) throws IOException {
+        CachedFont font = FONTS.get(resource);
+        if (font != null) {
+            HITS.incrementAndGet();
+            return font;
+        }
+
+        try {
+            return FONTS.computeIfAbsent(resource, key -> {
+                MISSES.incrementAndGet();
+                try {
+                    return CachedFont.parse(key);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static String getStatistics() {
+        return String.format("Кэш шрифтов: попаданий %d, промахов %d, шрифтов %d",
+                HITS.get(), MISSES.get(), FONTS.size());
+    }
+
+    /**
+     * Разобранный шрифт и таблица ширин символов BMP в единицах 1/1000 кегля
+     * (как у PDFont.getStringWidth).
+     */
+    public static final class CachedFont {
+        private static final float MISSING = -1f;
+
+        private final String resource;
+        private final TrueTypeFont trueTypeFont;
+        private final float[] advances = new float[Character.MAX_VALUE + 1];
+        private final float notdefAdvance;
+
+        private CachedFont(String resource, TrueTypeFont trueTypeFont) throws IOException {
+            this.resource = resource;
+            this.trueTypeFont = trueTypeFont;
+
+            // Ширины округляются так же, как при построении массива /W в PDFBox
+            float scale = 1000f / trueTypeFont.getUnitsPerEm();
+            HorizontalMetricsTable hmtx = trueTypeFont.getHorizontalMetrics();
+            CmapLookup cmap = trueTypeFont.getUnicodeCmapLookup();
+
+            this.notdefAdvance = Math.round(hmtx.getAdvanceWidth(0) * scale);
+            for (int c = 0; c < advances.length; c++) {
+                int gid = cmap.getGlyphId(c);
+                advances[c] = gid > 0 ? Math.round(hmtx.getAdvanceWidth(gid) * scale) : MISSING;
+            }
+        }
+
+        private static CachedFont parse(String resource) throws IOException {
+            try (InputStream in = FontCache.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("Не найден шрифт: " + resource);
+                }
+                // Все таблицы разбираются сразу, чтобы общий экземпляр не дочитывал их при работе
+                TrueTypeFont ttf = new TTFParser().parse(in);
+                return new CachedFont(resource, ttf);
+            }
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public TrueTypeFont getTrueTypeFont() {
+            return trueTypeFont;
+        }
+
+        public boolean hasGlyph(char c) {
+            return advances[c] != MISSING;
+        }
+
+        // Ширина символа в единицах 1/1000 кегля
+        public float getAdvance(char c) {
+            float advance = advances[c];
+            return advance == MISSING ? notdefAdvance : advance;
+        }
+
+        // Аналог PDFont.getStringWidth без обращения к документу
+        public float getStringWidth(String text) {
+            float width = 0;
+            for (int i = 0; i < text.length(); i++) {
+                width += getAdvance(text.charAt(i));
+            }
+            return width;
+        }
+    }
+}
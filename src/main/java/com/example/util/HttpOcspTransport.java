@@ -0,0 +1,45 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// Запрос OCSP по HTTP POST (RFC 6960, приложение A)
+public final class HttpOcspTransport implements OcspTransport {
+    private static final String REQUEST_TYPE = "application/ocsp-request";
+
+    private final HttpClient client;
+    private final Duration timeout;
+
+    public HttpOcspTransport(Duration timeout) {
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    @Override
+    public byte[] post(URI responder, byte[] request) throws IOException {
+        HttpRequest httpRequest = HttpRequest.newBuilder(responder)
+                .timeout(timeout)
+                .header("Content-Type", REQUEST_TYPE)
+                .header("Accept", "application/ocsp-response")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request))
+                .build();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Запрос OCSP прерван", e);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("ответчик OCSP " + responder + " вернул HTTP " + response.statusCode());
+        }
+        return response.body();
+    }
+}
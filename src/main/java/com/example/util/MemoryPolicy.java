@@ -0,0 +1,94 @@
+package com.example.util;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+import java.io.File;
+
+/**
+ * Политика использования памяти при загрузке PDF.
+ *
+ * HEAP - весь документ в куче (как PDDocument.load по умолчанию),
+ * MIXED - в куче до бюджета задания, остальное во временном файле,
+ * TEMP_FILE - данные потоков документа только во временном файле.
+ *
+ * Значения по умолчанию задаются системными свойствами
+ * nbdsig.memory.mode, nbdsig.memory.budgetMb и nbdsig.memory.scratchDir.
+ */
+public class MemoryPolicy {
+    public enum Mode { HEAP, MIXED, TEMP_FILE }
+
+    private static final long MB = 1024L * 1024L;
+    private static final long DEFAULT_BUDGET_MB = 256;
+
+    private final Mode mode;
+    private final long heapBudgetBytes;
+    private final File scratchDir;
+
+    public MemoryPolicy(Mode mode, long heapBudgetBytes, File scratchDir) {
+        this.mode = mode;
+        this.heapBudgetBytes = heapBudgetBytes;
+        this.scratchDir = scratchDir;
+    }
+
+    public static MemoryPolicy fromSystemProperties() {
+        Mode mode = parseMode(System.getProperty("nbdsig.memory.mode", Mode.MIXED.name()));
+        long budgetMb = Long.getLong("nbdsig.memory.budgetMb", DEFAULT_BUDGET_MB);
+        String dir = System.getProperty("nbdsig.memory.scratchDir");
+        return new MemoryPolicy(mode, budgetMb * MB, dir != null ? new File(dir) : null);
+    }
+
+    // heap, mixed, temp (регистр не важен)
+    public static Mode parseMode(String value) {
+        switch (value.trim().toLowerCase()) {
+            case "heap":
+                return Mode.HEAP;
+            case "mixed":
+                return Mode.MIXED;
+            case "temp":
+            case "temp_file":
+                return Mode.TEMP_FILE;
+            default:
+                throw new IllegalArgumentException("Неизвестный режим памяти: " + value);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getHeapBudgetBytes() {
+        return heapBudgetBytes;
+    }
+
+    public File getScratchDir() {
+        return scratchDir != null ? scratchDir : new File(System.getProperty("java.io.tmpdir"));
+    }
+
+    public boolean usesScratchFile() {
+        return mode != Mode.HEAP;
+    }
+
+    // Настройка PDFBox для одного документа; tempDir - каталог временных файлов этого документа
+    MemoryUsageSetting toMemoryUsageSetting(File tempDir) {
+        switch (mode) {
+            case MIXED:
+                return MemoryUsageSetting.setupMixed(heapBudgetBytes).setTempDir(tempDir);
+            case TEMP_FILE:
+                return MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir);
+            default:
+                return MemoryUsageSetting.setupMainMemoryOnly();
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (mode) {
+            case MIXED:
+                return "смешанный, бюджет " + heapBudgetBytes / MB + " МБ";
+            case TEMP_FILE:
+                return "временные файлы";
+            default:
+                return "только куча";
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.example.util;
+
+import com.example.model.RevocationStatus;
+import org.bouncycastle.asn1.ASN1IA5String;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AccessDescription;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateHolder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.RevokedStatus;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.bouncycastle.cert.ocsp.UnknownStatus;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.operator.jcajce.JcaContentVerifierProviderBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Проверка отзыва сертификатов по OCSP с кэшем ответов.
+ *
+ * Сертификаты одного издателя, которых нет в кэше, запрашиваются у
+ * ответчика одним запросом (до batchSize сертификатов в запросе):
+ * пакет из тысяч документов, подписанных десятком сотрудников, стоит
+ * одного запроса. Ответ хранится до своего nextUpdate (если ответчик его
+ * не указал - defaultTtl с момента получения) в памяти и в каталоге
+ * кэша, поэтому повторный запуск в пределах этого срока обходится без
+ * сети. Запрос не содержит nonce: ответ на него нельзя было бы кэшировать.
+ *
+ * Подпись ответа проверяется ключом издателя или сертификатом ответчика,
+ * выданным издателем для подписи OCSP (id-kp-OCSPSigning); ответ из кэша
+ * проверяется так же. Ошибки доставки и непроверенные ответы дают
+ * состояние UNKNOWN и не кэшируются.
+ *
+ * Адрес ответчика берется из сертификата (Authority Information Access)
+ * или задается один для всех - например, локальный ответчик площадки.
+ * Доставка запроса - OcspTransport: HTTP по умолчанию, для площадок без
+ * сети и проверок - своя реализация.
+ *
+ * Клиент по умолчанию включается свойством nbdsig.ocsp.enabled=true или
+ * nbdsig.ocsp.url (адрес ответчика вместо указанного в сертификатах);
+ * также nbdsig.ocsp.cacheDir, nbdsig.ocsp.ttlSeconds,
+ * nbdsig.ocsp.batchSize, nbdsig.ocsp.timeoutSeconds.
+ */
+public final class OcspClient {
+    private static final long DEFAULT_TTL_SECONDS = 3600;
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final long DEFAULT_TIMEOUT_SECONDS = 10;
+    private static final int MEMORY_CACHE_SIZE = 10_000;
+    private static final Provider PROVIDER = new BouncyCastleProvider();
+
+    private static volatile OcspClient defaultClient = fromSystemProperties();
+
+    private final OcspTransport transport;
+    private final URI responder;
+    private final File cacheDir;
+    private final long defaultTtlMs;
+    private final int batchSize;
+
+    // Служба работает неделями: в памяти - последние MEMORY_CACHE_SIZE сертификатов, остальное - на диске
+    private final Map<X509Certificate, CertificateID> ids = boundedMap();
+    private final Map<String, CachedStatus> cache = boundedMap();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    // responder - адрес ответчика для всех сертификатов или null (из сертификата)
+    public OcspClient(URI responder) {
+        this(new HttpOcspTransport(Duration.ofSeconds(DEFAULT_TIMEOUT_SECONDS)), responder, defaultCacheDir(),
+                DEFAULT_TTL_SECONDS * 1000, DEFAULT_BATCH_SIZE);
+    }
+
+    // cacheDir - null, если ответы хранятся только в памяти
+    public OcspClient(OcspTransport transport, URI responder, File cacheDir, long defaultTtlMs, int batchSize) {
+        this.transport = Objects.requireNonNull(transport);
+        this.responder = responder;
+        this.cacheDir = cacheDir;
+        this.defaultTtlMs = defaultTtlMs;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public static OcspClient fromSystemProperties() {
+        String url = System.getProperty("nbdsig.ocsp.url");
+        boolean hasUrl = url != null && !url.trim().isEmpty();
+        if (!hasUrl && !Boolean.getBoolean("nbdsig.ocsp.enabled")) {
+            return null;
+        }
+        URI responder = null;
+        if (hasUrl) {
+            try {
+                responder = URI.create(url.trim());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Некорректный адрес ответчика OCSP: " + url);
+                return null;
+            }
+        }
+        String cacheDir = System.getProperty("nbdsig.ocsp.cacheDir");
+        return new OcspClient(
+                new HttpOcspTransport(Duration.ofSeconds(Long.getLong("nbdsig.ocsp.timeoutSeconds", DEFAULT_TIMEOUT_SECONDS))),
+                responder,
+                cacheDir != null ? new File(cacheDir) : defaultCacheDir(),
+                Long.getLong("nbdsig.ocsp.ttlSeconds", DEFAULT_TTL_SECONDS) * 1000,
+                Integer.getInteger("nbdsig.ocsp.batchSize", DEFAULT_BATCH_SIZE));
+    }
+
+    // null - отзыв по OCSP не проверяется
+    public static OcspClient getDefault() {
+        return defaultClient;
+    }
+
+    public static void setDefault(OcspClient client) {
+        defaultClient = client;
+    }
+
+    public RevocationStatus check(X509Certificate certificate, X509Certificate issuer) {
+        Map<X509Certificate, X509Certificate> single = new HashMap<>();
+        single.put(certificate, issuer);
+        return check(single).get(certificate);
+    }
+
+    /**
+     * Состояние каждого сертификата (ключ) по сертификату его издателя
+     * (значение; null - издатель неизвестен). Отсутствующие в кэше
+     * сертификаты запрашиваются по одному запросу на издателя и ответчика.
+     */
+    public Map<X509Certificate, RevocationStatus> check(Map<X509Certificate, X509Certificate> certificates) {
+        Map<X509Certificate, RevocationStatus> results = new LinkedHashMap<>();
+        Map<RequestGroup, List<Pending>> misses = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<X509Certificate, X509Certificate> entry : certificates.entrySet()) {
+            X509Certificate certificate = entry.getKey();
+            X509Certificate issuer = entry.getValue();
+            lookups.incrementAndGet();
+            if (issuer == null) {
+                results.put(certificate, unknown("нет сертификата издателя"));
+                continue;
+            }
+            CertificateID id;
+            try {
+                id = certificateId(certificate, issuer);
+            } catch (Exception e) {
+                results.put(certificate, unknown("ошибка разбора сертификата: " + e.getMessage()));
+                continue;
+            }
+            String key = cacheKey(id);
+            CachedStatus cached = cache.get(key);
+            if (cached != null) {
+                if (cached.expires > now) {
+                    memoryHits.incrementAndGet();
+                    results.put(certificate, cached.status);
+                    continue;
+                }
+                cache.remove(key);
+            }
+
+            URI uri = responder != null ? responder : responderOf(certificate);
+            if (uri == null) {
+                results.put(certificate, unknown("в сертификате нет адреса ответчика OCSP"));
+                continue;
+            }
+            cached = readCache(key, issuer, uri, now);
+            if (cached != null) {
+                diskHits.incrementAndGet();
+                cache.put(key, cached);
+                results.put(certificate, cached.status);
+                continue;
+            }
+            misses.computeIfAbsent(new RequestGroup(issuer, uri), group -> new ArrayList<>())
+                    .add(new Pending(certificate, key, id));
+            // Место в порядке результатов; значение - после запроса
+            results.put(certificate, null);
+        }
+
+        for (Map.Entry<RequestGroup, List<Pending>> entry : misses.entrySet()) {
+            List<Pending> pending = entry.getValue();
+            for (int from = 0; from < pending.size(); from += batchSize) {
+                request(entry.getKey(), pending.subList(from, Math.min(pending.size(), from + batchSize)), results);
+            }
+        }
+        return results;
+    }
+
+    public String getStatistics() {
+        return String.format("OCSP: проверок %d, из памяти %d, из кэша на диске %d, запросов %d, ошибок %d",
+                lookups.get(), memoryHits.get(), diskHits.get(), requests.get(), failures.get());
+    }
+
+    // Один запрос OCSP на сертификаты одного издателя; результаты - в results
+    private void request(RequestGroup group, List<Pending> pending, Map<X509Certificate, RevocationStatus> results) {
+        BackgroundJobs.checkNotFxThread("Запрос OCSP");
+        requests.incrementAndGet();
+        byte[] encoded;
+        BasicOCSPResp response;
+        try {
+            OCSPReqBuilder builder = new OCSPReqBuilder();
+            for (Pending item : pending) {
+                builder.addRequest(item.id);
+            }
+            encoded = transport.post(group.responder, builder.build().getEncoded());
+            OCSPResp ocspResponse = new OCSPResp(encoded);
+            if (ocspResponse.getStatus() != OCSPResp.SUCCESSFUL) {
+                fail(pending, results, "ответчик OCSP отказал (код " + ocspResponse.getStatus() + ")");
+                return;
+            }
+            response = (BasicOCSPResp) ocspResponse.getResponseObject();
+        } catch (Exception e) {
+            fail(pending, results, "ответчик OCSP недоступен: " +
+                    (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+            return;
+        }
+        if (response == null || !isSignedFor(response, group.issuer)) {
+            fail(pending, results, "подпись ответа OCSP не проверена");
+            return;
+        }
+
+        Map<String, SingleResp> byKey = new HashMap<>();
+        for (SingleResp single : response.getResponses()) {
+            byKey.put(cacheKey(single.getCertID()), single);
+        }
+        long now = System.currentTimeMillis();
+        List<String> cached = new ArrayList<>();
+        for (Pending item : pending) {
+            SingleResp single = byKey.get(item.key);
+            if (single == null) {
+                results.put(item.certificate, unknown("сертификата нет в ответе OCSP"));
+                continue;
+            }
+            CachedStatus status = toStatus(single, group.responder, now);
+            results.put(item.certificate, status.status);
+            if (status.expires > now) {
+                cache.put(item.key, status);
+                cached.add(item.key);
+            }
+        }
+        writeCache(cached, encoded);
+    }
+
+    private void fail(List<Pending> pending, Map<X509Certificate, RevocationStatus> results, String reason) {
+        failures.incrementAndGet();
+        for (Pending item : pending) {
+            results.put(item.certificate, unknown(reason));
+        }
+    }
+
+    // fetched - время получения ответа: от него отсчитывается defaultTtl, если нет nextUpdate
+    private CachedStatus toStatus(SingleResp single, URI source, long fetched) {
+        Date thisUpdate = single.getThisUpdate();
+        Date nextUpdate = single.getNextUpdate();
+        Object certStatus = single.getCertStatus();
+        RevocationStatus status;
+        if (certStatus instanceof RevokedStatus) {
+            RevokedStatus revoked = (RevokedStatus) certStatus;
+            status = RevocationStatus.revoked(RevocationStatus.Method.OCSP, revoked.getRevocationTime(),
+                    revoked.hasRevocationReason() ? CrlStore.reasonName(revoked.getRevocationReason()) : null,
+                    source.toString());
+        } else if (certStatus instanceof UnknownStatus) {
+            status = unknown("сертификат неизвестен ответчику");
+        } else {
+            status = RevocationStatus.good(RevocationStatus.Method.OCSP, thisUpdate, nextUpdate, source.toString());
+        }
+        return new CachedStatus(status, nextUpdate != null ? nextUpdate.getTime() : fetched + defaultTtlMs);
+    }
+
+    // Ответ из кэша на диске, если он подписан для issuer и не устарел; иначе файл удаляется
+    private CachedStatus readCache(String key, X509Certificate issuer, URI source, long now) {
+        if (cacheDir == null) {
+            return null;
+        }
+        File file = new File(cacheDir, sha1(key) + ".ocsp");
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            Object response = new OCSPResp(Files.readAllBytes(file.toPath())).getResponseObject();
+            if (response instanceof BasicOCSPResp && isSignedFor((BasicOCSPResp) response, issuer)) {
+                for (SingleResp single : ((BasicOCSPResp) response).getResponses()) {
+                    if (key.equals(cacheKey(single.getCertID()))) {
+                        CachedStatus status = toStatus(single, source, file.lastModified());
+                        if (status.expires > now) {
+                            return status;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // Поврежденный файл кэша - как отсутствующий
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+        return null;
+    }
+
+    // Ответ записывается один раз; файлы сертификатов из него - жесткие ссылки на эту запись
+    // (копии, если файловая система ссылок не поддерживает)
+    private void writeCache(List<String> keys, byte[] response) {
+        if (keys.isEmpty() || cacheDir == null || (!cacheDir.isDirectory() && !cacheDir.mkdirs())) {
+            return;
+        }
+        Path temp = null;
+        try {
+            temp = File.createTempFile("ocsp", ".tmp", cacheDir).toPath();
+            Files.write(temp, response);
+            for (String key : keys) {
+                Path link = temp.resolveSibling(temp.getFileName() + ".link");
+                try {
+                    Files.createLink(link, temp);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(temp, link, StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(link, new File(cacheDir, sha1(key) + ".ocsp").toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.err.println("Ответ OCSP не сохранен в кэш: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+
+    // Подписан издателем или его ответчиком OCSP (сертификат из ответа с id-kp-OCSPSigning)
+    private static boolean isSignedFor(BasicOCSPResp response, X509Certificate issuer) {
+        ContentVerifierProvider issuerKey;
+        try {
+            issuerKey = new JcaContentVerifierProviderBuilder().setProvider(PROVIDER).build(issuer.getPublicKey());
+            if (response.isSignatureValid(issuerKey)) {
+                return true;
+            }
+        } catch (Exception e) {
+            return false;
+        }
+        X500Name issuerName = X500Name.getInstance(issuer.getSubjectX500Principal().getEncoded());
+        Date now = new Date();
+        for (X509CertificateHolder candidate : response.getCerts()) {
+            try {
+                if (!candidate.getIssuer().equals(issuerName) || !candidate.isValidOn(now) ||
+                        !candidate.hasExtensions()) {
+                    continue;
+                }
+                ExtendedKeyUsage usage = ExtendedKeyUsage.fromExtensions(candidate.getExtensions());
+                if (usage == null || !usage.hasKeyPurposeId(KeyPurposeId.id_kp_OCSPSigning) ||
+                        !candidate.isSignatureValid(issuerKey)) {
+                    continue;
+                }
+                if (response.isSignatureValid(new JcaContentVerifierProviderBuilder().setProvider(PROVIDER)
+                        .build(candidate))) {
+                    return true;
+                }
+            } catch (Exception e) {
+                // Сертификат ответчика не подходит - следующий
+            }
+        }
+        return false;
+    }
+
+    private CertificateID certificateId(X509Certificate certificate, X509Certificate issuer) throws Exception {
+        CertificateID id = ids.get(certificate);
+        if (id == null) {
+            id = new CertificateID(
+                    new JcaDigestCalculatorProviderBuilder().setProvider(PROVIDER).build().get(CertificateID.HASH_SHA1),
+                    new JcaX509CertificateHolder(issuer), certificate.getSerialNumber());
+            ids.put(certificate, id);
+        }
+        return id;
+    }
+
+    // Адрес ответчика OCSP из Authority Information Access или null
+    private static URI responderOf(X509Certificate certificate) {
+        byte[] value = certificate.getExtensionValue(Extension.authorityInfoAccess.getId());
+        if (value == null) {
+            return null;
+        }
+        try {
+            AuthorityInformationAccess access =
+                    AuthorityInformationAccess.getInstance(ASN1OctetString.getInstance(value).getOctets());
+            for (AccessDescription description : access.getAccessDescriptions()) {
+                GeneralName location = description.getAccessLocation();
+                if (AccessDescription.id_ad_ocsp.equals(description.getAccessMethod()) &&
+                        location.getTagNo() == GeneralName.uniformResourceIdentifier) {
+                    return URI.create(ASN1IA5String.getInstance(location.getName()).getString());
+                }
+            }
+        } catch (RuntimeException e) {
+            // Расширение не разбирается - адреса нет
+        }
+        return null;
+    }
+
+    // Алгоритм хэша, хэши имени и ключа издателя, серийный номер
+    private static String cacheKey(CertificateID id) {
+        return id.getHashAlgOID().getId() + "-" + hex(id.getIssuerNameHash()) + "-" +
+                hex(id.getIssuerKeyHash()) + "-" + id.getSerialNumber().toString(16);
+    }
+
+    private static RevocationStatus unknown(String reason) {
+        return RevocationStatus.unknown(RevocationStatus.Method.OCSP, reason);
+    }
+
+    // Вытесняется давно не использованная запись
+    private static <K, V> Map<K, V> boundedMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MEMORY_CACHE_SIZE;
+            }
+        });
+    }
+
+    private static File defaultCacheDir() {
+        return new File(System.getProperty("user.home"), ".nbdsig" + File.separator + "ocsp-cache");
+    }
+
+    private static String hex(byte[] bytes) {
+        return bytes.length == 0 ? "" : String.format("%0" + (bytes.length * 2) + "x", new BigInteger(1, bytes));
+    }
+
+    private static String sha1(String value) {
+        try {
+            return hex(MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class CachedStatus {
+        final RevocationStatus status;
+        final long expires;
+
+        CachedStatus(RevocationStatus status, long expires) {
+            this.status = status;
+            this.expires = expires;
+        }
+    }
+
+    private static final class Pending {
+        final X509Certificate certificate;
+        final String key;
+        final CertificateID id;
+
+        Pending(X509Certificate certificate, String key, CertificateID id) {
+            this.certificate = certificate;
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    // Издатель и ответчик: сертификаты группы уходят одним запросом
+    private static final class RequestGroup {
+        final X509Certificate issuer;
+        final URI responder;
+
+        RequestGroup(X509Certificate issuer, URI responder) {
+            this.issuer = issuer;
+            this.responder = responder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RequestGroup)) {
+                return false;
+            }
+            RequestGroup other = (RequestGroup) o;
+            return issuer.equals(other.issuer) && responder.equals(other.responder);
+        }
+
+        @Override
+        public int hashCode() {
+            return issuer.hashCode() * 31 + responder.hashCode();
+        }
+    }
+}
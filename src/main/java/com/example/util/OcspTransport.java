@@ -0,0 +1,16 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Доставка запроса OCSP ответчику. По умолчанию - HTTP POST
+ * (HttpOcspTransport); площадки без сети и проверки подставляют свою
+ * реализацию, например локальный ответчик в том же процессе.
+ */
+@FunctionalInterface
+public interface OcspTransport {
+
+    // Закодированный OCSPRequest -> закодированный OCSPResponse
+    byte[] post(URI responder, byte[] request) throws IOException;
+}
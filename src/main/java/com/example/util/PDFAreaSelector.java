@@ -14,27 +14,36 @@ import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
+import javafx.scene.shape.Rectangle;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.stage.Window;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import javafx.embed.swing.SwingFXUtils;
-import java.awt.image.BufferedImage;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
-public class PDFAreaSelector {
+/**
+ * Окно выбора места для протокола. Документ открывается (open) и
+ * закрывается (close) вне потока JavaFX, окно показывается (selectArea)
+ * в потоке JavaFX; страницы отрисовываются в фоне (PageImageCache).
+ */
+public class PDFAreaSelector implements Closeable {
     private final File pdfFile;
     private final boolean addBlankPage;
+    private DocumentLoader.LoadedDocument loaded;
     private int currentPage = 0;
-    private List<Image> pageImages = new ArrayList<>();
+    private int pageCount;
+    // Размеры страниц в пикселях при масштабе 1.0 - для заглушки до готовности изображения
+    private double[] pageWidths;
+    private double[] pageHeights;
+    private PageImageCache pageImages;
     private ImageView imageView;
+    private Rectangle placeholder;
+    private Label loadingLabel;
     private Label pageLabel;
     private Circle markerDot;
     private Button confirmButton;
@@ -60,126 +69,189 @@ public class PDFAreaSelector {
         }
     }
 
-    public Optional<SelectedArea> selectArea(Stage ownerStage) throws IOException {
-        try (PDDocument doc = PDDocument.load(pdfFile)) {
-            // Добавляем пустую страницу если нужно
-            if (addBlankPage) {
-                doc.addPage(new PDPage(PDRectangle.A4));
-            }
+    // Загрузка документа и размеров страниц - вне потока JavaFX
+    public void open() throws IOException {
+        loaded = DocumentLoader.load(pdfFile);
+        PDDocument doc = loaded.getDocument();
+        // Добавляем пустую страницу если нужно
+        if (addBlankPage) {
+            doc.addPage(new PDPage(PDRectangle.A4));
+        }
 
-            PDFRenderer renderer = new PDFRenderer(doc);
-            pageImages.clear();
-            for (int i = 0; i < doc.getNumberOfPages(); i++) {
-                BufferedImage bufferedImage = renderer.renderImage(i, 1.0f);
-                pageImages.add(SwingFXUtils.toFXImage(bufferedImage, null));
+        // Страницы отрисовываются по мере просмотра, а не все до открытия окна
+        pageCount = doc.getNumberOfPages();
+        readPageSizes(doc);
+        pageImages = new PageImageCache(doc, PageImageCache.DEFAULT_MAX_BYTES, new PageImageCache.Listener() {
+            @Override
+            public void pageReady(int pageIndex, Image image) {
+                if (pageIndex == currentPage) {
+                    updateImageView();
+                }
             }
 
-            Stage selectionStage = new Stage();
-            selectionStage.initModality(Modality.APPLICATION_MODAL);
-            selectionStage.initOwner(ownerStage);
-            selectionStage.setTitle("Выберите место для размещения протокола" +
-                    (addBlankPage ? " (последняя страница - пустая)" : ""));
-
-            // Создаем контейнер для изображения и маркера
-            Pane imageContainer = new Pane();
-            imageView = new ImageView(pageImages.get(0));
-            imageView.setPreserveRatio(true);
-            imageView.setFitWidth(pageImages.get(0).getWidth());
-            imageView.setFitHeight(pageImages.get(0).getHeight());
-
-            // Создаем красную точку для маркировки выбранного места
-            markerDot = new Circle(5, Color.RED);
-            markerDot.setVisible(false);
-
-            // Кнопки навигации по страницам
-            Button prevButton = new Button("< Предыдущая");
-            Button nextButton = new Button("Следующая >");
-
-            // Метка с номером страницы
-            pageLabel = new Label();
-            updatePageLabel();
-
-            // Кнопка подтверждения выбора
-            confirmButton = new Button("Подтвердить выбор");
-            confirmButton.setDisable(true);
-            confirmButton.setOnAction(e -> {
-                if (markerDot.isVisible()) {
-                    Bounds bounds = imageView.getBoundsInParent();
-                    double clickX = markerDot.getCenterX() / bounds.getWidth() * imageView.getImage().getWidth();
-                    double clickY = (bounds.getHeight() - markerDot.getCenterY()) / bounds.getHeight() * imageView.getImage().getHeight();
-
-                    selectionStage.close();
-                    selectionStage.setUserData(new SelectedArea(clickX, clickY, currentPage));
+            @Override
+            public void pageFailed(int pageIndex, Exception error) {
+                if (pageIndex == currentPage) {
+                    loadingLabel.setText("Не удалось отобразить страницу: " + error.getMessage());
                 }
-            });
+            }
+        });
+    }
 
-            // Панель навигации
-            HBox navPanel = new HBox(10, prevButton, pageLabel, nextButton);
-            navPanel.setAlignment(Pos.CENTER);
+    // Остановка отрисовки и закрытие документа - вне потока JavaFX, после закрытия окна
+    @Override
+    public void close() throws IOException {
+        if (pageImages != null) {
+            pageImages.close();
+            pageImages = null;
+        }
+        if (loaded != null) {
+            loaded.close();
+            loaded = null;
+        }
+    }
 
-            // Инструкция для пользователя
-            Label instructionLabel = new Label("Кликните на изображение, чтобы выбрать место для протокола");
-            instructionLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #2a5885;");
+    public Optional<SelectedArea> selectArea(Stage ownerStage) {
+        if (pageImages == null) {
+            throw new IllegalStateException("Документ не открыт: " + pdfFile.getName());
+        }
 
-            // Основной контейнер
-            VBox root = new VBox(10, instructionLabel, imageContainer, navPanel, confirmButton);
-            root.setPadding(new Insets(15));
+        Stage selectionStage = new Stage();
+        selectionStage.initModality(Modality.APPLICATION_MODAL);
+        selectionStage.initOwner(ownerStage);
+        selectionStage.setTitle("Выберите место для размещения протокола" +
+                (addBlankPage ? " (последняя страница - пустая)" : ""));
 
-            // Добавляем изображение и маркер в контейнер
-            imageContainer.getChildren().addAll(imageView, markerDot);
+        // Создаем контейнер для изображения и маркера
+        Pane imageContainer = new Pane();
+        imageView = new ImageView();
+        imageView.setPreserveRatio(true);
 
-            // Обработчики кнопок навигации
-            prevButton.setOnAction(e -> {
-                if (currentPage > 0) {
-                    currentPage--;
-                    updateImageView();
-                    updatePageLabel();
-                    markerDot.setVisible(false);
-                    confirmButton.setDisable(true);
-                }
-            });
+        // Заглушка на время отрисовки страницы
+        placeholder = new Rectangle(0, 0, Color.WHITESMOKE);
+        placeholder.setStroke(Color.LIGHTGRAY);
+        loadingLabel = new Label();
+        loadingLabel.setLayoutX(20);
+        loadingLabel.setLayoutY(20);
 
-            nextButton.setOnAction(e -> {
-                if (currentPage < pageImages.size() - 1) {
-                    currentPage++;
-                    updateImageView();
-                    updatePageLabel();
-                    markerDot.setVisible(false);
-                    confirmButton.setDisable(true);
-                }
-            });
+        // Создаем красную точку для маркировки выбранного места
+        markerDot = new Circle(5, Color.RED);
+        markerDot.setVisible(false);
+
+        // Кнопки навигации по страницам
+        Button prevButton = new Button("< Предыдущая");
+        Button nextButton = new Button("Следующая >");
 
-            // Обработчик клика по изображению
-            imageView.setOnMouseClicked(event -> {
+        // Метка с номером страницы
+        pageLabel = new Label();
+        updatePageLabel();
+
+        // Кнопка подтверждения выбора
+        confirmButton = new Button("Подтвердить выбор");
+        confirmButton.setDisable(true);
+        confirmButton.setOnAction(e -> {
+            if (markerDot.isVisible()) {
                 Bounds bounds = imageView.getBoundsInParent();
-                double clickX = event.getX();
-                double clickY = event.getY();
+                double clickX = markerDot.getCenterX() / bounds.getWidth() * imageView.getImage().getWidth();
+                double clickY = (bounds.getHeight() - markerDot.getCenterY()) / bounds.getHeight() * imageView.getImage().getHeight();
+
+                selectionStage.close();
+                selectionStage.setUserData(new SelectedArea(clickX, clickY, currentPage));
+            }
+        });
 
-                // Показываем красную точку в месте клика
-                markerDot.setCenterX(clickX);
-                markerDot.setCenterY(clickY);
-                markerDot.setVisible(true);
-                confirmButton.setDisable(false);
-            });
+        // Панель навигации
+        HBox navPanel = new HBox(10, prevButton, pageLabel, nextButton);
+        navPanel.setAlignment(Pos.CENTER);
 
-            Scene scene = new Scene(root);
-            selectionStage.setScene(scene);
-            selectionStage.showAndWait();
+        // Инструкция для пользователя
+        Label instructionLabel = new Label("Кликните на изображение, чтобы выбрать место для протокола");
+        instructionLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #2a5885;");
 
-            return Optional.ofNullable((SelectedArea) selectionStage.getUserData());
-        }
+        // Основной контейнер
+        VBox root = new VBox(10, instructionLabel, imageContainer, navPanel, confirmButton);
+        root.setPadding(new Insets(15));
+
+        // Добавляем изображение и маркер в контейнер
+        imageContainer.getChildren().addAll(placeholder, loadingLabel, imageView, markerDot);
+        updateImageView();
+
+        // Обработчики кнопок навигации
+        prevButton.setOnAction(e -> {
+            if (currentPage > 0) {
+                currentPage--;
+                updateImageView();
+                updatePageLabel();
+                markerDot.setVisible(false);
+                confirmButton.setDisable(true);
+            }
+        });
+
+        nextButton.setOnAction(e -> {
+            if (currentPage < pageCount - 1) {
+                currentPage++;
+                updateImageView();
+                updatePageLabel();
+                markerDot.setVisible(false);
+                confirmButton.setDisable(true);
+            }
+        });
+
+        // Обработчик клика по изображению
+        imageView.setOnMouseClicked(event -> {
+            Bounds bounds = imageView.getBoundsInParent();
+            double clickX = event.getX();
+            double clickY = event.getY();
+
+            // Показываем красную точку в месте клика
+            markerDot.setCenterX(clickX);
+            markerDot.setCenterY(clickY);
+            markerDot.setVisible(true);
+            confirmButton.setDisable(false);
+        });
+
+        Scene scene = new Scene(root);
+        selectionStage.setScene(scene);
+        selectionStage.showAndWait();
+
+        return Optional.ofNullable((SelectedArea) selectionStage.getUserData());
     }
 
     private void updateImageView() {
-        imageView.setImage(pageImages.get(currentPage));
-        imageView.setFitWidth(pageImages.get(currentPage).getWidth());
-        imageView.setFitHeight(pageImages.get(currentPage).getHeight());
+        Image image = pageImages.show(currentPage);
+        boolean ready = image != null;
+
+        imageView.setImage(image);
+        imageView.setVisible(ready);
+        if (ready) {
+            imageView.setFitWidth(image.getWidth());
+            imageView.setFitHeight(image.getHeight());
+        }
+
+        placeholder.setWidth(pageWidths[currentPage]);
+        placeholder.setHeight(pageHeights[currentPage]);
+        placeholder.setVisible(!ready);
+        loadingLabel.setText("Загрузка страницы " + (currentPage + 1) + "...");
+        loadingLabel.setVisible(!ready);
+    }
+
+    // Размер изображения страницы совпадает с видимой областью (CropBox) с учетом поворота
+    private void readPageSizes(PDDocument doc) {
+        pageWidths = new double[pageCount];
+        pageHeights = new double[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            PDPage page = doc.getPage(i);
+            PDRectangle cropBox = page.getCropBox();
+            boolean rotated = page.getRotation() % 180 != 0;
+            pageWidths[i] = Math.round(rotated ? cropBox.getHeight() : cropBox.getWidth());
+            pageHeights[i] = Math.round(rotated ? cropBox.getWidth() : cropBox.getHeight());
+        }
     }
 
     private void updatePageLabel() {
         pageLabel.setText(String.format("Страница %d из %d%s",
                 currentPage + 1,
-                pageImages.size(),
-                (addBlankPage && currentPage == pageImages.size() - 1) ? " (пустая)" : ""));
+                pageCount,
+                (addBlankPage && currentPage == pageCount - 1) ? " (пустая)" : ""));
     }
 }
\ No newline at end of file
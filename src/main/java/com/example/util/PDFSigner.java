@@ -2,17 +2,21 @@ package com.example.util;
 
 import com.example.controller.SignatureCategoryDialogController;
 import com.example.model.*;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType0Font;
 import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
 import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.ASN1Set;
 import org.bouncycastle.asn1.ASN1UTCTime;
@@ -30,16 +34,20 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.math.BigInteger;
-import java.nio.file.Files;
 import java.security.Security;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -47,9 +55,6 @@ import java.util.stream.Collectors;
 
 public class PDFSigner {
     private static final float STAMP_PADDING = 8;
-    private static final float BASE_FONT_SIZE = 10;
-    private static final float LARGE_FONT_SIZE = 15;
-    private static final float LINE_SPACING = 12;
     private static final float MIN_TEXT_MARGIN = 20;
 
     // Уменьшенные размеры шрифтов на 1/3
@@ -59,16 +64,55 @@ public class PDFSigner {
     // Увеличенный размер шрифта для заголовков столбцов на 1/3
     private static final float COLUMN_TITLE_FONT_SIZE = 8.9f; // 6.7 * 4/3
 
+    // Протокол проверки: шрифт увеличен на 1/3 (было 6.7f), интервалы пропорционально
+    private static final float PROTOCOL_TEXT_FONT_SIZE = 8.9f; // PROTOCOL_FONT_SIZE * 4/3
+    private static final float PROTOCOL_LINE_HEIGHT = 14;
+    private static final float PROTOCOL_EXTRA_LINE_HEIGHT = 18; // Дополнительный интервал для даты проверки
+    private static final float PROTOCOL_WRAP_WIDTH = 400;
+    // Меньше этого кегля ФИО сотрудника в протоколе не уменьшается
+    private static final float PROTOCOL_MIN_NAME_FONT_SIZE = 6;
+    private static final String PROTOCOL_VERIFIED_BY = "Проверка действительности УЭК проведена: ";
+    // Поля страницы при автоматическом выборе места протокола
+    private static final float PROTOCOL_PAGE_MARGIN = 50;
+    // Строка владельца, если имя субъекта сертификата не разбирается
+    private static final String OWNER_UNRECOGNIZED = "Владелец: данные не распознаны\nФИО не доступно";
+
     static {
         Security.addProvider(new BouncyCastleProvider());
     }
 
+    // Потокобезопасные форматтеры и конвертер, общие для всех вызовов
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+    private static final JcaX509CertificateConverter CERTIFICATE_CONVERTER =
+            new JcaX509CertificateConverter().setProvider("BC");
+
 
+    /**
+     * Прямоугольники строк текста страницы. Результат накапливается в
+     * TextGeometry (параллельные массивы); текст строк копируется в общий
+     * буфер, только если он запрошен.
+     */
     public static class PDFContentAnalyzer extends PDFTextStripper {
-        List<TextBlock> textBlocks = new ArrayList<>();
+        private final boolean withText;
+        private final List<TextGeometry> pages = new ArrayList<>();
+        private TextGeometry current;
 
         public PDFContentAnalyzer() throws IOException {
+            this(true);
+        }
+
+        public PDFContentAnalyzer(boolean withText) throws IOException {
             super();
+            this.withText = withText;
+        }
+
+        // Страницы без содержимого сюда не попадают - для них остается пустая геометрия
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            current = pages.get(getCurrentPageNo() - getStartPage());
         }
 
         @Override
@@ -77,28 +121,26 @@ public class PDFSigner {
                 return;
             }
 
+            // Координаты PDF: TextPosition считает y сверху страницы по базовой линии
             float minX = Float.MAX_VALUE;
             float minY = Float.MAX_VALUE;
-            float maxX = Float.MIN_VALUE;
-            float maxY = Float.MIN_VALUE;
-
-            for (TextPosition pos : textPositions) {
-                minX = Math.min(minX, pos.getX());
-                minY = Math.min(minY, pos.getY());
-                maxX = Math.max(maxX, pos.getEndX());
-                maxY = Math.max(maxY, pos.getY() + pos.getHeight());
+            float maxX = -Float.MAX_VALUE;
+            float maxY = -Float.MAX_VALUE;
+
+            for (int i = 0, count = textPositions.size(); i < count; i++) {
+                TextPosition pos = textPositions.get(i);
+                float baseline = pos.getPageHeight() - pos.getYDirAdj();
+                minX = Math.min(minX, pos.getXDirAdj());
+                maxX = Math.max(maxX, pos.getXDirAdj() + pos.getWidthDirAdj());
+                minY = Math.min(minY, baseline);
+                maxY = Math.max(maxY, baseline + pos.getHeightDir());
             }
 
-            TextBlock block = new TextBlock();
-            block.text = text;
-            block.x = minX;
-            block.y = minY;
-            block.width = maxX - minX;
-            block.height = maxY - minY;
-            textBlocks.add(block);
+            current.add(minX, minY, maxX - minX, maxY - minY, text);
         }
 
-        public class TextBlock {
+        // Прямоугольник строки в координатах PDF: (x, y) - левый нижний угол
+        public static class TextBlock {
             public String text;
             public float x;
             public float y;
@@ -106,46 +148,85 @@ public class PDFSigner {
             public float height;
         }
 
+        // Общий текст страниц не собирается (nullWriter) - нужны только отдельные строки
+        private List<TextGeometry> analyze(PDDocument doc, int startPage, int endPage) throws IOException {
+            pages.clear();
+            for (int i = startPage; i <= endPage; i++) {
+                pages.add(new TextGeometry(withText));
+            }
+            setStartPage(startPage);
+            setEndPage(endPage);
+            writeText(doc, Writer.nullWriter());
+            for (TextGeometry geometry : pages) {
+                geometry.trim();
+            }
+            return pages;
+        }
+
+        // Только геометрия страницы (нумерация с 1), без копирования текста
+        public static TextGeometry analyzeGeometry(PDDocument doc, int pageNum) throws IOException {
+            return new PDFContentAnalyzer(false).analyze(doc, pageNum, pageNum).get(0);
+        }
+
+        // Все страницы документа за один проход; элемент i - страница i + 1
+        public static List<TextGeometry> analyzeDocument(PDDocument doc, boolean withText) throws IOException {
+            return new ArrayList<>(new PDFContentAnalyzer(withText).analyze(doc, 1, doc.getNumberOfPages()));
+        }
+
+        // Строки страницы объектами - когда нужен текст каждой строки
         public static List<TextBlock> analyzePage(PDDocument doc, int pageNum) throws IOException {
-            PDFContentAnalyzer analyzer = new PDFContentAnalyzer();
-            analyzer.setStartPage(pageNum);
-            analyzer.setEndPage(pageNum);
-            analyzer.getText(doc);
-            return analyzer.textBlocks;
+            TextGeometry geometry = new PDFContentAnalyzer(true).analyze(doc, pageNum, pageNum).get(0);
+            List<TextBlock> blocks = new ArrayList<>(geometry.size());
+            for (int i = 0; i < geometry.size(); i++) {
+                TextBlock block = new TextBlock();
+                block.text = geometry.getText(i);
+                block.x = geometry.getX(i);
+                block.y = geometry.getY(i);
+                block.width = geometry.getWidth(i);
+                block.height = geometry.getHeight(i);
+                blocks.add(block);
+            }
+            return blocks;
         }
     }
 
 
     protected static class Stamp {
-        private final String text;
-        private final String signerName;
+        private final SignerRecord record;
         private final boolean bankEmployee;
         private final float width;
         private final float height;
-        private final String[] lines;
         private final PDType0Font regularFont;
         private final PDType0Font boldFont;
         private final boolean hasProxyInfo;
 
-        Stamp(String text, boolean bankEmployee, PDType0Font regularFont, PDType0Font boldFont, boolean hasProxyInfo) throws IOException {
-            this.text = text;
+        // Ширины строк берутся из записи подписанта (посчитаны по тем же шрифтам Times New Roman)
+        Stamp(SignerRecord record, boolean bankEmployee, PDType0Font regularFont, PDType0Font boldFont, boolean hasProxyInfo) {
+            this.record = record;
             this.bankEmployee = bankEmployee;
             this.regularFont = regularFont;
             this.boldFont = boldFont;
             this.hasProxyInfo = hasProxyInfo;
-            this.lines = text.split("\n");
-            this.signerName = extractSignerName();
+            this.width = measureWidth(record);
+            this.height = measureHeight(record, hasProxyInfo);
+        }
 
-            // Рассчитываем размеры на основе фактического текста
+        // Размеры штампа не зависят от документа, поэтому доступны планировщику без шрифтов PDF
+        static float measureWidth(SignerRecord record) {
             float maxWidth = 0;
+            for (int i = 0; i < record.getLineCount(); i++) {
+                float fontSize = (i == 0) ? STAMP_MAIN_FONT_SIZE : STAMP_REGULAR_FONT_SIZE;
+                maxWidth = Math.max(maxWidth, record.getLineWidth(i, fontSize));
+            }
+            return maxWidth + 2 * 6; // Горизонтальные отступы
+        }
+
+        static float measureHeight(SignerRecord record, boolean hasProxyInfo) {
             float totalHeight = 0;
 
             // Основной текст
-            for (int i = 0; i < lines.length; i++) {
-                PDFont font = (i < 1) ? boldFont : regularFont;
+            for (int i = 0; i < record.getLineCount(); i++) {
                 float fontSize = (i == 0) ? STAMP_MAIN_FONT_SIZE : STAMP_REGULAR_FONT_SIZE;
-                float lineWidth = getLineWidth(lines[i], font, fontSize);
-                maxWidth = Math.max(maxWidth, lineWidth);
                 totalHeight += getLineHeight(fontSize);
             }
 
@@ -159,30 +240,24 @@ public class PDFSigner {
             // Добавляем отступы (увеличенный верхний отступ)
             float verticalPadding = 8; // Увеличенный верхний отступ
             float bottomPadding = 4;   // Стандартный нижний отступ
-            this.width = maxWidth + 2 * 6; // Горизонтальные отступы
-            this.height = totalHeight + verticalPadding + bottomPadding;
-        }
-
-        private String extractSignerName() {
-            String ownerLine = lines[lines.length - 1];
-            return ownerLine.replace("Владелец: ", "").trim();
+            return totalHeight + verticalPadding + bottomPadding;
         }
 
         public String getSignerName() {
-            return signerName;
-        }
-
-        private float getLineWidth(String line, PDFont font, float fontSize) throws IOException {
-            return font.getStringWidth(line) / 1000 * fontSize;
+            return record.getFullName();
         }
 
-        private float getLineHeight(float fontSize) {
+        private static float getLineHeight(float fontSize) {
             return fontSize + 2; // Небольшой межстрочный интервал
         }
 
 
+        public SignerRecord getRecord() {
+            return record;
+        }
+
         public String getText() {
-            return text;
+            return record.getText();
         }
 
         public float getWidth() {
@@ -193,8 +268,8 @@ public class PDFSigner {
             return height;
         }
 
-        public String[] getLines() {
-            return lines;
+        public List<String> getLines() {
+            return record.getLines();
         }
 
         public boolean isBankEmployee() {
@@ -260,9 +335,7 @@ public class PDFSigner {
     }
 
     public static int getPageCount(File pdfFile) throws IOException {
-        try (PDDocument doc = PDDocument.load(pdfFile)) {
-            return doc.getNumberOfPages();
-        }
+        return PdfProbe.probe(pdfFile).getPageCount();
     }
 
     public static List<Integer> parsePageNumbers(String input, int totalPages) {
@@ -283,6 +356,14 @@ public class PDFSigner {
                     if (num > 0) {
                         numbers.add(num);
                     }
+                } else if (trimmed.matches("\\d+\\s*-\\s*\\d+")) {
+                    // Диапазон "3-5"; конец ограничен числом страниц документа
+                    String[] bounds = trimmed.split("-");
+                    int from = Math.max(1, Integer.parseInt(bounds[0].trim()));
+                    int to = Math.min(totalPages, Integer.parseInt(bounds[1].trim()));
+                    for (int num = from; num <= to; num++) {
+                        numbers.add(num);
+                    }
                 }
             } catch (NumberFormatException ignored) {
             }
@@ -294,61 +375,64 @@ public class PDFSigner {
         return numbers;
     }
 
-    public static SignatureDistribution distributeSignatures(List<File> files, String rightTitle, String additionalTitle) {
-        SignatureDistribution distribution = new SignatureDistribution();
+    /**
+     * Категории подписей по сертификатам (SignerClassifier) для
+     * distributeSignatures. Разбирает сертификаты, поэтому выполняется в
+     * фоне; файлы, сертификат которых не читается, попадают в errors.
+     */
+    public static List<SignerClassification> classifySignatures(List<File> files, Map<File, String> errors) {
+        List<File> readable = new ArrayList<>();
+        List<X509Certificate> certificates = new ArrayList<>();
         for (File file : files) {
             try {
-                String signerInfo = extractSignerInfo(file);
-                // Передаем только необходимые параметры
-                int choice = SignatureCategoryDialogController.showDialog(signerInfo, rightTitle, additionalTitle);
-                if (choice == 0) {
-                    distribution.rightSigFiles.add(file);
-                } else if (choice == 1) {
-                    distribution.additionalSigFiles.add(file);
-                } else if (choice == 2) {
-                    distribution.bankSigFiles.add(file);
-                }
+                certificates.add(SignerInfoCache.get(file).getCertificate().getCertificate());
+                readable.add(file);
             } catch (Exception e) {
-                UIUtils.showErrorAlert("Ошибка обработки подписи: " + file.getName() + "\n" + e.getMessage());
+                errors.put(file, e.getMessage());
             }
         }
-        return distribution;
+        if (readable.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return SignerClassifier.fromSystemProperties().classify(readable, certificates);
     }
 
-    protected static String parseRussianCertificateOwner(String dn) {
-        try {
-            X500Name x500name = new X500Name(dn);
-
-            String surname = getRDNAttribute(x500name, BCStyle.SURNAME);
-            String givenName = getRDNAttribute(x500name, BCStyle.GIVENNAME);
-            String initials = getRDNAttribute(x500name, BCStyle.INITIALS);
-            String title = getRDNAttribute(x500name, BCStyle.T);
-            String organization = getRDNAttribute(x500name, BCStyle.O);
-            String commonName = getRDNAttribute(x500name, BCStyle.CN);
-
-            String fullName = buildFullName(surname, givenName, initials);
-            String company = extractCompanyInfo(organization, commonName);
-
-            // Формируем результат
-            StringBuilder result = new StringBuilder("Владелец: ");
-
-            if (!title.equals("Не указано")) {
-                result.append(title);
-            }
-
-            if (!company.isEmpty()) {
-                if (!title.equals("Не указано")) {
-                    result.append("\n");
+    /**
+     * Распределение подписей по колонкам: пользователь подтверждает
+     * категории, предложенные classifySignatures, в одном окне. При отмене
+     * возвращается пустое распределение.
+     */
+    public static SignatureDistribution distributeSignatures(List<SignerClassification> classifications,
+                                                             String rightTitle, String additionalTitle) {
+        SignatureDistribution distribution = new SignatureDistribution();
+        if (classifications.isEmpty()) {
+            return distribution;
+        }
+        Optional<Map<File, SignerCategory>> categories =
+                SignatureCategoryDialogController.showSummaryDialog(classifications, rightTitle, additionalTitle);
+        if (categories.isPresent()) {
+            for (Map.Entry<File, SignerCategory> entry : categories.get().entrySet()) {
+                switch (entry.getValue()) {
+                    case BANK:
+                        distribution.bankSigFiles.add(entry.getKey());
+                        break;
+                    case RIGHT:
+                        distribution.rightSigFiles.add(entry.getKey());
+                        break;
+                    default:
+                        distribution.additionalSigFiles.add(entry.getKey());
+                        break;
                 }
-                result.append(company);
             }
+        }
+        return distribution;
+    }
 
-            result.append("\n").append(fullName);
-
-            return result.toString();
-
-        } catch (Exception e) {
-            return "Владелец: данные не распознаны\nФИО не доступно";
+    protected static String parseRussianCertificateOwner(String dn) {
+        try {
+            return formatOwnerInfo(new X500Name(dn));
+        } catch (RuntimeException e) {
+            return OWNER_UNRECOGNIZED;
         }
     }
 
@@ -360,53 +444,161 @@ public class PDFSigner {
     }
 
     public static SignatureInfo processSignatures(SignatureDistribution distribution) throws Exception {
+        return processSignatures(distribution, ProgressMonitor.NONE);
+    }
+
+    public static SignatureInfo processSignatures(SignatureDistribution distribution,
+                                                 ProgressMonitor monitor) throws Exception {
+        return processSignatures(distribution, null, monitor);
+    }
+
+    // verifications - результаты проверки подписей по документу (SignatureVerifier) для штампов или null
+    public static SignatureInfo processSignatures(SignatureDistribution distribution,
+                                                 Map<File, SignatureVerification> verifications,
+                                                 ProgressMonitor monitor) throws Exception {
+        int total = distribution.bankSigFiles.size() + distribution.rightSigFiles.size()
+                + distribution.additionalSigFiles.size();
+        int[] done = {0};
         SignatureInfo info = new SignatureInfo();
-        for (File file : distribution.bankSigFiles) info.bankSignerInfos.add(extractSignerInfo(file));
-        for (File file : distribution.rightSigFiles) info.rightSignerInfos.add(extractSignerInfo(file));
-        for (File file : distribution.additionalSigFiles) info.additionalSignerInfos.add(extractSignerInfo(file));
+        readSignerRecords(distribution.bankSigFiles, info.bankSignerInfos, verifications, monitor, done, total);
+        readSignerRecords(distribution.rightSigFiles, info.rightSignerInfos, verifications, monitor, done, total);
+        readSignerRecords(distribution.additionalSigFiles, info.additionalSignerInfos, verifications, monitor, done, total);
         return info;
     }
 
-    public static void processDocument(File pdfFile, List<Integer> pageNumbers,
-                                       SignatureInfo signatureInfo, String leftTitle,
-                                       String rightTitle, String additionalTitle,
-                                       ProxyInfo proxyInfo) throws IOException {
-        try (PDDocument doc = PDDocument.load(pdfFile)) {
-            PDType0Font font = PDType0Font.load(doc, PDFSigner.class.getResourceAsStream("/com/example/fonts/times.ttf"));
-            PDType0Font boldFont = PDType0Font.load(doc, PDFSigner.class.getResourceAsStream("/com/example/fonts/timesbd.ttf"));
+    private static void readSignerRecords(List<File> files, List<SignerRecord> records,
+                                          Map<File, SignatureVerification> verifications,
+                                          ProgressMonitor monitor, int[] done, int total) throws Exception {
+        for (File file : files) {
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.PARSE_SIGNATURES, done[0]++, total);
+            SignerRecord record = extractSignerRecord(file);
+            SignatureVerification verification = verifications != null ? verifications.get(file) : null;
+            records.add(verification != null ? withVerification(record, verification) : record);
+        }
+    }
 
-            SignatureInfo templateSignatureInfo = copySignatureInfo(signatureInfo);
+    // Результат проверки - второй строкой штампа, под заголовком
+    static SignerRecord withVerification(SignerRecord record, SignatureVerification verification) throws IOException {
+        List<String> lines = new ArrayList<>(record.getLines());
+        lines.add(1, verification.getStampLine());
+        return createSignerRecord(String.join("\n", lines));
+    }
 
-            for (int pageNumber : pageNumbers) {
-                int adjustedPageNumber = (pageNumber == -1) ? doc.getNumberOfPages() : pageNumber;
-                while (adjustedPageNumber > doc.getNumberOfPages()) {
-                    doc.addPage(new PDPage(PDRectangle.A4));
-                }
+    // Все файлы подписей распределения: банк, правая колонка, дополнительная
+    public static List<File> allSignatureFiles(SignatureDistribution distribution) {
+        List<File> files = new ArrayList<>();
+        files.addAll(distribution.bankSigFiles);
+        files.addAll(distribution.rightSigFiles);
+        files.addAll(distribution.additionalSigFiles);
+        return files;
+    }
 
-                PDPage page = doc.getPage(adjustedPageNumber - 1);
-                SignatureInfo currentSignatureInfo = copySignatureInfo(templateSignatureInfo);
+    public static LayoutPlan processDocument(File pdfFile, List<Integer> pageNumbers,
+                                             SignatureInfo signatureInfo, String leftTitle,
+                                             String rightTitle, String additionalTitle,
+                                             ProxyInfo proxyInfo) throws IOException {
+        return processDocument(pdfFile, pageNumbers, signatureInfo, leftTitle, rightTitle, additionalTitle,
+                proxyInfo, StampSettings.defaults());
+    }
+
+    public static LayoutPlan processDocument(File pdfFile, List<Integer> pageNumbers,
+                                             SignatureInfo signatureInfo, String leftTitle,
+                                             String rightTitle, String additionalTitle,
+                                             ProxyInfo proxyInfo, StampSettings settings) throws IOException {
+        return processDocument(pdfFile, pageNumbers, signatureInfo, leftTitle, rightTitle, additionalTitle,
+                proxyInfo, settings, ProgressMonitor.NONE);
+    }
 
-                addStampsToPage(doc, page, currentSignatureInfo, leftTitle,
-                        rightTitle, additionalTitle, font, boldFont, proxyInfo);
+    // Возвращает план размещения; в пробном режиме документ не изменяется и не сохраняется
+    public static LayoutPlan processDocument(File pdfFile, List<Integer> pageNumbers,
+                                             SignatureInfo signatureInfo, String leftTitle,
+                                             String rightTitle, String additionalTitle,
+                                             ProxyInfo proxyInfo, StampSettings settings,
+                                             ProgressMonitor monitor) throws IOException {
+        StampLayoutPlanner planner = new StampLayoutPlanner(signatureInfo, leftTitle, rightTitle, additionalTitle, proxyInfo);
+        boolean placeByContent = settings.isAvoidContent() || settings.isAutoPlace();
+        if (settings.isDryRun() && !placeByContent) {
+            // Для плана достаточно размеров страниц - документ целиком не разбирается
+            monitor.phase(ProgressMonitor.Phase.LAYOUT, 0, 0);
+            return planner.plan(PdfProbe.probe(pdfFile, true).getPageSizes(), pageNumbers);
+        }
+
+        monitor.phase(ProgressMonitor.Phase.LOAD, 0, 0);
+        try (DocumentLoader.LoadedDocument loaded = DocumentLoader.load(pdfFile)) {
+            PDDocument doc = loaded.getDocument();
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.LAYOUT, 0, 0);
+            List<PDRectangle> pageSizes = new ArrayList<>(doc.getNumberOfPages());
+            for (PDPage page : doc.getPages()) {
+                pageSizes.add(page.getMediaBox());
+            }
+            Map<Integer, PageOccupancy> occupancy = placeByContent
+                    ? scanPages(doc, pageNumbers, settings.isAutoPlace()) : new HashMap<>();
+            LayoutPlan plan = planner.plan(pageSizes, pageNumbers, occupancy);
+            if (settings.isDryRun()) {
+                return plan;
+            }
+
+            PDType0Font font = FontCache.load(doc, FontCache.TIMES_REGULAR);
+            PDType0Font boldFont = FontCache.load(doc, FontCache.TIMES_BOLD);
+
+            // Штампы и заголовки, общие для всех страниц документа
+            StampFormCache forms = settings.isUseFormXObjects() ? new StampFormCache(doc, proxyInfo) : null;
+
+            List<PDPage> changedPages = renderPlan(doc, plan, font, boldFont, proxyInfo, forms, monitor);
+            monitor.phase(ProgressMonitor.Phase.SAVE, 0, 0);
+            File output = new File(pdfFile.getParent(), "ВИЗУАЛИЗАЦИЯ_" + pdfFile.getName());
+            DocumentSaver.save(doc, output, settings.isIncrementalSave(), changedPages, Arrays.asList(font, boldFont));
+            return plan;
+        }
+    }
+
+    // Занятые области запрошенных страниц (номер -1 - последняя): по изображению или по содержимому
+    private static Map<Integer, PageOccupancy> scanPages(PDDocument doc, List<Integer> pageNumbers,
+                                                         boolean raster) throws IOException {
+        Map<Integer, PageOccupancy> occupancy = new HashMap<>();
+        int pageCount = doc.getNumberOfPages();
+        for (int pageNumber : pageNumbers) {
+            int adjustedPageNumber = (pageNumber == -1) ? pageCount : pageNumber;
+            if (adjustedPageNumber >= 1 && adjustedPageNumber <= pageCount && !occupancy.containsKey(adjustedPageNumber)) {
+                occupancy.put(adjustedPageNumber, raster
+                        ? RasterOccupancy.render(doc, adjustedPageNumber - 1)
+                        : PageContentScanner.index(doc.getPage(adjustedPageNumber - 1)));
             }
-            saveResult(doc, pdfFile);
         }
+        return occupancy;
     }
 
     public static void createProtocol(File pdfFile, ProtocolData protocolData,
                                       PDFAreaSelector.SelectedArea selectedArea,
                                       File employeeSignatureFile,
                                       ProtocolSettings settings) throws IOException {
-        try (PDDocument doc = PDDocument.load(pdfFile)) {
+        createProtocol(pdfFile, protocolData, selectedArea, employeeSignatureFile, settings, ProgressMonitor.NONE);
+    }
+
+    public static void createProtocol(File pdfFile, ProtocolData protocolData,
+                                      PDFAreaSelector.SelectedArea selectedArea,
+                                      File employeeSignatureFile,
+                                      ProtocolSettings settings, ProgressMonitor monitor) throws IOException {
+        monitor.phase(ProgressMonitor.Phase.LOAD, 0, 0);
+        try (DocumentLoader.LoadedDocument loaded = DocumentLoader.load(pdfFile)) {
+            PDDocument doc = loaded.getDocument();
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.DRAW, 0, 0);
+            List<PDPage> changedPages = new ArrayList<>();
+
             // Если нужно добавить пустую страницу и она еще не добавлена
             if (settings.isAddBlankPage() && selectedArea.pageIndex >= doc.getNumberOfPages() - 1) {
-                doc.addPage(new PDPage(PDRectangle.A4));
+                PDPage blankPage = new PDPage(PDRectangle.A4);
+                doc.addPage(blankPage);
+                changedPages.add(blankPage);
             }
 
-            PDType0Font regularFont = PDType0Font.load(doc,
-                    PDFSigner.class.getResourceAsStream("/com/example/fonts/times.ttf"));
-            PDType0Font boldFont = PDType0Font.load(doc,
-                    PDFSigner.class.getResourceAsStream("/com/example/fonts/timesbd.ttf"));
+            PDType0Font regularFont = FontCache.load(doc, FontCache.TIMES_REGULAR);
+            PDType0Font boldFont = FontCache.load(doc, FontCache.TIMES_BOLD);
+            FontCache.CachedFont regularMetrics = FontCache.get(FontCache.TIMES_REGULAR);
+            FontCache.CachedFont boldMetrics = FontCache.get(FontCache.TIMES_BOLD);
 
             PDImageXObject signatureImage = null;
             float signatureHeight = 30;
@@ -421,17 +613,29 @@ public class PDFSigner {
             // Убедимся, что выбранная страница существует
             int targetPageIndex = Math.min(selectedArea.pageIndex, doc.getNumberOfPages() - 1);
             PDPage page = doc.getPage(targetPageIndex);
+            changedPages.add(page);
+
+            float startX = (float) selectedArea.clickX;
+            float startY = (float) selectedArea.clickY;
+            PDRectangle slot = settings.isAutoPlace()
+                    ? findProtocolSlot(doc, targetPageIndex, protocolData, signatureImage, signatureHeight)
+                    : null;
+            if (slot != null) {
+                startX = slot.getLowerLeftX();
+                startY = slot.getUpperRightY() - PROTOCOL_TEXT_FONT_SIZE;
+            } else if (settings.isAvoidContent()) {
+                float[] position = protocolPositionClearOfContent(page, protocolData, signatureImage,
+                        signatureHeight, startX, startY);
+                startX = position[0];
+                startY = position[1];
+            }
 
             try (PDPageContentStream cs = new PDPageContentStream(doc, page,
                     PDPageContentStream.AppendMode.APPEND, true, true)) {
 
-                float startX = (float) selectedArea.clickX;
-                float startY = (float) selectedArea.clickY;
-
-                // Увеличиваем шрифт на 1/3 (было 6.7f, теперь 8.9f)
-                float fontSize = 8.9f; // PROTOCOL_FONT_SIZE * 4/3
-                float lineHeight = 14; // Увеличиваем межстрочный интервал пропорционально
-                float extraLineHeight = 18; // Дополнительный интервал для даты проверки
+                float fontSize = PROTOCOL_TEXT_FONT_SIZE;
+                float lineHeight = PROTOCOL_LINE_HEIGHT;
+                float extraLineHeight = PROTOCOL_EXTRA_LINE_HEIGHT;
                 PDColor blackColor = new PDColor(new float[]{0, 0, 0}, PDDeviceRGB.INSTANCE);
 
                 // 1. Тип договора и реквизиты
@@ -439,7 +643,8 @@ public class PDFSigner {
                         protocolData.getDocType(),
                         protocolData.getDocNumber(),
                         protocolData.getDocDate());
-                addProtocolTextWithWrap(cs, boldFont, fontSize, startX, startY, docInfo, 400);
+                addProtocolTextWithWrap(cs, boldFont, boldMetrics, fontSize, startX, startY, docInfo,
+                        PROTOCOL_WRAP_WIDTH);
                 startY -= lineHeight * 1.5f;
 
                 // 2. Подписи
@@ -449,7 +654,8 @@ public class PDFSigner {
                 // 3. Список подписантов с переносом строк
                 for (String signer : protocolData.getSigners()) {
                     // Получаем фактическую высоту текста с учетом переносов
-                    float textHeight = addProtocolTextWithWrap(cs, regularFont, fontSize, startX, startY, "• " + signer, 400);
+                    float textHeight = addProtocolLines(cs, regularFont, fontSize, startX, startY,
+                            signerLines(regularMetrics, fontSize, signer));
                     startY -= textHeight;
                 }
 
@@ -460,8 +666,8 @@ public class PDFSigner {
                 startY -= extraLineHeight; // Увеличиваем интервал после даты проверки
 
                 // 5. Заключительная строка с подписью
-                String verificationText = "Проверка действительности УЭК проведена: ";
-                float textWidth = boldFont.getStringWidth(verificationText) / 1000 * fontSize;
+                String verificationText = PROTOCOL_VERIFIED_BY;
+                float textWidth = TextLayout.width(boldMetrics, fontSize, verificationText);
 
                 // Первая часть жирным
                 cs.beginText();
@@ -471,12 +677,13 @@ public class PDFSigner {
                 cs.showText(verificationText);
                 cs.endText();
 
-                // ФИО обычным
+                // ФИО обычным, длинное - уменьшенным кеглем в пределах ширины протокола
                 String employeeName = protocolData.getEmployeeName();
-                float nameWidth = regularFont.getStringWidth(employeeName) / 1000 * fontSize;
+                float nameFontSize = employeeNameFontSize(boldMetrics, regularMetrics, fontSize, employeeName);
+                float nameWidth = TextLayout.width(regularMetrics, nameFontSize, employeeName);
 
                 cs.beginText();
-                cs.setFont(regularFont, fontSize);
+                cs.setFont(regularFont, nameFontSize);
                 cs.setNonStrokingColor(blackColor);
                 cs.newLineAtOffset(startX + textWidth, startY);
                 cs.showText(employeeName);
@@ -491,453 +698,287 @@ public class PDFSigner {
                 }
             }
 
+            monitor.phase(ProgressMonitor.Phase.SAVE, 0, 0);
             File output = new File(pdfFile.getParent(), "ПОДПИСАННЫЙ_" + pdfFile.getName());
-            doc.save(output);
+            DocumentSaver.save(doc, output, settings.isIncrementalSave(), changedPages,
+                    Arrays.asList(regularFont, boldFont));
         }
     }
 
-    private static float addProtocolTextWithWrap(PDPageContentStream cs, PDFont font, float fontSize,
-                                                 float x, float y, String text, float maxWidth) throws IOException {
-        String[] words = text.split(" ");
-        StringBuilder currentLine = new StringBuilder();
-        float currentY = y;
-        int lineCount = 0;
-
-        for (String word : words) {
-            String testLine = currentLine.length() > 0 ? currentLine + " " + word : word;
-            float testWidth = font.getStringWidth(testLine) / 1000 * fontSize;
-
-            if (testWidth <= maxWidth) {
-                currentLine.append(currentLine.length() > 0 ? " " : "").append(word);
-            } else {
-                // Выводим текущую строку
-                if (currentLine.length() > 0) {
-                    addProtocolText(cs, font, fontSize, x, currentY, currentLine.toString());
-                    currentY -= fontSize + 3; // Увеличиваем межстрочный интервал пропорционально
-                    lineCount++;
-                }
-
-                // Если слово само по себе длиннее maxWidth, разбиваем его
-                if (font.getStringWidth(word) / 1000 * fontSize > maxWidth) {
-                    StringBuilder currentWord = new StringBuilder();
-                    for (char c : word.toCharArray()) {
-                        String testChar = currentWord.toString() + c;
-                        if (font.getStringWidth(testChar) / 1000 * fontSize > maxWidth) {
-                            addProtocolText(cs, font, fontSize, x, currentY, currentWord.toString());
-                            currentY -= fontSize + 3;
-                            lineCount++;
-                            currentWord = new StringBuilder(String.valueOf(c));
-                        } else {
-                            currentWord.append(c);
-                        }
-                    }
-                    currentLine = currentWord;
-                } else {
-                    currentLine = new StringBuilder(word);
-                }
-            }
-        }
-
-        // Выводим последнюю строку
-        if (currentLine.length() > 0) {
-            addProtocolText(cs, font, fontSize, x, currentY, currentLine.toString());
-            lineCount++;
-        }
-
-        // Возвращаем фактическую высоту текста (количество строк * высота строки)
-        return lineCount * (fontSize + 3);
+    /**
+     * Место для протокола на странице: первое сверху свободное по карте
+     * занятости с низким разрешением, в пределах полей. null - места нет.
+     */
+    private static PDRectangle findProtocolSlot(PDDocument doc, int pageIndex, ProtocolData protocolData,
+                                                PDImageXObject signatureImage, float signatureHeight) throws IOException {
+        float[] size = measureProtocol(protocolData, signatureImage, signatureHeight);
+        RasterOccupancy occupancy = RasterOccupancy.render(doc, pageIndex);
+        PDRectangle cropBox = doc.getPage(pageIndex).getCropBox();
+        PDRectangle area = new PDRectangle(cropBox.getLowerLeftX() + PROTOCOL_PAGE_MARGIN,
+                cropBox.getLowerLeftY() + PROTOCOL_PAGE_MARGIN,
+                cropBox.getWidth() - 2 * PROTOCOL_PAGE_MARGIN,
+                cropBox.getHeight() - 2 * PROTOCOL_PAGE_MARGIN);
+        PDRectangle slot = occupancy.findSlot(area, size[0], size[1], MIN_TEXT_MARGIN);
+        if (slot == null) {
+            System.err.println("Свободного места для протокола на странице " + (pageIndex + 1) +
+                    " не найдено, протокол размещается в заданной точке");
+        }
+        return slot;
     }
 
-    private static void addProtocolText(PDPageContentStream cs, PDFont font, float fontSize,
-                                        float x, float y, String text) throws IOException {
-        cs.beginText();
-        cs.setFont(font, fontSize);
-        cs.setNonStrokingColor(new PDColor(new float[]{0, 0, 0}, PDDeviceRGB.INSTANCE));
-        cs.newLineAtOffset(x, y);
-        cs.showText(text);
-        cs.endText();
+    /**
+     * Ближайшее к выбранному положение протокола {x, базовая линия первой
+     * строки}, при котором он не ложится на содержимое страницы: сначала
+     * ищется место ниже, затем выше в той же колонке, затем - наибольший
+     * свободный прямоугольник страницы в пределах полей. Если места нет,
+     * остается выбранное положение.
+     */
+    private static float[] protocolPositionClearOfContent(PDPage page, ProtocolData protocolData,
+                                                          PDImageXObject signatureImage, float signatureHeight,
+                                                          float startX, float startY) throws IOException {
+        float fontSize = PROTOCOL_TEXT_FONT_SIZE;
+        float[] size = measureProtocol(protocolData, signatureImage, signatureHeight);
+        float width = size[0];
+        float height = size[1];
+
+        TextBlockIndex content = PageContentScanner.index(page);
+        float selectedTop = startY + fontSize;
+        float below = content.findFreeBelow(startX, selectedTop, width, height, MIN_TEXT_MARGIN);
+        float above = content.findFreeAbove(startX, selectedTop - height, width, height, MIN_TEXT_MARGIN) + height;
+        boolean fitsBelow = below - height >= 0;
+        boolean fitsAbove = above <= content.getPageHeight();
+        if (fitsBelow && (!fitsAbove || selectedTop - below <= above - selectedTop)) {
+            return new float[]{startX, below - fontSize};
+        }
+        if (fitsAbove) {
+            return new float[]{startX, above - fontSize};
+        }
+
+        PDRectangle area = new PDRectangle(PROTOCOL_PAGE_MARGIN, PROTOCOL_PAGE_MARGIN,
+                content.getPageWidth() - 2 * PROTOCOL_PAGE_MARGIN, content.getPageHeight() - 2 * PROTOCOL_PAGE_MARGIN);
+        PDRectangle empty = content.findLargestEmpty(area, width + 2 * MIN_TEXT_MARGIN, height + 2 * MIN_TEXT_MARGIN);
+        if (empty != null) {
+            return new float[]{empty.getLowerLeftX() + MIN_TEXT_MARGIN,
+                    empty.getUpperRightY() - MIN_TEXT_MARGIN - fontSize};
+        }
+        System.err.println("Свободного места для протокола на странице нет, протокол размещается как выбрано");
+        return new float[]{startX, startY};
     }
 
-    private static float calculateFontSize(PDFont font, String text, float maxWidth, float initialSize)
-            throws IOException {
-        float size = initialSize;
-        float textWidth = font.getStringWidth(text) / 1000 * size;
-
-        while (textWidth > maxWidth && size > 6) {
-            size -= 0.5f;
-            textWidth = font.getStringWidth(text) / 1000 * size;
-        }
-
-        return size;
+    // Ширина и высота протокола: от верха первой строки до низа подписи
+    private static float[] measureProtocol(ProtocolData protocolData, PDImageXObject signatureImage,
+                                           float signatureHeight) throws IOException {
+        FontCache.CachedFont regular = FontCache.get(FontCache.TIMES_REGULAR);
+        FontCache.CachedFont bold = FontCache.get(FontCache.TIMES_BOLD);
+        float fontSize = PROTOCOL_TEXT_FONT_SIZE;
+        float height = PROTOCOL_LINE_HEIGHT * 2.5f + 5 + PROTOCOL_EXTRA_LINE_HEIGHT;
+        for (String signer : protocolData.getSigners()) {
+            height += addProtocolLines(null, null, fontSize, 0, 0, signerLines(regular, fontSize, signer));
+        }
+        // Над первой строкой - высота шрифта, под последней - подпись, опущенная на 5 пунктов
+        height += fontSize + 5;
+
+        String employeeName = protocolData.getEmployeeName();
+        float width = TextLayout.width(bold, fontSize, PROTOCOL_VERIFIED_BY) + TextLayout.width(regular,
+                employeeNameFontSize(bold, regular, fontSize, employeeName), employeeName);
+        if (signatureImage != null) {
+            width += 10 + signatureImage.getWidth() * signatureHeight / signatureImage.getHeight();
+        }
+        return new float[]{Math.max(width, PROTOCOL_WRAP_WIDTH), height};
     }
 
-    private static void addTextWithAlignment(PDPageContentStream cs, PDFont font, float fontSize,
-                                             float x, float y, String text, float maxWidth) throws IOException {
-        float textWidth = font.getStringWidth(text) / 1000 * fontSize;
-        float startX = x;
-
-        // Если текст шире доступной области - переносим по словам
-        if (textWidth > maxWidth) {
-            String[] words = text.split(" ");
-            StringBuilder currentLine = new StringBuilder();
-
-            for (String word : words) {
-                String testLine = currentLine + (currentLine.length() > 0 ? " " : "") + word;
-                float testWidth = font.getStringWidth(testLine) / 1000 * fontSize;
-
-                if (testWidth <= maxWidth) {
-                    currentLine.append(currentLine.length() > 0 ? " " : "").append(word);
-                } else {
-                    if (currentLine.length() > 0) {
-                        // Выводим текущую строку
-                        cs.beginText();
-                        cs.setFont(font, fontSize);
-                        cs.newLineAtOffset(startX, y);
-                        cs.showText(currentLine.toString());
-                        cs.endText();
-                        y -= fontSize + 2;
-                        currentLine = new StringBuilder(word);
-                    } else {
-                        // Слово слишком длинное - разбиваем принудительно
-                        for (char c : word.toCharArray()) {
-                            float charWidth = font.getStringWidth(String.valueOf(c)) / 1000 * fontSize;
-                            if (font.getStringWidth(currentLine.toString() + c) / 1000 * fontSize > maxWidth) {
-                                cs.beginText();
-                                cs.setFont(font, fontSize);
-                                cs.newLineAtOffset(startX, y);
-                                cs.showText(currentLine.toString());
-                                cs.endText();
-                                y -= fontSize + 2;
-                                currentLine = new StringBuilder();
-                            }
-                            currentLine.append(c);
-                        }
-                    }
-                }
-            }
-
-            // Выводим последнюю строку
-            if (currentLine.length() > 0) {
-                cs.beginText();
-                cs.setFont(font, fontSize);
-                cs.newLineAtOffset(startX, y);
-                cs.showText(currentLine.toString());
-                cs.endText();
-            }
-        } else {
-            // Текст помещается в одну строку
-            cs.beginText();
-            cs.setFont(font, fontSize);
-            cs.newLineAtOffset(startX, y);
-            cs.showText(text);
-            cs.endText();
-        }
+    // При cs == null строки только считаются - для измерения высоты; ширины берутся из metrics
+    static float addProtocolTextWithWrap(PDPageContentStream cs, PDFont font, FontCache.CachedFont metrics,
+                                         float fontSize, float x, float y, String text, float maxWidth)
+            throws IOException {
+        return addProtocolLines(cs, font, fontSize, x, y, TextLayout.wrap(metrics, fontSize, text, maxWidth));
     }
 
-    private static void addDocumentInfo(PDDocument doc, PDPage page, ProtocolData protocolData) throws IOException {
-        List<PDFContentAnalyzer.TextBlock> existingText = PDFContentAnalyzer.analyzePage(doc, 1);
-        float startY = findPositionForDocumentInfo(page, existingText, 100);
-
-        try (PDPageContentStream cs = new PDPageContentStream(doc, page,
-                PDPageContentStream.AppendMode.APPEND, true, true)) {
-            PDType0Font font = loadFont(doc);
-
-            addText(cs, font, BASE_FONT_SIZE + 2, 50, startY,
-                    "Результат проверки пакета документов", existingText);
-
-            String docInfo = String.format("%s №%s от %s",
-                    protocolData.getDocType(),
-                    protocolData.getDocNumber(),
-                    protocolData.getDocDate());
-            addText(cs, font, BASE_FONT_SIZE, 50, startY - LINE_SPACING, docInfo, existingText);
-
-            float currentY = startY - 2 * LINE_SPACING;
-            for (String signer : protocolData.getSigners()) {
-                addText(cs, font, BASE_FONT_SIZE, 50, currentY, "Подпись: " + signer, existingText);
-                currentY -= LINE_SPACING;
-            }
+    // Строки одна под другой; возвращает их высоту
+    private static float addProtocolLines(PDPageContentStream cs, PDFont font, float fontSize, float x, float y,
+                                          List<String> lines) throws IOException {
+        float currentY = y;
+        for (String line : lines) {
+            addProtocolText(cs, font, fontSize, x, currentY, line);
+            currentY -= fontSize + 3; // Межстрочный интервал пропорционален кеглю
         }
-    }
 
-    private static void addVerificationInfo(PDDocument doc, PDPage page, ProtocolData protocolData) throws IOException {
-        List<PDFContentAnalyzer.TextBlock> existingText = PDFContentAnalyzer.analyzePage(doc, doc.getNumberOfPages());
-        float startY = findPositionForVerificationInfo(page, existingText, 50);
-
-        try (PDPageContentStream cs = new PDPageContentStream(doc, page,
-                PDPageContentStream.AppendMode.APPEND, true, true)) {
-            PDType0Font font = loadFont(doc);
-            String verificationInfo = String.format(
-                    "Проверка действительности УЭК проведена %s %s ",
-                    protocolData.getVerificationDate(),
-                    protocolData.getEmployeeName());
-
-            addText(cs, font, LARGE_FONT_SIZE, 50, startY, verificationInfo, existingText);
-        }
+        // Фактическая высота текста (количество строк * высота строки)
+        return lines.size() * (fontSize + 3);
     }
 
-    private static float findPositionForDocumentInfo(PDPage page, List<PDFContentAnalyzer.TextBlock> existingText, float requiredHeight) {
-        PDRectangle mediaBox = page.getMediaBox();
-        float startY = mediaBox.getHeight() - 50;
-
-        for (PDFContentAnalyzer.TextBlock block : existingText) {
-            if (block.y > startY - requiredHeight && block.y < startY) {
-                startY = block.y - requiredHeight - MIN_TEXT_MARGIN;
-            }
-        }
-        return startY;
+    // Подписант с переносом по наименьшей неровности края: без коротких хвостов из одного слова
+    private static List<String> signerLines(FontCache.CachedFont metrics, float fontSize, String signer) {
+        return TextLayout.wrapBalanced(metrics, fontSize, "• " + signer, PROTOCOL_WRAP_WIDTH);
     }
 
-    private static float findPositionForVerificationInfo(PDPage page, List<PDFContentAnalyzer.TextBlock> existingText, float requiredHeight) {
-        float startY = 50;
-        for (PDFContentAnalyzer.TextBlock block : existingText) {
-            if (block.y < startY + requiredHeight && block.y > startY) {
-                startY = block.y + block.height + MIN_TEXT_MARGIN;
-            }
-        }
-        return startY;
+    // Кегль ФИО: строка "Проверка ... проведена: ФИО" помещается в ширину протокола
+    private static float employeeNameFontSize(FontCache.CachedFont bold, FontCache.CachedFont regular,
+                                              float fontSize, String employeeName) {
+        float available = PROTOCOL_WRAP_WIDTH - TextLayout.width(bold, fontSize, PROTOCOL_VERIFIED_BY);
+        return TextLayout.fitFontSize(regular, employeeName, available, fontSize, PROTOCOL_MIN_NAME_FONT_SIZE);
     }
 
-    private static void addText(PDPageContentStream cs, PDFont font, float size,
-                                float x, float y, String text, List<PDFContentAnalyzer.TextBlock> existingText) throws IOException {
-        float textWidth = font.getStringWidth(text) / 1000 * size;
-        if (!isSpaceFree(x, y, textWidth, size, existingText)) {
-            y = findFreeSpaceAbove(y, textWidth, size, existingText);
+    private static void addProtocolText(PDPageContentStream cs, PDFont font, float fontSize,
+                                        float x, float y, String text) throws IOException {
+        if (cs == null) {
+            return;
         }
-
         cs.beginText();
-        cs.setFont(font, size);
+        cs.setFont(font, fontSize);
+        cs.setNonStrokingColor(new PDColor(new float[]{0, 0, 0}, PDDeviceRGB.INSTANCE));
         cs.newLineAtOffset(x, y);
         cs.showText(text);
         cs.endText();
     }
 
-    private static boolean isSpaceFree(float x, float y, float width, float height, List<PDFContentAnalyzer.TextBlock> existingText) {
-        if (existingText == null || existingText.isEmpty()) {
-            return true;
-        }
-        for (PDFContentAnalyzer.TextBlock block : existingText) {
-            if (y < block.y + block.height &&
-                    y + height > block.y &&
-                    x < block.x + block.width &&
-                    x + width > block.x) {
-                return false;
+    // Возвращает измененные и добавленные страницы (для инкрементального сохранения)
+    static List<PDPage> renderPlan(PDDocument doc, LayoutPlan plan, PDType0Font font, PDType0Font boldFont,
+                                   ProxyInfo proxyInfo, StampFormCache forms,
+                                   ProgressMonitor monitor) throws IOException {
+        // Страницы исходного документа запоминаются до вставки страниц продолжения
+        List<PDPage> sourcePages = new ArrayList<>(doc.getNumberOfPages());
+        for (PDPage page : doc.getPages()) {
+            sourcePages.add(page);
+        }
+
+        List<PDPage> changedPages = new ArrayList<>();
+        PDPage previous = null;
+        int done = 0;
+        for (PagePlan pagePlan : plan.getPages()) {
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.DRAW, done++, plan.getPages().size());
+            PDPage page;
+            if (pagePlan.isContinuation()) {
+                page = new PDPage(new PDRectangle(pagePlan.getPageWidth(), pagePlan.getPageHeight()));
+                doc.getPages().insertAfter(page, previous);
+            } else {
+                while (pagePlan.getPageNumber() > sourcePages.size()) {
+                    PDPage blank = new PDPage(PDRectangle.A4);
+                    doc.addPage(blank);
+                    sourcePages.add(blank);
+                    changedPages.add(blank);
+                }
+                page = sourcePages.get(pagePlan.getPageNumber() - 1);
             }
-        }
-        return true;
-    }
 
-    private static float findFreeSpaceAbove(float y, float width, float height, List<PDFContentAnalyzer.TextBlock> existingText) {
-        float newY = y;
-        for (PDFContentAnalyzer.TextBlock block : existingText) {
-            if (newY < block.y + block.height && newY + height > block.y) {
-                newY = block.y + block.height + MIN_TEXT_MARGIN;
-            }
+            drawPagePlan(doc, page, pagePlan, font, boldFont, proxyInfo, forms);
+            changedPages.add(page);
+            previous = page;
         }
-        return newY;
-    }
-
-    private static PDType0Font loadFont(PDDocument doc) throws IOException {
-        return PDType0Font.load(doc, PDFSigner.class.getResourceAsStream("/com/example/fonts/times.ttf"));
+        return changedPages;
     }
 
-    private static SignatureInfo copySignatureInfo(SignatureInfo original) {
-        SignatureInfo copy = new SignatureInfo();
-        copy.bankSignerInfos.addAll(new ArrayList<>(original.bankSignerInfos));
-        copy.rightSignerInfos.addAll(new ArrayList<>(original.rightSignerInfos));
-        copy.additionalSignerInfos.addAll(new ArrayList<>(original.additionalSignerInfos));
-        return copy;
-    }
-
-    private static StampPosition addStampsToPage(PDDocument doc, PDPage page,
-                                                 SignatureInfo signatureInfo, String leftTitle,
-                                                 String rightTitle, String additionalTitle,
-                                                 PDType0Font font, PDType0Font boldFont,
-                                                 ProxyInfo proxyInfo) throws IOException {
-        PDRectangle pageSize = page.getMediaBox();
-
-        float marginHorizontal = 30;
-        float marginVertical = 50;
-        float columnSpacing = 20;
-        float titleToStampSpacing = 15; // Отступ между заголовком и штампами
-        float stampSpacing = 5; // Интервал между штампами
-
-        // Создаем штампы с информацией о доверенности
-        List<Stamp> leftStamps = createStamps(signatureInfo.bankSignerInfos, true, font, boldFont, proxyInfo);
-        List<Stamp> rightStamps = createStamps(signatureInfo.rightSignerInfos, false, font, boldFont, proxyInfo);
-        List<Stamp> additionalStamps = createStamps(signatureInfo.additionalSignerInfos, false, font, boldFont, proxyInfo);
-
-        // Рассчитываем ширину колонок на основе фактического содержания
-        float leftColumnWidth = calculateDynamicColumnWidth(leftStamps);
-        float rightColumnWidth = calculateDynamicColumnWidth(rightStamps);
-        float additionalColumnWidth = calculateDynamicColumnWidth(additionalStamps);
-
-        // Выравниваем ширину всех трех колонок по максимальной
-        float maxColumnWidth = Math.max(leftColumnWidth, Math.max(rightColumnWidth, additionalColumnWidth));
-        leftColumnWidth = maxColumnWidth;
-        rightColumnWidth = maxColumnWidth;
-        additionalColumnWidth = maxColumnWidth;
-
-        float maxAvailableWidth = pageSize.getWidth() - 2 * marginHorizontal;
-
-        // Определяем, есть ли подписи в дополнительной категории
-        boolean hasAdditionalSignatures = !additionalStamps.isEmpty();
-
-        float leftX, rightX, additionalX;
+    private static void drawPagePlan(PDDocument doc, PDPage page, PagePlan pagePlan,
+                                     PDType0Font font, PDType0Font boldFont,
+                                     ProxyInfo proxyInfo, StampFormCache forms) throws IOException {
+        if (pagePlan.getColumns().isEmpty()) {
+            return;
+        }
 
-        if (hasAdditionalSignatures) {
-            // Есть подписи в категории Поручители и/или залогодатели - размещаем все три колонки
-            float totalColumnsWidth = leftColumnWidth + columnSpacing + rightColumnWidth + columnSpacing + additionalColumnWidth;
+        try (PDPageContentStream cs = new PDPageContentStream(
+                doc, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+            for (ColumnPlacement column : pagePlan.getColumns()) {
+                placeColumnTitle(cs, forms, boldFont, column.getTitle(), column.getX(), column.getTitleY(), column.getWidth());
 
-            // Если не помещается, масштабируем
-            if (totalColumnsWidth > maxAvailableWidth) {
-                float scaleFactor = maxAvailableWidth / totalColumnsWidth;
-                leftColumnWidth *= scaleFactor;
-                rightColumnWidth *= scaleFactor;
-                additionalColumnWidth *= scaleFactor;
+                boolean bank = column.getColumn() == ColumnPlacement.Column.BANK;
+                for (StampPlacement placement : column.getStamps()) {
+                    Stamp stamp = new Stamp(placement.getRecord(), bank, font, boldFont, placement.hasProxyInfo());
+                    placeStamp(cs, forms, stamp, placement.getX(), placement.getY(), placement.getWidth(), proxyInfo);
+                }
             }
+        }
+    }
 
-            // Выравниваем все три колонки рядом
-            float groupWidth = leftColumnWidth + columnSpacing + rightColumnWidth + columnSpacing + additionalColumnWidth;
-            float groupStartX = (pageSize.getWidth() - groupWidth) / 2;
-
-            leftX = groupStartX;
-            rightX = groupStartX + leftColumnWidth + columnSpacing;
-            additionalX = rightX + rightColumnWidth + columnSpacing;
+    // Заголовок колонки: через Form XObject, если включен режим переиспользования
+    private static void placeColumnTitle(PDPageContentStream cs, StampFormCache forms, PDFont font,
+                                         String title, float x, float y, float width) throws IOException {
+        if (forms == null) {
+            drawColumnTitle(cs, font, title, x, y, width);
         } else {
-            // Нет подписей в категории Поручители и/или залогодатели - размещаем только две колонки по краям
-            float totalColumnsWidth = leftColumnWidth + columnSpacing + rightColumnWidth;
-
-            // Если не помещается, масштабируем
-            if (totalColumnsWidth > maxAvailableWidth) {
-                float scaleFactor = maxAvailableWidth / totalColumnsWidth;
-                leftColumnWidth *= scaleFactor;
-                rightColumnWidth *= scaleFactor;
-            }
-
-            // Размещаем колонки по краям листа
-            leftX = marginHorizontal;
-            rightX = pageSize.getWidth() - marginHorizontal - rightColumnWidth;
-            additionalX = 0; // Не используется
+            drawFormAt(cs, forms.getTitleForm(font, title, width), x, y);
         }
+    }
 
-        // Вычисляем высоту заголовков
-        float titleHeight = getColumnTitleHeight();
-
-        // Вычисляем высоту штампов для каждой колонки
-        float leftStampsHeight = calculateDynamicColumnHeight(leftStamps, stampSpacing);
-        float rightStampsHeight = calculateDynamicColumnHeight(rightStamps, stampSpacing);
-        float additionalStampsHeight = calculateDynamicColumnHeight(additionalStamps, stampSpacing);
-
-        // Находим максимальную высоту штампов
-        float maxStampsHeight;
-        if (hasAdditionalSignatures) {
-            maxStampsHeight = Math.max(leftStampsHeight, Math.max(rightStampsHeight, additionalStampsHeight));
+    private static void placeStamp(PDPageContentStream cs, StampFormCache forms, Stamp stamp,
+                                   float x, float y, float width, ProxyInfo proxyInfo) throws IOException {
+        if (forms == null) {
+            drawStamp(cs, stamp, x, y, width, proxyInfo);
         } else {
-            maxStampsHeight = Math.max(leftStampsHeight, rightStampsHeight);
+            drawFormAt(cs, forms.getStampForm(stamp, width), x, y);
         }
+    }
 
-        // Общая высота блока (заголовки + отступ + штампы)
-        float totalBlockHeight = titleHeight + titleToStampSpacing + maxStampsHeight;
-
-        // Начинаем размещение ОТ САМОГО НИЗА листа
-        float blockBottomY = marginVertical; // Отступ от нижнего края
-        float blockTopY = blockBottomY + totalBlockHeight;
-
-        try (PDPageContentStream cs = new PDPageContentStream(
-                doc, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+    private static void drawFormAt(PDPageContentStream cs, PDFormXObject form, float x, float y) throws IOException {
+        cs.saveGraphicsState();
+        cs.transform(Matrix.getTranslateInstance(x, y));
+        cs.drawForm(form);
+        cs.restoreGraphicsState();
+    }
 
-            List<String> placedBank = new ArrayList<>();
-            List<String> placedRight = new ArrayList<>();
-            List<String> placedAdditional = new ArrayList<>();
-
-            // 1. Левая колонка (Банк)
-            if (!leftStamps.isEmpty()) {
-                // Позиция заголовка (САМЫЙ ВЕРХ блока - над штампами)
-                float titleY = blockTopY - titleHeight;
-
-                // Рисуем заголовок
-                drawColumnTitle(cs, boldFont, leftTitle, leftX, titleY, leftColumnWidth);
-
-                // Позиция для штампов (ПОД заголовком)
-                float stampsBottomY = blockBottomY;
-                float stampsTopY = blockTopY - titleHeight - titleToStampSpacing;
-                float currentY = stampsTopY;
-
-                // Рисуем штампы сверху вниз
-                for (Stamp stamp : leftStamps) {
-                    float stampHeight = stamp.getHeight();
-                    if (currentY - stampHeight >= stampsBottomY) {
-                        drawStamp(cs, stamp, leftX, currentY - stampHeight, leftColumnWidth, proxyInfo);
-                        placedBank.add(stamp.getText());
-                        currentY -= stampHeight + stampSpacing;
-                    }
+    /**
+     * Кэш Form XObject в пределах одного документа: каждый уникальный штамп
+     * (с учетом ширины колонки) и заголовок колонки формируется один раз,
+     * а на страницы выводится одним оператором Do.
+     */
+    static class StampFormCache {
+        private final PDDocument doc;
+        private final ProxyInfo proxyInfo;
+        private final Map<String, PDFormXObject> stampForms = new HashMap<>();
+        private final Map<String, PDFormXObject> titleForms = new HashMap<>();
+
+        StampFormCache(PDDocument doc, ProxyInfo proxyInfo) {
+            this.doc = doc;
+            this.proxyInfo = proxyInfo;
+        }
+
+        PDFormXObject getStampForm(Stamp stamp, float width) throws IOException {
+            String key = stamp.getText() + '\u0000' + stamp.hasProxyInfo() + '\u0000' + Float.floatToIntBits(width);
+            PDFormXObject form = stampForms.get(key);
+            if (form == null) {
+                float stampWidth = Math.max(width, stamp.getWidth());
+                // Запас по краям под толщину рамки
+                form = createForm(new PDRectangle(-1, -1, stampWidth + 2, stamp.getHeight() + 2));
+                try (PDPageContentStream fcs = openForm(form)) {
+                    drawStamp(fcs, stamp, 0, 0, width, proxyInfo);
                 }
+                stampForms.put(key, form);
             }
-
-            // 2. Центральная колонка (Заемщик)
-            if (!rightStamps.isEmpty()) {
-                // Позиция заголовка (САМЫЙ ВЕРХ блока - над штампами)
-                float titleY = blockTopY - titleHeight;
-
-                // Рисуем заголовок
-                drawColumnTitle(cs, boldFont, rightTitle, rightX, titleY, rightColumnWidth);
-
-                // Позиция для штампов (ПОД заголовком)
-                float stampsBottomY = blockBottomY;
-                float stampsTopY = blockTopY - titleHeight - titleToStampSpacing;
-                float currentY = stampsTopY;
-
-                // Рисуем штампы сверху вниз
-                for (Stamp stamp : rightStamps) {
-                    float stampHeight = stamp.getHeight();
-                    if (currentY - stampHeight >= stampsBottomY) {
-                        drawStamp(cs, stamp, rightX, currentY - stampHeight, rightColumnWidth, proxyInfo);
-                        placedRight.add(stamp.getText());
-                        currentY -= stampHeight + stampSpacing;
-                    }
+            return form;
+        }
+
+        PDFormXObject getTitleForm(PDFont font, String title, float width) throws IOException {
+            String key = title + '\u0000' + Float.floatToIntBits(width);
+            PDFormXObject form = titleForms.get(key);
+            if (form == null) {
+                float titleWidth = font.getStringWidth(title.replace("\n", " ")) / 1000 * COLUMN_TITLE_FONT_SIZE;
+                float left = Math.min(0, (width - titleWidth) / 2) - 1;
+                float right = Math.max(width, (width + titleWidth) / 2) + 1;
+                form = createForm(new PDRectangle(left, -COLUMN_TITLE_FONT_SIZE - 4,
+                        right - left, 2 * COLUMN_TITLE_FONT_SIZE + 4));
+                try (PDPageContentStream fcs = openForm(form)) {
+                    drawColumnTitle(fcs, font, title, 0, 0, width);
                 }
+                titleForms.put(key, form);
             }
+            return form;
+        }
 
-            // 3. Правая колонка (Поручители и/или залогодатели и/или иные лица)
-            if (hasAdditionalSignatures && !additionalStamps.isEmpty()) {
-                // Позиция заголовка (САМЫЙ ВЕРХ блока - над штампами)
-                float titleY = blockTopY - titleHeight;
-
-                // Рисуем заголовок
-                drawColumnTitle(cs, boldFont, additionalTitle, additionalX, titleY, additionalColumnWidth);
-
-                // Позиция для штампов (ПОД заголовком)
-                float stampsBottomY = blockBottomY;
-                float stampsTopY = blockTopY - titleHeight - titleToStampSpacing;
-                float currentY = stampsTopY;
-
-                // Рисуем штампы сверху вниз
-                for (Stamp stamp : additionalStamps) {
-                    float stampHeight = stamp.getHeight();
-                    if (currentY - stampHeight >= stampsBottomY) {
-                        drawStamp(cs, stamp, additionalX, currentY - stampHeight, additionalColumnWidth, proxyInfo);
-                        placedAdditional.add(stamp.getText());
-                        currentY -= stampHeight + stampSpacing;
-                    }
-                }
-            }
+        private PDFormXObject createForm(PDRectangle bbox) {
+            PDFormXObject form = new PDFormXObject(doc);
+            form.setResources(new PDResources());
+            form.setBBox(bbox);
+            return form;
+        }
 
-            return new StampPosition(
-                    signatureInfo.bankSignerInfos.stream()
-                            .filter(info -> !placedBank.contains(info))
-                            .collect(Collectors.toList()),
-                    signatureInfo.rightSignerInfos.stream()
-                            .filter(info -> !placedRight.contains(info))
-                            .collect(Collectors.toList()),
-                    signatureInfo.additionalSignerInfos.stream()
-                            .filter(info -> !placedAdditional.contains(info))
-                            .collect(Collectors.toList())
-            );
+        private PDPageContentStream openForm(PDFormXObject form) throws IOException {
+            return new PDPageContentStream(doc, form,
+                    form.getContentStream().createOutputStream(COSName.FLATE_DECODE));
         }
     }
 
     // Метод для расчета высоты заголовка колонки
-    private static float getColumnTitleHeight() {
+    static float getColumnTitleHeight() {
         return COLUMN_TITLE_FONT_SIZE + 8; // Высота текста + отступы
     }
 
@@ -959,33 +1000,6 @@ public class PDFSigner {
         cs.endText();
     }
 
-    // Метод расчета высоты колонки штампов
-    private static float calculateDynamicColumnHeight(List<Stamp> stamps, float stampSpacing) {
-        if (stamps.isEmpty()) {
-            return 0f;
-        }
-
-        float totalHeight = stamps.stream()
-                .map(Stamp::getHeight)
-                .reduce(0f, (a, b) -> a + b + stampSpacing) - stampSpacing;
-
-        return totalHeight;
-    }
-
-    // Метод расчета ширины колонки
-    private static float calculateDynamicColumnWidth(List<Stamp> stamps) {
-        if (stamps.isEmpty()) {
-            return 120f; // минимальная ширина по умолчанию
-        }
-
-        float maxWidth = stamps.stream()
-                .map(Stamp::getWidth)
-                .max(Float::compare)
-                .orElse(120f);
-
-        return Math.max(maxWidth, 120f);
-    }
-
 
     // Вспомогательный метод для подсчета строк в заголовке
     private static int countLines(String title) {
@@ -1021,38 +1035,6 @@ public class PDFSigner {
         return titleLines.length * COLUMN_TITLE_FONT_SIZE + (titleLines.length - 1) * 2;
     }
 
-    private static List<Stamp> createStamps(List<String> signerInfos, boolean isBank,
-                                            PDType0Font font, PDType0Font boldFont,
-                                            ProxyInfo proxyInfo) throws IOException {
-        List<Stamp> stamps = new ArrayList<>();
-        for (String info : signerInfos) {
-            // Проверяем, есть ли доверенность для этого подписанта
-            boolean hasProxyInfo = false;
-            if (proxyInfo != null) {
-                String signerName = info.split("\n")[info.split("\n").length - 1].replace("Владелец: ", "").trim();
-                if (compareSurnames(signerName, proxyInfo.getFullName())) {
-                    hasProxyInfo = true;
-                }
-            }
-            stamps.add(new Stamp(info, isBank, font, boldFont, hasProxyInfo));
-        }
-        return stamps;
-    }
-
-    private static float calculateDynamicColumnWidth(List<Stamp> stamps, float padding) {
-        if (stamps.isEmpty()) {
-            return 120f; // уменьшенная минимальная ширина по умолчанию
-        }
-
-        float maxWidth = stamps.stream()
-                .map(Stamp::getWidth)
-                .max(Float::compare)
-                .orElse(120f);
-
-        // Добавляем небольшой запас для красоты
-        return Math.max(maxWidth + 2 * padding, 120f);
-    }
-
     private static void drawStamp(PDPageContentStream cs, Stamp stamp,
                                   float x, float y, float width,
                                   ProxyInfo proxyInfo) throws IOException {
@@ -1075,9 +1057,9 @@ public class PDFSigner {
         float lineSpacing = 2; // Небольшой межстрочный интервал
         PDColor blueColor = new PDColor(new float[]{0, 0, 1}, PDDeviceRGB.INSTANCE);
 
-        String[] lines = stamp.getLines();
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i];
+        SignerRecord record = stamp.getRecord();
+        for (int i = 0; i < record.getLineCount(); i++) {
+            String line = record.getLine(i);
             PDFont font = (i < 1) ? stamp.getBoldFont() : stamp.getRegularFont();
             float fontSize = (i == 0) ? mainFontSize : regularFontSize;
 
@@ -1087,7 +1069,7 @@ public class PDFSigner {
 
             if (i == 0) {
                 // Первая строка - центрируем
-                float textWidth = font.getStringWidth(line) / 1000 * fontSize;
+                float textWidth = record.getLineWidth(i, fontSize);
                 float textX = x + (stampWidth - textWidth) / 2;
                 cs.newLineAtOffset(textX, currentY);
             } else {
@@ -1131,54 +1113,86 @@ public class PDFSigner {
         }
     }
 
-    private static boolean compareSurnames(String name1, String name2) {
-        if (name1 == null || name2 == null) {
-            return false;
-        }
-        String surname1 = name1.trim().split("\\s+")[0];
-        String surname2 = name2.trim().split("\\s+")[0];
-        return surname1.equalsIgnoreCase(surname2);
+    public static String extractSignerInfo(File sigFile) throws Exception {
+        return SignerInfoCache.get(sigFile).getSignerInfo();
     }
 
-    public static String extractSignerInfo(File sigFile) throws Exception {
-        CMSSignedData signedData = new CMSSignedData(Files.newInputStream(sigFile.toPath()));
+    public static SignerRecord extractSignerRecord(File sigFile) throws Exception {
+        return SignerInfoCache.get(sigFile).getRecord();
+    }
+
+    // Разбор CMS без кэширования; сведения о сертификате берутся через certificates
+    static ParsedSignature parseSignature(byte[] content, String digest,
+                                          SignerInfoCache.CertificateResolver certificates) throws Exception {
+        CMSSignedData signedData = new CMSSignedData(content);
         SignerInformation signer = signedData.getSignerInfos().getSigners().iterator().next();
         X509CertificateHolder certHolder = getCertificateHolder(signedData, signer);
-        X509Certificate cert = convertCertificate(certHolder);
-
-        SimpleDateFormat timeFormat = new SimpleDateFormat("dd.MM.yyyy HH:mm:ss");
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd.MM.yyyy");
+        SignerCertificate certificate = certificates.resolve(certHolder);
 
         Date signingTime = getSigningTime(signer);
         if (signingTime == null) {
             signingTime = new Date();
         }
 
-        String ownerInfo = formatOwnerInfo(
-                cert.getSubjectX500Principal().getName(),
-                cert.getNotBefore(),
-                cert.getNotAfter()
-        );
-
-        return String.format(
+        String signerInfo = String.format(
                 "Документ подписан электронной подписью\n" +
                         "Дата подписания: %s\n" +
                         "Сведения о сертификате электронной подписи\n" +
                         "Серийный номер: %s\n" +
                         "Срок действия: с %s по %s\n" +
                         "%s",
-                timeFormat.format(signingTime),
+                TIME_FORMAT.format(signingTime.toInstant()),
+                certificate.getSerialNumber(),
+                certificate.getValidFrom(),
+                certificate.getValidTo(),
+                certificate.getOwnerInfo()
+        );
+
+        return new ParsedSignature(digest, certificate, signingTime, createSignerRecord(signerInfo),
+                findIssuer(signedData, certHolder));
+    }
+
+    // Сертификат издателя среди сертификатов подписи (для проверки по OCSP); null - его нет
+    private static X509Certificate findIssuer(CMSSignedData signedData, X509CertificateHolder certHolder)
+            throws CertificateException {
+        if (certHolder.getIssuer().equals(certHolder.getSubject())) {
+            return null;
+        }
+        for (Object candidate : signedData.getCertificates().getMatches(null)) {
+            X509CertificateHolder holder = (X509CertificateHolder) candidate;
+            if (holder.getSubject().equals(certHolder.getIssuer())) {
+                return convertCertificate(holder);
+            }
+        }
+        return null;
+    }
+
+    // Запись подписанта с шириной строк штампа: первая строка полужирная, остальные обычные
+    static SignerRecord createSignerRecord(String signerInfo) throws IOException {
+        FontCache.CachedFont regular = FontCache.get(FontCache.TIMES_REGULAR);
+        FontCache.CachedFont bold = FontCache.get(FontCache.TIMES_BOLD);
+
+        String[] lines = signerInfo.split("\n");
+        float[] widths = new float[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            widths[i] = (i < 1 ? bold : regular).getStringWidth(lines[i]);
+        }
+        return new SignerRecord(signerInfo, widths);
+    }
+
+    static SignerCertificate describeCertificate(X509CertificateHolder certHolder) throws CertificateException {
+        X509Certificate cert = convertCertificate(certHolder);
+        return new SignerCertificate(
+                cert,
                 formatSerialNumber(cert.getSerialNumber()),
-                dateFormat.format(cert.getNotBefore()),
-                dateFormat.format(cert.getNotAfter()),
-                ownerInfo
+                DATE_FORMAT.format(cert.getNotBefore().toInstant()),
+                DATE_FORMAT.format(cert.getNotAfter().toInstant()),
+                formatOwnerInfo(certHolder.getSubject())
         );
     }
 
-    private static String formatOwnerInfo(String dn, Date notBefore, Date notAfter) {
+    private static String formatOwnerInfo(X500Name x500name) {
         try {
-            X500Name x500name = new X500Name(dn);
-
             String surname = getRDNAttribute(x500name, BCStyle.SURNAME);
             String givenName = getRDNAttribute(x500name, BCStyle.GIVENNAME);
             String initials = getRDNAttribute(x500name, BCStyle.INITIALS);
@@ -1207,7 +1221,7 @@ public class PDFSigner {
             return result.toString();
 
         } catch (Exception e) {
-            return "Владелец: данные не распознаны\nФИО не доступно";
+            return OWNER_UNRECOGNIZED;
         }
     }
 
@@ -1219,9 +1233,7 @@ public class PDFSigner {
     }
 
     private static X509Certificate convertCertificate(X509CertificateHolder certHolder) throws CertificateException {
-        return new JcaX509CertificateConverter()
-                .setProvider("BC")
-                .getCertificate(certHolder);
+        return CERTIFICATE_CONVERTER.getCertificate(certHolder);
     }
 
     private static Date getSigningTime(SignerInformation signer) {
@@ -1325,6 +1337,30 @@ public class PDFSigner {
         return details;
     }
 
+    // Строка протокола с результатом проверки подписи (verification может быть null)
+    public static String formatSignerForProtocol(String signerInfo, SignatureVerification verification) {
+        String signer = formatSignerForProtocol(signerInfo);
+        return verification != null ? signer + " (" + verification.getMessage() + ")" : signer;
+    }
+
+    // Строка подписанта для протокола: "должность, компания - ФИО"
+    public static String formatSignerForProtocol(String signerInfo) {
+        SignatureDetails details = parseSignatureFromText(signerInfo);
+        StringBuilder sb = new StringBuilder();
+        if (!details.getPosition().isEmpty()) {
+            sb.append(details.getPosition());
+        }
+        if (!details.getCompany().isEmpty()) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(details.getCompany());
+        }
+        if (!details.getFullName().isEmpty()) {
+            if (sb.length() > 0) sb.append(" - ");
+            sb.append(details.getFullName());
+        }
+        return sb.toString();
+    }
+
     protected static SignatureDetails parseSignatureDetails(String dn) {
         SignatureDetails details = new SignatureDetails();
 
@@ -1493,10 +1529,5 @@ public class PDFSigner {
 
         return "ФИО не указано";
     }
-
-    private static void saveResult(PDDocument doc, File originalFile) throws IOException {
-        File output = new File(originalFile.getParent(), "ВИЗУАЛИЗАЦИЯ_" + originalFile.getName());
-        doc.save(output);
-    }
 }
 
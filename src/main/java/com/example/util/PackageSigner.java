@@ -0,0 +1,130 @@
+package com.example.util;
+
+import com.example.model.DocumentResult;
+import com.example.model.LayoutPlan;
+import com.example.model.ProxyInfo;
+import com.example.model.SignatureDistribution;
+import com.example.model.SignatureInfo;
+import com.example.model.SignatureVerification;
+import com.example.model.StampSettings;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Подписание нескольких PDF (режим пакета документов в графическом
+ * интерфейсе). У каждого документа свое распределение подписей по колонкам -
+ * общее для всех или только его подписи (SignatureMatch); подписи
+ * разбираются один раз, шрифты и данные подписантов берутся из общих кэшей
+ * (FontCache, SignerInfoCache). Документы обрабатываются параллельно на
+ * ограниченном пуле потоков. При проверке подписей (verify) каждый документ
+ * проверяется по подписям своего распределения, результат попадает в штампы.
+ *
+ * Ход операции - число обработанных документов (этап DOCUMENTS).
+ * Отмена останавливает документы, которые еще не начали сохраняться;
+ * начатое сохранение доводится до конца.
+ */
+public final class PackageSigner {
+    // Один поток остается интерфейсу; больше четырех документов сразу упирается в память
+    public static final int DEFAULT_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    private PackageSigner() {
+    }
+
+    /**
+     * Штампы для каждого документа. pagesInput - номера страниц в формате
+     * диалога ввода ("1,3-5", -1 - последняя), разбираются для каждого
+     * документа по его числу страниц. distributions - распределение подписей
+     * для каждого документа; документ без подписей не обрабатывается.
+     * listener вызывается из рабочих потоков по мере готовности документов;
+     * результаты возвращаются в порядке pdfFiles.
+     */
+    public static List<DocumentResult> signAll(List<File> pdfFiles, String pagesInput,
+                                               Map<File, SignatureDistribution> distributions, boolean verify,
+                                               String leftTitle, String rightTitle, String additionalTitle,
+                                               ProxyInfo proxyInfo, StampSettings settings, int threads,
+                                               ProgressMonitor monitor, Consumer<DocumentResult> listener)
+            throws Exception {
+        int total = pdfFiles.size();
+        AtomicInteger done = new AtomicInteger();
+        monitor.phase(ProgressMonitor.Phase.DOCUMENTS, 0, total);
+
+        // Ход отдельных документов не показывается, от общей операции берется только отмена
+        ProgressMonitor documentMonitor = ProgressMonitor.cancellationOf(monitor);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, total)), runnable -> {
+            Thread thread = new Thread(runnable, "package-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<DocumentResult>> futures = new ArrayList<>(total);
+            for (File pdfFile : pdfFiles) {
+                futures.add(executor.submit(() -> {
+                    DocumentResult result = signOne(pdfFile, pagesInput, distributions.get(pdfFile), verify,
+                            leftTitle, rightTitle, additionalTitle, proxyInfo, settings, documentMonitor);
+                    listener.accept(result);
+                    monitor.phase(ProgressMonitor.Phase.DOCUMENTS, done.incrementAndGet(), total);
+                    return result;
+                }));
+            }
+
+            List<DocumentResult> results = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    // signOne сам перехватывает ошибки, сюда попадаем только при сбое слушателя
+                    results.add(DocumentResult.failure(pdfFiles.get(i), String.valueOf(e.getCause()), 0));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DocumentResult signOne(File pdfFile, String pagesInput, SignatureDistribution distribution,
+                                          boolean verify, String leftTitle, String rightTitle,
+                                          String additionalTitle, ProxyInfo proxyInfo, StampSettings settings,
+                                          ProgressMonitor monitor) {
+        long start = System.nanoTime();
+        DocumentLoader.startJob();
+        try {
+            monitor.checkCancelled();
+            List<File> sigFiles = distribution != null
+                    ? PDFSigner.allSignatureFiles(distribution) : new ArrayList<>();
+            if (sigFiles.isEmpty()) {
+                return DocumentResult.failure(pdfFile, "к документу не найдено подписей", elapsedMs(start));
+            }
+            // Записи подписантов берутся из SignerInfoCache, повторный разбор не нужен
+            Map<File, SignatureVerification> verifications = verify
+                    ? SignatureVerifier.verify(pdfFile, sigFiles, monitor) : null;
+            SignatureInfo signatureInfo = PDFSigner.processSignatures(distribution, verifications, monitor);
+            List<Integer> pages = PDFSigner.parsePageNumbers(pagesInput, PDFSigner.getPageCount(pdfFile));
+            LayoutPlan plan = PDFSigner.processDocument(pdfFile, pages, signatureInfo,
+                    leftTitle, rightTitle, additionalTitle, proxyInfo, settings, monitor);
+            return DocumentResult.success(pdfFile, pages, plan, elapsedMs(start), verifications);
+        } catch (CancellationException e) {
+            return DocumentResult.failure(pdfFile, "операция отменена", elapsedMs(start));
+        } catch (Exception e) {
+            return DocumentResult.failure(pdfFile, e.getMessage(), elapsedMs(start));
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
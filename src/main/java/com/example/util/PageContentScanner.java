@@ -0,0 +1,329 @@
+package com.example.util;
+
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Занятые области страницы для размещения штампов и протокола.
+ *
+ * В отличие от PDFContentAnalyzer текст не извлекается и не сортируется:
+ * поток содержимого только проигрывается, и записываются прямоугольники
+ * строк (одна запись на оператор вывода текста), изображений, залитых и
+ * обведенных контуров, а также видимых аннотаций. Form XObject
+ * проигрываются вместе со страницей. Невидимый текст (слой распознавания
+ * поверх скана) и заливки во всю страницу (фон) не учитываются.
+ *
+ * Результат кэшируется по SHA-256 потоков содержимого страницы и ее
+ * Form XObject, имен шрифтов и прямоугольников аннотаций: одна и та же
+ * страница при подписании и при создании протокола разбирается один раз.
+ */
+public final class PageContentScanner extends PDFGraphicsStreamEngine {
+    // Заливка, закрывающая такую долю страницы, считается фоном
+    private static final float BACKGROUND_SHARE = 0.9f;
+    private static final int CACHE_SIZE = 256;
+
+    private static final Map<String, TextGeometry> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, TextGeometry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TextGeometry> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final TextGeometry geometry = new TextGeometry(false);
+    private final float backgroundArea;
+
+    // Текущий контур и текущая строка - границы в координатах страницы
+    private final Bounds path = new Bounds();
+    private final Bounds run = new Bounds();
+    private final Point2D.Float currentPoint = new Point2D.Float();
+
+    private PageContentScanner(PDPage page) {
+        super(page);
+        PDRectangle mediaBox = page.getMediaBox();
+        this.backgroundArea = mediaBox.getWidth() * mediaBox.getHeight() * BACKGROUND_SHARE;
+    }
+
+    // Занятые области страницы (геометрия без текста), из кэша, если страница уже разбиралась
+    public static TextGeometry scan(PDPage page) throws IOException {
+        String key = cacheKey(page);
+        TextGeometry cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        TextGeometry geometry = scanPage(page);
+        CACHE.put(key, geometry);
+        return geometry;
+    }
+
+    // Разбор страницы без кэша
+    static TextGeometry scanPage(PDPage page) throws IOException {
+        PageContentScanner scanner = new PageContentScanner(page);
+        scanner.processPage(page);
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            PDRectangle rect = annotation.getRectangle();
+            if (rect != null && !annotation.isHidden() && !annotation.isNoView()
+                    && rect.getWidth() > 0 && rect.getHeight() > 0) {
+                scanner.geometry.add(rect.getLowerLeftX(), rect.getLowerLeftY(),
+                        rect.getWidth(), rect.getHeight(), null);
+            }
+        }
+        return scanner.geometry.trim();
+    }
+
+    public static TextBlockIndex index(PDPage page) throws IOException {
+        return TextBlockIndex.build(page, scan(page));
+    }
+
+    // Строка - все глифы одного оператора Tj/TJ/'/"
+    @Override
+    protected void showText(byte[] string) throws IOException {
+        if (getGraphicsState().getTextState().getRenderingMode() == RenderingMode.NEITHER) {
+            return;
+        }
+        run.reset();
+        super.showText(string);
+        add(run);
+    }
+
+    // Глиф занимает ширину смещения и высоту от нижнего до верхнего выносного элемента шрифта
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) {
+        float descent = -0.2f;
+        float ascent = 0.8f;
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor != null && descriptor.getAscent() > descriptor.getDescent()) {
+            descent = descriptor.getDescent() / 1000;
+            ascent = descriptor.getAscent() / 1000;
+        }
+        float width = displacement.getX();
+        addTransformed(run, textRenderingMatrix, 0, descent);
+        addTransformed(run, textRenderingMatrix, width, descent);
+        addTransformed(run, textRenderingMatrix, 0, ascent);
+        addTransformed(run, textRenderingMatrix, width, ascent);
+    }
+
+    @Override
+    public void drawImage(PDImage pdImage) {
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        Bounds image = new Bounds();
+        addTransformed(image, ctm, 0, 0);
+        addTransformed(image, ctm, 1, 0);
+        addTransformed(image, ctm, 0, 1);
+        addTransformed(image, ctm, 1, 1);
+        add(image);
+    }
+
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        path.add((float) p0.getX(), (float) p0.getY());
+        path.add((float) p1.getX(), (float) p1.getY());
+        path.add((float) p2.getX(), (float) p2.getY());
+        path.add((float) p3.getX(), (float) p3.getY());
+        currentPoint.setLocation(p0);
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        path.add(x, y);
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        path.add(x, y);
+        currentPoint.setLocation(x, y);
+    }
+
+    // Кривая целиком лежит внутри многоугольника своих опорных точек
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        path.add(x1, y1);
+        path.add(x2, y2);
+        path.add(x3, y3);
+        currentPoint.setLocation(x3, y3);
+    }
+
+    @Override
+    public Point2D getCurrentPoint() {
+        return currentPoint;
+    }
+
+    @Override
+    public void closePath() {
+    }
+
+    // Контур только для отсечения (W n) ничего не рисует
+    @Override
+    public void endPath() {
+        path.reset();
+    }
+
+    @Override
+    public void clip(int windingRule) {
+    }
+
+    @Override
+    public void strokePath() {
+        Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+        float halfWidth = getGraphicsState().getLineWidth() * Math.max(ctm.getScalingFactorX(), ctm.getScalingFactorY()) / 2;
+        if (!path.isEmpty()) {
+            path.minX -= halfWidth;
+            path.minY -= halfWidth;
+            path.maxX += halfWidth;
+            path.maxY += halfWidth;
+            add(path);
+        }
+        path.reset();
+    }
+
+    @Override
+    public void fillPath(int windingRule) {
+        if (!path.isEmpty() && path.area() < backgroundArea) {
+            add(path);
+        }
+        path.reset();
+    }
+
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        strokePath();
+    }
+
+    // Градиентная заливка области отсечения - как правило, фон
+    @Override
+    public void shadingFill(COSName shadingName) {
+    }
+
+    private void add(Bounds bounds) {
+        if (!bounds.isEmpty()) {
+            geometry.add(bounds.minX, bounds.minY, bounds.maxX - bounds.minX, bounds.maxY - bounds.minY, null);
+        }
+    }
+
+    private static void addTransformed(Bounds bounds, Matrix matrix, float x, float y) {
+        bounds.add(x * matrix.getScaleX() + y * matrix.getShearX() + matrix.getTranslateX(),
+                x * matrix.getShearY() + y * matrix.getScaleY() + matrix.getTranslateY());
+    }
+
+    private static String cacheKey(PDPage page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        // Потоки хэшируются в исходном (сжатом) виде - без распаковки
+        Iterator<PDStream> streams = page.getContentStreams();
+        while (streams.hasNext()) {
+            update(digest, streams.next().getCOSObject());
+        }
+        updateResources(digest, page.getResources(), Collections.newSetFromMap(new IdentityHashMap<>()));
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            PDRectangle rect = annotation.getRectangle();
+            if (rect != null) {
+                digest.update(rect.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void updateResources(MessageDigest digest, PDResources resources, Set<COSBase> visited)
+            throws IOException {
+        if (resources == null || !visited.add(resources.getCOSObject())) {
+            return;
+        }
+        for (COSName name : resources.getFontNames()) {
+            PDFont font = resources.getFont(name);
+            digest.update((name.getName() + "=" + (font != null ? font.getName() : "")).getBytes(StandardCharsets.UTF_8));
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (xObject instanceof PDFormXObject) {
+                PDFormXObject form = (PDFormXObject) xObject;
+                digest.update(name.getName().getBytes(StandardCharsets.UTF_8));
+                update(digest, form.getCOSObject());
+                updateResources(digest, form.getResources(), visited);
+            }
+        }
+    }
+
+    private static void update(MessageDigest digest, COSStream stream) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = stream.createRawInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    // Границы набора точек
+    private static final class Bounds {
+        float minX;
+        float minY;
+        float maxX;
+        float maxY;
+
+        Bounds() {
+            reset();
+        }
+
+        void reset() {
+            minX = Float.MAX_VALUE;
+            minY = Float.MAX_VALUE;
+            maxX = -Float.MAX_VALUE;
+            maxY = -Float.MAX_VALUE;
+        }
+
+        void add(float x, float y) {
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        boolean isEmpty() {
+            return minX > maxX;
+        }
+
+        float area() {
+            return (maxX - minX) * (maxY - minY);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.util;
+
+import javafx.application.Platform;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Изображения страниц PDF для окна выбора области.
+ *
+ * Страница отрисовывается по запросу в отдельном потоке (PDFRenderer и
+ * документ не потокобезопасны, поэтому поток один), соседние страницы
+ * отрисовываются заранее. Готовые изображения хранятся в LRU-кэше,
+ * ограниченном по объему памяти. Метод show вызывается из потока JavaFX,
+ * слушатель тоже вызывается в нем; close - из любого потока после
+ * закрытия окна, до закрытия документа. Запросы show после close
+ * игнорируются.
+ */
+public class PageImageCache implements AutoCloseable {
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int PREFETCH_DISTANCE = 2;
+    private static final float RENDER_SCALE = 1.0f;
+
+    public interface Listener {
+        void pageReady(int pageIndex, Image image);
+
+        void pageFailed(int pageIndex, Exception error);
+    }
+
+    private final PDFRenderer renderer;
+    private final int pageCount;
+    private final long maxBytes;
+    private final Listener listener;
+    private final ExecutorService executor;
+
+    // Доступ только из потока JavaFX
+    private final LinkedHashMap<Integer, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> pending = new HashSet<>();
+    private long cachedBytes;
+    private volatile boolean closed;
+
+    // Читается потоком отрисовки, чтобы пропускать устаревшую предзагрузку
+    private volatile int currentPage;
+
+    public PageImageCache(PDDocument doc, long maxBytes, Listener listener) {
+        this.renderer = new PDFRenderer(doc);
+        this.pageCount = doc.getNumberOfPages();
+        this.maxBytes = maxBytes;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "page-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Изображение страницы, если оно уже готово; иначе null, а страница
+     * ставится в очередь отрисовки. В обоих случаях запускается
+     * предзагрузка соседних страниц.
+     */
+    public Image show(int pageIndex) {
+        currentPage = pageIndex;
+        Image image = images.get(pageIndex);
+        if (image == null) {
+            schedule(pageIndex);
+        }
+        for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+            schedule(pageIndex + distance);
+            schedule(pageIndex - distance);
+        }
+        return image;
+    }
+
+    private void schedule(int pageIndex) {
+        if (closed || pageIndex < 0 || pageIndex >= pageCount
+                || images.containsKey(pageIndex) || !pending.add(pageIndex)) {
+            return;
+        }
+        try {
+            executor.execute(() -> render(pageIndex));
+        } catch (RejectedExecutionException e) {
+            // close из другого потока успел остановить отрисовку после проверки closed
+            pending.remove(pageIndex);
+        }
+    }
+
+    // Поток отрисовки
+    private void render(int pageIndex) {
+        // Пользователь уже ушел далеко от этой страницы - не тратим время
+        if (Math.abs(pageIndex - currentPage) > PREFETCH_DISTANCE) {
+            Platform.runLater(() -> pending.remove(pageIndex));
+            return;
+        }
+
+        try {
+            BufferedImage bufferedImage = renderer.renderImage(pageIndex, RENDER_SCALE);
+            Image image = SwingFXUtils.toFXImage(bufferedImage, null);
+            Platform.runLater(() -> completed(pageIndex, image));
+        } catch (Exception e) {
+            Platform.runLater(() -> failed(pageIndex, e));
+        }
+    }
+
+    private void completed(int pageIndex, Image image) {
+        pending.remove(pageIndex);
+        if (closed) {
+            return;
+        }
+        images.put(pageIndex, image);
+        cachedBytes += sizeOf(image);
+        evict();
+        listener.pageReady(pageIndex, image);
+    }
+
+    private void failed(int pageIndex, Exception error) {
+        pending.remove(pageIndex);
+        if (!closed) {
+            listener.pageFailed(pageIndex, error);
+        }
+    }
+
+    // Вытесняем давно не показанные страницы, текущую оставляем всегда
+    private void evict() {
+        Iterator<Map.Entry<Integer, Image>> iterator = images.entrySet().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Integer, Image> entry = iterator.next();
+            if (entry.getKey() == currentPage) {
+                continue;
+            }
+            cachedBytes -= sizeOf(entry.getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    // Документ можно закрывать только после остановки потока отрисовки.
+    // Изображения не очищаются здесь: они принадлежат потоку JavaFX и уходят вместе с кэшем
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("Отрисовка страницы не завершилась за отведенное время");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.util;
+
+/**
+ * Занятые области страницы для поиска места под штампы и протокол.
+ * Реализации: TextBlockIndex (по содержимому страницы) и RasterOccupancy
+ * (по отрисованному изображению). Координаты - пространство PDF страницы,
+ * прямоугольник задается левым нижним углом.
+ */
+public interface PageOccupancy {
+
+    float getPageHeight();
+
+    boolean isFree(float x, float y, float width, float height);
+
+    /**
+     * Ближайшее снизу вверх положение y, начиная с заданного, при котором
+     * прямоугольник свободен и отстоит от занятого по вертикали не меньше
+     * чем на margin. Если места до верха страницы нет, результат выходит за страницу.
+     */
+    float findFreeAbove(float x, float y, float width, float height, float margin);
+
+    // То же сверху вниз: top - верхняя граница прямоугольника, возвращается новая верхняя граница
+    float findFreeBelow(float x, float top, float width, float height, float margin);
+
+    // Низ ближайшего занятого места в полосе [x, x + width] между y и limit; limit, если там пусто
+    float nextContentAbove(float x, float y, float width, float limit);
+}
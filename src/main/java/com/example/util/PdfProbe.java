@@ -0,0 +1,259 @@
+package com.example.util;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDSignatureField;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Быстрое получение сведений о PDF без полного разбора документа.
+ *
+ * Читаются только трейлер, таблицы перекрестных ссылок, каталог, узлы
+ * дерева страниц (для /Count и размеров страниц) и поля AcroForm;
+ * содержимое страниц, шрифты и изображения не разбираются. Если файл
+ * не удается прочитать таким способом (поврежденные ссылки, шифрование
+ * потоков объектов), используется обычная загрузка документа.
+ */
+public final class PdfProbe {
+    private static final int MAX_FIELD_DEPTH = 32;
+
+    private PdfProbe() {
+    }
+
+    // Только число страниц, шифрование и подписи
+    public static Result probe(File pdfFile) throws IOException {
+        return probe(pdfFile, false);
+    }
+
+    public static Result probe(File pdfFile, boolean withPageSizes) throws IOException {
+        BackgroundJobs.checkNotFxThread("Чтение PDF");
+        try (RandomAccessBufferedFileInputStream source = new RandomAccessBufferedFileInputStream(pdfFile)) {
+            return new ProbeParser(source).probe(withPageSizes);
+        } catch (IOException | RuntimeException e) {
+            return probeByLoading(pdfFile, withPageSizes);
+        }
+    }
+
+    private static Result probeByLoading(File pdfFile, boolean withPageSizes) throws IOException {
+        try (DocumentLoader.LoadedDocument loaded = DocumentLoader.load(pdfFile)) {
+            PDDocument doc = loaded.getDocument();
+            List<PDRectangle> pageSizes = new ArrayList<>();
+            if (withPageSizes) {
+                for (PDPage page : doc.getPages()) {
+                    pageSizes.add(page.getMediaBox());
+                }
+            }
+
+            boolean signed = false;
+            PDAcroForm acroForm = doc.getDocumentCatalog().getAcroForm();
+            if (acroForm != null) {
+                for (PDField field : acroForm.getFieldTree()) {
+                    if (field instanceof PDSignatureField && ((PDSignatureField) field).getValue() != null) {
+                        signed = true;
+                        break;
+                    }
+                }
+            }
+            return new Result(doc.getNumberOfPages(), withPageSizes ? pageSizes : null, doc.isEncrypted(), signed);
+        }
+    }
+
+    /**
+     * Сведения о документе. Размеры страниц (MediaBox с учетом наследования)
+     * есть только при запросе с withPageSizes.
+     */
+    public static final class Result {
+        private final int pageCount;
+        private final List<PDRectangle> pageSizes;
+        private final boolean encrypted;
+        private final boolean signed;
+
+        Result(int pageCount, List<PDRectangle> pageSizes, boolean encrypted, boolean signed) {
+            this.pageCount = pageCount;
+            this.pageSizes = pageSizes != null ? Collections.unmodifiableList(pageSizes) : null;
+            this.encrypted = encrypted;
+            this.signed = signed;
+        }
+
+        public int getPageCount() {
+            return pageCount;
+        }
+
+        public List<PDRectangle> getPageSizes() {
+            if (pageSizes == null) {
+                throw new IllegalStateException("Размеры страниц не запрашивались");
+            }
+            return pageSizes;
+        }
+
+        public boolean isEncrypted() {
+            return encrypted;
+        }
+
+        // В документе есть заполненные поля подписи AcroForm
+        public boolean hasSignatures() {
+            return signed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("страниц %d%s%s", pageCount,
+                    encrypted ? ", зашифрован" : "", signed ? ", есть встроенные подписи" : "");
+        }
+    }
+
+    // Разбор только нужных объектов: PDFParser.parse() разбирает все объекты, достижимые из каталога
+    private static final class ProbeParser extends PDFParser {
+
+        ProbeParser(RandomAccessBufferedFileInputStream source) throws IOException {
+            super(source);
+            // Без проверки смещения каждого объекта из таблицы ссылок; поврежденный файл
+            // разбирается обычной (нестрогой) загрузкой
+            setLenient(false);
+        }
+
+        Result probe(boolean withPageSizes) throws IOException {
+            try {
+                return readSummary(withPageSizes);
+            } finally {
+                document.close();
+            }
+        }
+
+        private Result readSummary(boolean withPageSizes) throws IOException {
+            if (!parsePDFHeader()) {
+                throw new IOException("Не найден заголовок PDF");
+            }
+            COSDictionary trailer = retrieveTrailer();
+            boolean encrypted = trailer.getItem(COSName.ENCRYPT) != null;
+
+            COSDictionary root = asDictionary(parseTrailerValuesDynamically(trailer));
+            COSDictionary pages = root != null ? asDictionary(root.getItem(COSName.PAGES)) : null;
+            if (pages == null) {
+                throw new IOException("Не найдено дерево страниц");
+            }
+
+            List<PDRectangle> pageSizes = null;
+            int pageCount;
+            if (withPageSizes) {
+                pageSizes = collectPageSizes(pages);
+                pageCount = pageSizes.size();
+            } else {
+                COSBase count = resolve(pages.getItem(COSName.COUNT));
+                if (!(count instanceof COSNumber)) {
+                    throw new IOException("Не указано число страниц");
+                }
+                pageCount = ((COSNumber) count).intValue();
+            }
+
+            COSDictionary acroForm = asDictionary(root.getItem(COSName.ACRO_FORM));
+            boolean signed = acroForm != null && hasSignatureField(asArray(acroForm.getItem(COSName.FIELDS)), null, 0);
+
+            return new Result(pageCount, pageSizes, encrypted, signed);
+        }
+
+        // Обход дерева страниц в порядке документа с наследованием /MediaBox
+        private List<PDRectangle> collectPageSizes(COSDictionary pagesRoot) throws IOException {
+            List<PDRectangle> sizes = new ArrayList<>();
+            Set<COSDictionary> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            Deque<Object[]> stack = new ArrayDeque<>();
+            stack.push(new Object[]{pagesRoot, PDRectangle.LETTER});
+
+            while (!stack.isEmpty()) {
+                Object[] entry = stack.pop();
+                COSDictionary node = (COSDictionary) entry[0];
+                if (!visited.add(node)) {
+                    continue;
+                }
+
+                PDRectangle mediaBox = (PDRectangle) entry[1];
+                COSArray box = asArray(node.getItem(COSName.MEDIA_BOX));
+                if (box != null && box.size() == 4) {
+                    mediaBox = new PDRectangle(resolveArray(box));
+                }
+
+                COSArray kids = asArray(node.getItem(COSName.KIDS));
+                if (kids == null || COSName.PAGE.equals(resolve(node.getItem(COSName.TYPE)))) {
+                    sizes.add(mediaBox);
+                    continue;
+                }
+                for (int i = kids.size() - 1; i >= 0; i--) {
+                    COSDictionary kid = asDictionary(kids.get(i));
+                    if (kid != null) {
+                        stack.push(new Object[]{kid, mediaBox});
+                    }
+                }
+            }
+            return sizes;
+        }
+
+        private boolean hasSignatureField(COSArray fields, COSName inheritedType, int depth) throws IOException {
+            if (fields == null || depth > MAX_FIELD_DEPTH) {
+                return false;
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                COSDictionary field = asDictionary(fields.get(i));
+                if (field == null) {
+                    continue;
+                }
+                COSBase type = resolve(field.getItem(COSName.FT));
+                COSName fieldType = type instanceof COSName ? (COSName) type : inheritedType;
+                if (COSName.SIG.equals(fieldType) && field.getItem(COSName.V) != null) {
+                    return true;
+                }
+                if (hasSignatureField(asArray(field.getItem(COSName.KIDS)), fieldType, depth + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private COSArray resolveArray(COSArray array) throws IOException {
+            COSArray resolved = new COSArray();
+            for (int i = 0; i < array.size(); i++) {
+                resolved.add(resolve(array.get(i)));
+            }
+            return resolved;
+        }
+
+        private COSDictionary asDictionary(COSBase base) throws IOException {
+            COSBase resolved = resolve(base);
+            return resolved instanceof COSDictionary ? (COSDictionary) resolved : null;
+        }
+
+        private COSArray asArray(COSBase base) throws IOException {
+            COSBase resolved = resolve(base);
+            return resolved instanceof COSArray ? (COSArray) resolved : null;
+        }
+
+        // Объект по ссылке читается с диска только при первом обращении
+        private COSBase resolve(COSBase base) throws IOException {
+            if (base instanceof COSObject) {
+                COSObject object = (COSObject) base;
+                COSBase resolved = object.getObject();
+                return resolved != null ? resolved : parseObjectDynamically(object, false);
+            }
+            return base;
+        }
+    }
+}
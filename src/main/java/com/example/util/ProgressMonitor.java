@@ -0,0 +1,79 @@
+package com.example.util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Ход длительной операции с PDF и подписями: этапы с прогрессом и
+ * кооперативная отмена. Операция проверяет отмену между шагами
+ * (checkCancelled); сохранение результата не прерывается.
+ */
+public interface ProgressMonitor {
+
+    enum Phase {
+        LOAD("Загрузка документа", true),
+        PARSE_SIGNATURES("Разбор подписей", true),
+        // done из total байт документа прочитано для вычисления хэшей
+        VERIFY_SIGNATURES("Проверка подписей", true),
+        // done из total документов пакета прохэшировано для сопоставления с подписями
+        MATCH_SIGNATURES("Сопоставление подписей с документами", true),
+        LAYOUT("Размещение штампов", true),
+        DRAW("Вывод на страницы", true),
+        SAVE("Сохранение документа", false),
+        // Пакет документов: done из total документов обработано
+        DOCUMENTS("Обработка документов", true);
+
+        private final String title;
+        private final boolean cancellable;
+
+        Phase(String title, boolean cancellable) {
+            this.title = title;
+            this.cancellable = cancellable;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        // После начала этапа, который нельзя отменить, операция доводится до конца
+        public boolean isCancellable() {
+            return cancellable;
+        }
+    }
+
+    // Для вызовов без отображения хода (пакетный режим)
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void phase(Phase phase, long done, long total) {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    // Для вложенных операций: ход не показывается, отмена берется от monitor
+    static ProgressMonitor cancellationOf(ProgressMonitor monitor) {
+        return new ProgressMonitor() {
+            @Override
+            public void phase(Phase phase, long done, long total) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return monitor.isCancelled();
+            }
+        };
+    }
+
+    // done из total в пределах этапа; total <= 0 - объем этапа неизвестен
+    void phase(Phase phase, long done, long total);
+
+    boolean isCancelled();
+
+    default void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("Операция отменена");
+        }
+    }
+}
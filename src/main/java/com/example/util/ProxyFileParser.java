@@ -0,0 +1,56 @@
+package com.example.util;
+
+import com.example.model.ProxyInfo;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Упрощенный парсинг XML файла доверенности (без зависимостей от JavaFX)
+public class ProxyFileParser {
+
+    public static ProxyInfo parse(File proxyFile) throws Exception {
+        String content = new String(Files.readAllBytes(proxyFile.toPath()));
+
+        String number = extractXmlValue(content, "НомДовер");
+        String issueDate = extractXmlValue(content, "ДатаВыдДовер");
+        String expiryDate = extractXmlValue(content, "СрокДейст");
+
+        if (number.isEmpty()) {
+            throw new IllegalArgumentException("Не найден номер доверенности");
+        }
+        if (issueDate.isEmpty()) {
+            throw new IllegalArgumentException("Не найдена дата выдачи доверенности");
+        }
+        if (expiryDate.isEmpty()) {
+            throw new IllegalArgumentException("Не найден срок действия доверенности");
+        }
+
+        String fullName = extractFullNameFromXml(content);
+
+        return new ProxyInfo(number, issueDate, expiryDate, fullName);
+    }
+
+    private static String extractXmlValue(String xmlContent, String attributeName) {
+        Pattern regex = Pattern.compile(attributeName + "=\"([^\"]*)\"");
+        Matcher matcher = regex.matcher(xmlContent);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        return "";
+    }
+
+    private static String extractFullNameFromXml(String xmlContent) {
+        if (xmlContent.contains("ФИО")) {
+            String lastName = extractXmlValue(xmlContent, "Фамилия");
+            String firstName = extractXmlValue(xmlContent, "Имя");
+            String middleName = extractXmlValue(xmlContent, "Отчество");
+
+            if (!lastName.isEmpty() || !firstName.isEmpty() || !middleName.isEmpty()) {
+                return String.format("%s %s %s", lastName, firstName, middleName).trim();
+            }
+        }
+        return "";
+    }
+}
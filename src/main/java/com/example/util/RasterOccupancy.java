@@ -0,0 +1,232 @@
+package com.example.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+
+/**
+ * Карта занятости страницы по ее изображению с низким разрешением.
+ *
+ * Страница отрисовывается в оттенках серого (DEFAULT_DPI), каждый не
+ * белый пиксель считается занятым - так учитывается все, что видно на
+ * странице, включая сканы и аннотации. Пиксели упаковываются в битовые
+ * строки (long[]), по ним строится интегральное изображение, поэтому
+ * проверка "прямоугольник пуст" - O(1), а поиск места перебирает
+ * положения с шагом в пиксель за миллисекунды. Строки карты идут
+ * сверху вниз в ориентации страницы без учета поворота (/Rotate).
+ */
+public final class RasterOccupancy implements PageOccupancy {
+    public static final float DEFAULT_DPI = 24;
+
+    // Светлее этого (0-255) пиксель считается пустым
+    private static final int WHITE_THRESHOLD = 245;
+
+    private final float scale;
+    private final float originX;
+    private final float originY;
+    private final float pageWidth;
+    private final float pageHeight;
+    private final int columns;
+    private final int rows;
+    private final int rowWords;
+    private final long[] bits;
+    // Число занятых пикселей в прямоугольнике [0, r) x [0, c): integral[r * (columns + 1) + c]
+    private final int[] integral;
+
+    private RasterOccupancy(PDRectangle cropBox, float dpi, int columns, int rows) {
+        this.scale = dpi / 72;
+        this.originX = cropBox.getLowerLeftX();
+        this.originY = cropBox.getLowerLeftY();
+        this.pageWidth = cropBox.getWidth();
+        this.pageHeight = cropBox.getHeight();
+        this.columns = columns;
+        this.rows = rows;
+        this.rowWords = (columns + 63) >>> 6;
+        this.bits = new long[rows * rowWords];
+        this.integral = new int[(rows + 1) * (columns + 1)];
+    }
+
+    public static RasterOccupancy render(PDDocument doc, int pageIndex) throws IOException {
+        return render(doc, pageIndex, DEFAULT_DPI);
+    }
+
+    public static RasterOccupancy render(PDDocument doc, int pageIndex, float dpi) throws IOException {
+        PDPage page = doc.getPage(pageIndex);
+        BufferedImage image = new PDFRenderer(doc).renderImageWithDPI(pageIndex, dpi, ImageType.GRAY);
+        return fromImage(image, page.getCropBox(), page.getRotation(), dpi);
+    }
+
+    /**
+     * Карта по готовому изображению страницы. Изображение повернуто так
+     * же, как его отрисовывает PDFRenderer; пиксели переводятся обратно
+     * в ориентацию страницы.
+     */
+    public static RasterOccupancy fromImage(BufferedImage image, PDRectangle cropBox, int rotation, float dpi) {
+        int normalized = ((rotation % 360) + 360) % 360;
+        boolean swapped = normalized == 90 || normalized == 270;
+        int columns = swapped ? image.getHeight() : image.getWidth();
+        int rows = swapped ? image.getWidth() : image.getHeight();
+        RasterOccupancy map = new RasterOccupancy(cropBox, dpi, columns, rows);
+
+        Raster raster = image.getRaster();
+        int[] line = new int[image.getWidth()];
+        for (int iy = 0; iy < image.getHeight(); iy++) {
+            raster.getSamples(0, iy, image.getWidth(), 1, 0, line);
+            for (int ix = 0; ix < line.length; ix++) {
+                if (line[ix] >= WHITE_THRESHOLD) {
+                    continue;
+                }
+                // Обратный поворот PDFRenderer: пиксель изображения -> пиксель страницы
+                int column;
+                int row;
+                switch (normalized) {
+                    case 90:
+                        column = iy;
+                        row = rows - 1 - ix;
+                        break;
+                    case 180:
+                        column = columns - 1 - ix;
+                        row = rows - 1 - iy;
+                        break;
+                    case 270:
+                        column = columns - 1 - iy;
+                        row = ix;
+                        break;
+                    default:
+                        column = ix;
+                        row = iy;
+                        break;
+                }
+                map.bits[row * map.rowWords + (column >>> 6)] |= 1L << (column & 63);
+            }
+        }
+        map.buildIntegral();
+        return map;
+    }
+
+    private void buildIntegral() {
+        int stride = columns + 1;
+        for (int r = 0; r < rows; r++) {
+            int rowSum = 0;
+            int base = r * rowWords;
+            for (int c = 0; c < columns; c++) {
+                rowSum += (int) ((bits[base + (c >>> 6)] >>> (c & 63)) & 1L);
+                integral[(r + 1) * stride + c + 1] = integral[r * stride + c + 1] + rowSum;
+            }
+        }
+    }
+
+    public boolean isOccupied(int column, int row) {
+        return (bits[row * rowWords + (column >>> 6)] & (1L << (column & 63))) != 0;
+    }
+
+    // Число занятых пикселей в [c0, c1) x [r0, r1)
+    private int count(int c0, int r0, int c1, int r1) {
+        int stride = columns + 1;
+        return integral[r1 * stride + c1] - integral[r0 * stride + c1]
+                - integral[r1 * stride + c0] + integral[r0 * stride + c0];
+    }
+
+    // Пиксели, которых касается прямоугольник (с запасом наружу); части вне страницы отбрасываются
+    private int column(float x) {
+        return Math.max(0, Math.min(columns, (int) Math.floor((x - originX) * scale)));
+    }
+
+    private int columnEnd(float x) {
+        return Math.max(0, Math.min(columns, (int) Math.ceil((x - originX) * scale)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows, (int) Math.floor((originY + pageHeight - y) * scale)));
+    }
+
+    private int rowEnd(float y) {
+        return Math.max(0, Math.min(rows, (int) Math.ceil((originY + pageHeight - y) * scale)));
+    }
+
+    @Override
+    public float getPageHeight() {
+        return pageHeight;
+    }
+
+    public float getPageWidth() {
+        return pageWidth;
+    }
+
+    // Шаг карты в пунктах
+    public float getCellSize() {
+        return 1 / scale;
+    }
+
+    @Override
+    public boolean isFree(float x, float y, float width, float height) {
+        int c0 = column(x);
+        int c1 = columnEnd(x + width);
+        int r0 = row(y + height);
+        int r1 = rowEnd(y);
+        return c0 >= c1 || r0 >= r1 || count(c0, r0, c1, r1) == 0;
+    }
+
+    @Override
+    public float findFreeAbove(float x, float y, float width, float height, float margin) {
+        float step = getCellSize();
+        float current = y;
+        while (current + height <= originY + pageHeight) {
+            if (isFree(x, current - margin, width, height + 2 * margin)) {
+                return current;
+            }
+            current += step;
+        }
+        return current;
+    }
+
+    @Override
+    public float findFreeBelow(float x, float top, float width, float height, float margin) {
+        float step = getCellSize();
+        float current = top;
+        while (current - height >= originY) {
+            if (isFree(x, current - height - margin, width, height + 2 * margin)) {
+                return current;
+            }
+            current -= step;
+        }
+        return current;
+    }
+
+    @Override
+    public float nextContentAbove(float x, float y, float width, float limit) {
+        int c0 = column(x);
+        int c1 = columnEnd(x + width);
+        int top = row(limit);
+        // Строки карты идут сверху вниз: ищем снизу вверх первую занятую строку
+        for (int r = rowEnd(y) - 1; r >= top; r--) {
+            if (count(c0, r, c1, r + 1) > 0) {
+                return Math.max(y, originY + pageHeight - (r + 1) / scale);
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Первое сверху (затем слева) свободное место width x height в пределах
+     * area с отступом margin от занятого, или null. Перебор с шагом в
+     * пиксель карты, каждая проверка - O(1).
+     */
+    public PDRectangle findSlot(PDRectangle area, float width, float height, float margin) {
+        float step = getCellSize();
+        for (float top = area.getUpperRightY(); top - height >= area.getLowerLeftY(); top -= step) {
+            for (float left = area.getLowerLeftX(); left + width <= area.getUpperRightX(); left += step) {
+                if (isFree(left - margin, top - height - margin, width + 2 * margin, height + 2 * margin)) {
+                    return new PDRectangle(left, top - height, width, height);
+                }
+            }
+        }
+        return null;
+    }
+}
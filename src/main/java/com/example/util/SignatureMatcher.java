@@ -0,0 +1,139 @@
+package com.example.util;
+
+import com.example.model.SignatureMatch;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.cms.CMSAttributes;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сопоставление отсоединенных подписей с документами пакета.
+ *
+ * Из каждой подписи берутся алгоритм хэширования и атрибут messageDigest
+ * (хэш подписанного документа). Каждый документ хэшируется один раз всеми
+ * нужными алгоритмами (SignatureVerifier.digest), хэши складываются в
+ * индекс "хэш -> документ", и каждая подпись находит свой документ одним
+ * поиском в индексе - без проверки всех пар подпись x документ.
+ *
+ * Совпадение хэша - не проверка подписи: подпись значения хэша и
+ * сертификат проверяет SignatureVerifier.
+ */
+public final class SignatureMatcher {
+
+    private SignatureMatcher() {
+    }
+
+    public static SignatureMatch match(List<File> pdfFiles, List<File> sigFiles) throws IOException {
+        return match(pdfFiles, sigFiles, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Подписи без подписанных атрибутов, поврежденные и не совпавшие ни с
+     * одним документом - в unmatched. Ошибка чтения документа - исключение.
+     */
+    public static SignatureMatch match(List<File> pdfFiles, List<File> sigFiles,
+                                       ProgressMonitor monitor) throws IOException {
+        SignatureMatch match = new SignatureMatch(pdfFiles);
+
+        // 1. Хэши документов, заявленные подписями
+        Map<File, List<Digest>> claimed = new LinkedHashMap<>();
+        Map<ASN1ObjectIdentifier, AlgorithmIdentifier> algorithms = new LinkedHashMap<>();
+        for (int i = 0; i < sigFiles.size(); i++) {
+            monitor.checkCancelled();
+            monitor.phase(ProgressMonitor.Phase.PARSE_SIGNATURES, i, sigFiles.size());
+            File sigFile = sigFiles.get(i);
+            List<Digest> digests = readDigests(sigFile);
+            if (digests.isEmpty()) {
+                match.addUnmatched(sigFile);
+                continue;
+            }
+            for (Digest digest : digests) {
+                algorithms.putIfAbsent(digest.algorithm.getAlgorithm(), digest.algorithm);
+            }
+            claimed.put(sigFile, digests);
+        }
+
+        // 2. Индекс: алгоритм -> хэш -> документ; каждый документ читается один раз
+        Map<ASN1ObjectIdentifier, Map<ByteBuffer, File>> index = new HashMap<>();
+        ProgressMonitor documentMonitor = ProgressMonitor.cancellationOf(monitor);
+        for (int i = 0; i < pdfFiles.size() && !claimed.isEmpty(); i++) {
+            monitor.phase(ProgressMonitor.Phase.MATCH_SIGNATURES, i, pdfFiles.size());
+            File pdfFile = pdfFiles.get(i);
+            Map<ASN1ObjectIdentifier, byte[]> hashes =
+                    SignatureVerifier.digest(pdfFile, algorithms.values(), documentMonitor);
+            for (Map.Entry<ASN1ObjectIdentifier, byte[]> entry : hashes.entrySet()) {
+                // Одинаковые по содержимому документы: подписи получает первый
+                File previous = index.computeIfAbsent(entry.getKey(), key -> new HashMap<>())
+                        .putIfAbsent(ByteBuffer.wrap(entry.getValue()), pdfFile);
+                if (previous != null) {
+                    System.err.println("Документы " + previous.getName() + " и " + pdfFile.getName() +
+                            " совпадают по содержимому");
+                }
+            }
+        }
+        monitor.phase(ProgressMonitor.Phase.MATCH_SIGNATURES, pdfFiles.size(), pdfFiles.size());
+
+        // 3. Поиск документа каждой подписи; при нескольких подписантах - по первому совпавшему
+        for (Map.Entry<File, List<Digest>> entry : claimed.entrySet()) {
+            File document = null;
+            for (Digest digest : entry.getValue()) {
+                Map<ByteBuffer, File> byHash = index.get(digest.algorithm.getAlgorithm());
+                document = byHash != null ? byHash.get(ByteBuffer.wrap(digest.value)) : null;
+                if (document != null) {
+                    break;
+                }
+            }
+            if (document != null) {
+                match.add(document, entry.getKey());
+            } else {
+                match.addUnmatched(entry.getKey());
+            }
+        }
+        return match;
+    }
+
+    // Пары (алгоритм, messageDigest) всех подписантов; пусто, если подпись не читается
+    private static List<Digest> readDigests(File sigFile) {
+        List<Digest> digests = new ArrayList<>();
+        try {
+            CMSSignedData signedData = new CMSSignedData(Files.readAllBytes(sigFile.toPath()));
+            for (SignerInformation signer : signedData.getSignerInfos().getSigners()) {
+                AttributeTable attributes = signer.getSignedAttributes();
+                Attribute attribute = attributes != null ? attributes.get(CMSAttributes.messageDigest) : null;
+                if (attribute == null || attribute.getAttrValues().size() != 1) {
+                    continue;
+                }
+                byte[] value = ASN1OctetString.getInstance(attribute.getAttrValues().getObjectAt(0)).getOctets();
+                digests.add(new Digest(signer.getDigestAlgorithmID(), value));
+            }
+        } catch (IOException | CMSException | IllegalArgumentException e) {
+            System.err.println("Подпись " + sigFile.getName() + " не читается: " + e.getMessage());
+        }
+        return digests;
+    }
+
+    private static final class Digest {
+        final AlgorithmIdentifier algorithm;
+        final byte[] value;
+
+        Digest(AlgorithmIdentifier algorithm, byte[] value) {
+            this.algorithm = algorithm;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.util;
+
+import com.example.model.ChainValidation;
+import com.example.model.ParsedSignature;
+import com.example.model.RevocationStatus;
+import com.example.model.SignatureVerification;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSSignerDigestMismatchException;
+import org.bouncycastle.cms.CMSVerifierCertificateNotValidException;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.DigestCalculatorProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.Provider;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Проверка отсоединенных подписей (.sig) по документу.
+ *
+ * Документ читается один раз блоками по CHUNK_SIZE; каждый блок передается
+ * во все алгоритмы хэширования, которые встречаются у подписантов, поэтому
+ * 30 подписей к файлу в 500 МБ стоят одного чтения файла. Затем подписи
+ * проверяются параллельно по готовым хэшам (CMSSignedData с хэшами вместо
+ * содержимого): сверяется messageDigest подписанных атрибутов и сама
+ * подпись ключом сертификата из файла подписи. Для верных подписей на
+ * момент подписания проверяются отзыв сертификата, если задано хранилище
+ * списков отзыва (CrlStore.getDefault()) или включен OCSP
+ * (OcspClient.getDefault()), и цепочка до доверенного корневого, если
+ * задано хранилище доверенных сертификатов (TrustStore.getDefault()).
+ * Состояние по OCSP запрашивается сразу для всех подписантов документа;
+ * в пакетном режиме - заранее для всех документов (prefetchRevocation).
+ */
+public final class SignatureVerifier {
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final Provider PROVIDER = new BouncyCastleProvider();
+    // Префиксы файлов, которые создает программа
+    private static final String[] OUTPUT_PREFIXES = {"ВИЗУАЛИЗАЦИЯ_", "ПОДПИСАННЫЙ_"};
+
+    private SignatureVerifier() {
+    }
+
+    public static Map<File, SignatureVerification> verify(File pdfFile, List<File> sigFiles) throws IOException {
+        return verify(pdfFile, sigFiles, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Результат по каждому файлу подписи в порядке sigFiles. Ошибка чтения
+     * документа - исключение; ошибки отдельных подписей - результат ERROR.
+     */
+    public static Map<File, SignatureVerification> verify(File pdfFile, List<File> sigFiles,
+                                                          ProgressMonitor monitor) throws IOException {
+        BackgroundJobs.checkNotFxThread("Проверка подписей");
+        Map<File, SignatureVerification> results = new LinkedHashMap<>();
+
+        // 1. Разбор подписей и алгоритмы хэширования всех подписантов
+        Map<File, byte[]> signatures = new LinkedHashMap<>();
+        Map<ASN1ObjectIdentifier, AlgorithmIdentifier> algorithms = new LinkedHashMap<>();
+        for (File sigFile : sigFiles) {
+            monitor.checkCancelled();
+            try {
+                byte[] content = Files.readAllBytes(sigFile.toPath());
+                CMSSignedData signedData = new CMSSignedData(content);
+                if (signedData.getSignedContent() != null) {
+                    results.put(sigFile, new SignatureVerification(SignatureVerification.Status.ERROR,
+                            "подпись присоединенная, а не к отдельному документу"));
+                    continue;
+                }
+                for (SignerInformation signer : signedData.getSignerInfos().getSigners()) {
+                    algorithms.putIfAbsent(signer.getDigestAlgorithmID().getAlgorithm(), signer.getDigestAlgorithmID());
+                }
+                signatures.put(sigFile, content);
+            } catch (IOException | CMSException e) {
+                results.put(sigFile, new SignatureVerification(SignatureVerification.Status.ERROR,
+                        "файл подписи не читается: " + e.getMessage()));
+            }
+        }
+
+        // 2. Один проход по документу
+        Map<ASN1ObjectIdentifier, byte[]> hashes = digest(pdfFile, algorithms.values(), monitor);
+
+        // 3. Подписи параллельно
+        monitor.phase(ProgressMonitor.Phase.VERIFY_SIGNATURES, 1, 1);
+        int threads = Math.max(1, Math.min(signatures.size(), Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "verify-worker-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<File, Future<SignatureVerification>> futures = new LinkedHashMap<>();
+            for (Map.Entry<File, byte[]> entry : signatures.entrySet()) {
+                byte[] content = entry.getValue();
+                futures.put(entry.getKey(), executor.submit(() -> verifySignature(content, hashes)));
+            }
+            for (Map.Entry<File, Future<SignatureVerification>> entry : futures.entrySet()) {
+                try {
+                    results.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    results.put(entry.getKey(), new SignatureVerification(SignatureVerification.Status.ERROR,
+                            String.valueOf(e.getCause())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Проверка подписей прервана", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Порядок результатов - как у sigFiles
+        CrlStore crlStore = CrlStore.getDefault();
+        TrustStore trustStore = TrustStore.getDefault();
+        OcspClient ocspClient = OcspClient.getDefault();
+        Map<X509Certificate, RevocationStatus> ocspStatuses = Collections.emptyMap();
+        if (ocspClient != null) {
+            List<File> valid = new ArrayList<>();
+            for (File sigFile : sigFiles) {
+                if (results.get(sigFile).isValid()) {
+                    valid.add(sigFile);
+                }
+            }
+            ocspStatuses = ocspClient.check(certificatesWithIssuers(valid, trustStore));
+        }
+        Map<File, SignatureVerification> ordered = new LinkedHashMap<>();
+        for (File sigFile : sigFiles) {
+            SignatureVerification verification = results.get(sigFile);
+            if ((crlStore != null || trustStore != null || ocspClient != null) && verification.isValid()) {
+                verification = checkCertificate(sigFile, crlStore, trustStore, ocspStatuses);
+            }
+            ordered.put(sigFile, verification);
+        }
+        return ordered;
+    }
+
+    /**
+     * Запрос по OCSP состояния сертификатов подписантов всех файлов подписи
+     * (одним запросом на издателя), чтобы проверки документов брали его из
+     * кэша. Без OcspClient.getDefault() ничего не делает.
+     */
+    public static void prefetchRevocation(Collection<File> sigFiles) {
+        OcspClient ocspClient = OcspClient.getDefault();
+        if (ocspClient != null) {
+            ocspClient.check(certificatesWithIssuers(sigFiles, TrustStore.getDefault()));
+        }
+    }
+
+    // Сертификат подписанта -> сертификат издателя (из файла подписи, иначе из цепочки доверенных; null - нет)
+    private static Map<X509Certificate, X509Certificate> certificatesWithIssuers(Collection<File> sigFiles,
+                                                                                 TrustStore trustStore) {
+        Map<X509Certificate, X509Certificate> certificates = new LinkedHashMap<>();
+        for (File sigFile : sigFiles) {
+            ParsedSignature parsed;
+            try {
+                parsed = SignerInfoCache.get(sigFile);
+            } catch (Exception e) {
+                continue;
+            }
+            X509Certificate certificate = parsed.getCertificate().getCertificate();
+            if (!certificates.containsKey(certificate)) {
+                certificates.put(certificate, issuerOf(parsed, trustStore));
+            }
+        }
+        return certificates;
+    }
+
+    private static X509Certificate issuerOf(ParsedSignature parsed, TrustStore trustStore) {
+        if (parsed.getIssuer() != null || trustStore == null) {
+            return parsed.getIssuer();
+        }
+        List<X509Certificate> chain = trustStore.validate(parsed.getCertificate().getCertificate(),
+                parsed.getSigningTime()).getChain();
+        return chain.size() > 1 ? chain.get(1) : null;
+    }
+
+    /**
+     * Сертификат подписанта верной подписи на момент подписания (время из
+     * подписи): отзыв по спискам и по OCSP, цепочка до доверенного
+     * корневого. crlStore, trustStore - null, если соответствующая проверка
+     * не нужна; ocspStatuses - состояния по OCSP, пусто без OCSP.
+     */
+    private static SignatureVerification checkCertificate(File sigFile, CrlStore crlStore, TrustStore trustStore,
+                                                          Map<X509Certificate, RevocationStatus> ocspStatuses) {
+        ParsedSignature parsed;
+        try {
+            parsed = SignerInfoCache.get(sigFile);
+        } catch (Exception e) {
+            return new SignatureVerification(SignatureVerification.Status.VALID,
+                    "подпись верна, сертификат не проверен: " + e.getMessage());
+        }
+        X509Certificate certificate = parsed.getCertificate().getCertificate();
+        List<String> notes = new ArrayList<>();
+
+        List<RevocationStatus> revocation = new ArrayList<>();
+        if (crlStore != null) {
+            revocation.add(crlStore.check(certificate, issuerOf(parsed, trustStore)));
+        }
+        if (ocspStatuses.containsKey(certificate)) {
+            revocation.add(ocspStatuses.get(certificate));
+        }
+        for (RevocationStatus status : revocation) {
+            if (status.isRevokedAt(parsed.getSigningTime())) {
+                return new SignatureVerification(SignatureVerification.Status.REVOKED, status.getMessage());
+            }
+            notes.add(status.getStatus() == RevocationStatus.Status.REVOKED
+                    ? status.getMessage() + " - после подписания" : status.getMessage());
+        }
+        if (trustStore != null) {
+            ChainValidation chain = trustStore.validate(certificate, parsed.getSigningTime());
+            if (!chain.isValid()) {
+                return new SignatureVerification(SignatureVerification.Status.UNTRUSTED, chain.getMessage());
+            }
+            notes.add(chain.getMessage());
+        }
+        return new SignatureVerification(SignatureVerification.Status.VALID,
+                "подпись верна, " + String.join(", ", notes));
+    }
+
+    /**
+     * Документ, который подписывали: для результата программы
+     * (ВИЗУАЛИЗАЦИЯ_*, ПОДПИСАННЫЙ_*) - исходный файл рядом с ним, если он есть.
+     */
+    public static File findSignedOriginal(File pdfFile) {
+        String name = pdfFile.getName();
+        boolean stripped = true;
+        while (stripped) {
+            stripped = false;
+            for (String prefix : OUTPUT_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    name = name.substring(prefix.length());
+                    stripped = true;
+                }
+            }
+        }
+        File original = new File(pdfFile.getParentFile(), name);
+        return original.isFile() ? original : pdfFile;
+    }
+
+    // Число верных подписей из всех
+    public static String summarize(Map<File, SignatureVerification> verifications) {
+        long valid = verifications.values().stream().filter(SignatureVerification::isValid).count();
+        return "подписи верны: " + valid + " из " + verifications.size();
+    }
+
+    // Хэши документа по всем алгоритмам; алгоритм, которого нет у провайдера, пропускается
+    static Map<ASN1ObjectIdentifier, byte[]> digest(File pdfFile, Collection<AlgorithmIdentifier> algorithms,
+                                                    ProgressMonitor monitor) throws IOException {
+        DigestCalculatorProvider provider;
+        try {
+            provider = new JcaDigestCalculatorProviderBuilder().setProvider(PROVIDER).build();
+        } catch (OperatorCreationException e) {
+            throw new IOException(e);
+        }
+
+        List<DigestCalculator> calculators = new ArrayList<>();
+        List<OutputStream> outputs = new ArrayList<>();
+        for (AlgorithmIdentifier algorithm : algorithms) {
+            try {
+                DigestCalculator calculator = provider.get(algorithm);
+                calculators.add(calculator);
+                outputs.add(calculator.getOutputStream());
+            } catch (OperatorCreationException e) {
+                System.err.println("Неподдерживаемый алгоритм хэширования " + algorithm.getAlgorithm() +
+                        ": " + e.getMessage());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(pdfFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long read = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            byte[] chunk = buffer.array();
+            while (channel.read(buffer) != -1) {
+                for (OutputStream output : outputs) {
+                    output.write(chunk, 0, buffer.position());
+                }
+                read += buffer.position();
+                buffer.clear();
+                monitor.checkCancelled();
+                monitor.phase(ProgressMonitor.Phase.VERIFY_SIGNATURES, read, size);
+            }
+        }
+
+        Map<ASN1ObjectIdentifier, byte[]> hashes = new HashMap<>();
+        for (int i = 0; i < calculators.size(); i++) {
+            outputs.get(i).close();
+            DigestCalculator calculator = calculators.get(i);
+            hashes.put(calculator.getAlgorithmIdentifier().getAlgorithm(), calculator.getDigest());
+        }
+        return hashes;
+    }
+
+    private static SignatureVerification verifySignature(byte[] content, Map<ASN1ObjectIdentifier, byte[]> hashes) {
+        try {
+            CMSSignedData signedData = new CMSSignedData(hashes, content);
+            Collection<SignerInformation> signers = signedData.getSignerInfos().getSigners();
+            if (signers.isEmpty()) {
+                return new SignatureVerification(SignatureVerification.Status.ERROR, "в файле нет подписей");
+            }
+            for (SignerInformation signer : signers) {
+                if (!hashes.containsKey(signer.getDigestAlgorithmID().getAlgorithm())) {
+                    return new SignatureVerification(SignatureVerification.Status.ERROR,
+                            "неподдерживаемый алгоритм хэширования " + signer.getDigestAlgOID());
+                }
+                Collection<X509CertificateHolder> matches = signerCertificates(signedData, signer);
+                if (matches.isEmpty()) {
+                    return new SignatureVerification(SignatureVerification.Status.ERROR,
+                            "в файле подписи нет сертификата подписанта");
+                }
+                X509CertificateHolder certificate = matches.iterator().next();
+                if (!signer.verify(new JcaSimpleSignerInfoVerifierBuilder().setProvider(PROVIDER).build(certificate))) {
+                    return new SignatureVerification(SignatureVerification.Status.INVALID,
+                            "подпись не соответствует сертификату");
+                }
+            }
+            return SignatureVerification.valid();
+        } catch (CMSSignerDigestMismatchException e) {
+            return new SignatureVerification(SignatureVerification.Status.INVALID,
+                    "документ изменен после подписания или подпись к другому документу");
+        } catch (CMSVerifierCertificateNotValidException e) {
+            return new SignatureVerification(SignatureVerification.Status.INVALID,
+                    "сертификат недействителен на момент подписания");
+        } catch (Exception e) {
+            return new SignatureVerification(SignatureVerification.Status.ERROR,
+                    "ошибка проверки: " + e.getMessage());
+        }
+    }
+
+    // SignerId реализует Selector без параметра типа, поэтому вызов Store.getMatches не проверяется компилятором
+    @SuppressWarnings("unchecked")
+    private static Collection<X509CertificateHolder> signerCertificates(CMSSignedData signedData,
+                                                                        SignerInformation signer) {
+        return signedData.getCertificates().getMatches(signer.getSID());
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.util;
+
+import com.example.model.SignerCategory;
+import com.example.model.SignerClassification;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+
+import java.io.File;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Предварительное распределение подписей по колонкам штампов по атрибутам
+ * сертификатов (вместо вопроса пользователю о каждой подписи).
+ *
+ * Правила по убыванию надежности:
+ * - ИНН / ИНН ЮЛ или ОГРН организации совпадает с реквизитами банка - банк;
+ * - наименование организации совпадает с наименованием банка - банк;
+ * - реквизиты банка не заданы, а в наименовании есть слово "банк" - банк (неуверенно);
+ * - организация, от которой больше всего подписей, - правая колонка (контрагент);
+ * - остальные организации и физические лица - дополнительная колонка.
+ *
+ * Реквизиты банка задаются системными свойствами nbdsig.bank.inn,
+ * nbdsig.bank.ogrn и nbdsig.bank.names (значения через запятую).
+ */
+public final class SignerClassifier {
+    // Атрибуты квалифицированных сертификатов (приказ ФСБ № 795)
+    static final ASN1ObjectIdentifier INN = new ASN1ObjectIdentifier("1.2.643.3.131.1.1");
+    static final ASN1ObjectIdentifier INN_LE = new ASN1ObjectIdentifier("1.2.643.100.4");
+    static final ASN1ObjectIdentifier OGRN = new ASN1ObjectIdentifier("1.2.643.100.1");
+    static final ASN1ObjectIdentifier OGRNIP = new ASN1ObjectIdentifier("1.2.643.100.5");
+    static final ASN1ObjectIdentifier SNILS = new ASN1ObjectIdentifier("1.2.643.100.3");
+
+    private final Set<String> bankInns;
+    private final Set<String> bankOgrns;
+    private final Set<String> bankNames;
+
+    public SignerClassifier(Collection<String> bankInns, Collection<String> bankOgrns, Collection<String> bankNames) {
+        this.bankInns = normalizeAll(bankInns, true);
+        this.bankOgrns = normalizeAll(bankOgrns, true);
+        this.bankNames = normalizeAll(bankNames, false);
+    }
+
+    public static SignerClassifier fromSystemProperties() {
+        return new SignerClassifier(
+                splitList(System.getProperty("nbdsig.bank.inn", "")),
+                splitList(System.getProperty("nbdsig.bank.ogrn", "")),
+                splitList(System.getProperty("nbdsig.bank.names", "")));
+    }
+
+    public boolean hasBankIdentity() {
+        return !bankInns.isEmpty() || !bankOgrns.isEmpty() || !bankNames.isEmpty();
+    }
+
+    /**
+     * Категории подписей в порядке files; certificates[i] - сертификат
+     * подписанта files[i].
+     */
+    public List<SignerClassification> classify(List<File> files, List<X509Certificate> certificates) {
+        List<Subject> subjects = new ArrayList<>(certificates.size());
+        for (X509Certificate certificate : certificates) {
+            subjects.add(Subject.of(certificate));
+        }
+
+        SignerClassification[] result = new SignerClassification[subjects.size()];
+
+        // 1. Банк
+        for (int i = 0; i < subjects.size(); i++) {
+            Subject subject = subjects.get(i);
+            String reason = null;
+            double confidence = 0;
+            if (subject.innLe != null && bankInns.contains(subject.innLe)) {
+                reason = "ИНН организации совпадает с ИНН банка";
+                confidence = 1.0;
+            } else if (subject.ogrn != null && bankOgrns.contains(subject.ogrn)) {
+                reason = "ОГРН организации совпадает с ОГРН банка";
+                confidence = 1.0;
+            } else if (!subject.organization.isEmpty() && bankNames.contains(subject.organization)) {
+                reason = "наименование организации совпадает с наименованием банка";
+                confidence = 0.9;
+            } else if (!hasBankIdentity() && subject.organization.contains("БАНК")) {
+                reason = "в наименовании организации есть слово \"банк\" (реквизиты банка не заданы)";
+                confidence = 0.6;
+            }
+            if (reason != null) {
+                result[i] = new SignerClassification(files.get(i), subject.display, SignerCategory.BANK,
+                        confidence, reason);
+            }
+        }
+
+        // 2. Остальные организации: число подписей от каждой (порядок - по первой подписи)
+        Map<String, Integer> organizations = new LinkedHashMap<>();
+        for (int i = 0; i < subjects.size(); i++) {
+            String key = subjects.get(i).organizationKey();
+            if (result[i] == null && key != null) {
+                organizations.merge(key, 1, Integer::sum);
+            }
+        }
+        String counterparty = null;
+        int counterpartyCount = 0;
+        int runnerUpCount = 0;
+        for (Map.Entry<String, Integer> entry : organizations.entrySet()) {
+            if (entry.getValue() > counterpartyCount) {
+                runnerUpCount = counterpartyCount;
+                counterparty = entry.getKey();
+                counterpartyCount = entry.getValue();
+            } else if (entry.getValue() > runnerUpCount) {
+                runnerUpCount = entry.getValue();
+            }
+        }
+        boolean single = organizations.size() == 1;
+        boolean leading = counterpartyCount > runnerUpCount;
+
+        for (int i = 0; i < subjects.size(); i++) {
+            if (result[i] != null) {
+                continue;
+            }
+            Subject subject = subjects.get(i);
+            String key = subject.organizationKey();
+            SignerCategory category;
+            double confidence;
+            String reason;
+            if (key != null && key.equals(counterparty)) {
+                category = SignerCategory.RIGHT;
+                confidence = single ? (subject.hasRegistrationNumber() ? 0.9 : 0.8) : leading ? 0.7 : 0.5;
+                reason = single ? "единственная организация, кроме банка"
+                        : "больше всего подписей от этой организации";
+            } else if (key != null) {
+                category = SignerCategory.ADDITIONAL;
+                confidence = leading ? 0.7 : 0.5;
+                reason = "организация не банк и не основной контрагент";
+            } else if (counterparty != null) {
+                category = SignerCategory.ADDITIONAL;
+                confidence = 0.6;
+                reason = "физическое лицо при контрагенте-организации";
+            } else {
+                // Организаций нет: первое физическое лицо - контрагент, остальные - поручители
+                boolean first = isFirstIndividual(subjects, result, i);
+                category = first ? SignerCategory.RIGHT : SignerCategory.ADDITIONAL;
+                confidence = 0.5;
+                reason = "физическое лицо, организаций среди подписантов нет";
+            }
+            result[i] = new SignerClassification(files.get(i), subject.display, category, confidence, reason);
+        }
+        return Arrays.asList(result);
+    }
+
+    private static boolean isFirstIndividual(List<Subject> subjects, SignerClassification[] result, int index) {
+        String person = subjects.get(index).personKey();
+        for (int i = 0; i < index; i++) {
+            if (result[i] == null || result[i].getCategory() != SignerCategory.BANK) {
+                return subjects.get(i).personKey().equals(person);
+            }
+        }
+        return true;
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    private static Set<String> normalizeAll(Collection<String> values, boolean number) {
+        Set<String> result = new HashSet<>();
+        for (String value : values) {
+            String normalized = number ? normalizeNumber(value) : normalizeName(value);
+            if (normalized != null && !normalized.isEmpty()) {
+                result.add(normalized);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    // ИНН организации в атрибуте ИНН записывается 12 цифрами с ведущими "00"
+    static String normalizeNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        String digits = value.replaceAll("\\D", "");
+        if (digits.length() == 12 && digits.startsWith("00")) {
+            digits = digits.substring(2);
+        }
+        return digits.isEmpty() ? null : digits;
+    }
+
+    // Без кавычек и лишних пробелов, в верхнем регистре
+    static String normalizeName(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replaceAll("[\"«»“”'`]", " ")
+                .replaceAll("\\s+", " ")
+                .trim()
+                .toUpperCase(Locale.ROOT);
+    }
+
+    // Атрибуты владельца сертификата, нужные для правил
+    static final class Subject {
+        final String organization;
+        final String innLe;
+        final String inn;
+        final String ogrn;
+        final String snils;
+        final String name;
+        final String display;
+
+        private Subject(String organization, String innLe, String inn, String ogrn, String snils, String name,
+                        String display) {
+            this.organization = organization;
+            this.innLe = innLe;
+            this.inn = inn;
+            this.ogrn = ogrn;
+            this.snils = snils;
+            this.name = name;
+            this.display = display;
+        }
+
+        static Subject of(X509Certificate certificate) {
+            X500Name x500name = X500Name.getInstance(certificate.getSubjectX500Principal().getEncoded());
+            String organization = attribute(x500name, BCStyle.O);
+            String surname = attribute(x500name, BCStyle.SURNAME);
+            String givenName = attribute(x500name, BCStyle.GIVENNAME);
+            String name = surname != null
+                    ? (givenName != null ? surname + " " + givenName : surname)
+                    : attribute(x500name, BCStyle.CN);
+
+            String inn = normalizeNumber(attribute(x500name, INN));
+            String innLe = normalizeNumber(attribute(x500name, INN_LE));
+            // В старых сертификатах ИНН организации записан в атрибут ИНН
+            if (innLe == null && inn != null && inn.length() == 10) {
+                innLe = inn;
+            }
+            String ogrn = normalizeNumber(attribute(x500name, OGRN));
+            if (ogrn == null) {
+                ogrn = normalizeNumber(attribute(x500name, OGRNIP));
+            }
+            String snils = normalizeNumber(attribute(x500name, SNILS));
+
+            String display = organization != null
+                    ? organization + " - " + (name != null ? name : "")
+                    : (name != null ? name : x500name.toString());
+            return new Subject(normalizeName(organization), innLe, inn, ogrn, snils,
+                    name != null ? name : "", display.trim());
+        }
+
+        boolean hasRegistrationNumber() {
+            return innLe != null || ogrn != null;
+        }
+
+        // Организация подписанта; null - физическое лицо
+        String organizationKey() {
+            if (innLe != null) {
+                return "ИНН " + innLe;
+            }
+            if (ogrn != null) {
+                return "ОГРН " + ogrn;
+            }
+            return organization.isEmpty() ? null : organization;
+        }
+
+        String personKey() {
+            if (snils != null) {
+                return "СНИЛС " + snils;
+            }
+            if (inn != null) {
+                return "ИНН " + inn;
+            }
+            return normalizeName(name);
+        }
+
+        private static String attribute(X500Name x500name, ASN1ObjectIdentifier oid) {
+            RDN[] rdns = x500name.getRDNs(oid);
+            if (rdns == null || rdns.length == 0) {
+                return null;
+            }
+            String value = rdns[0].getFirst().getValue().toString().trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.util;
+
+import com.example.model.ParsedSignature;
+import com.example.model.SignerCertificate;
+import org.bouncycastle.cert.X509CertificateHolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш разобранных файлов подписи на время сеанса работы.
+ *
+ * Файл подписи разбирается один раз: повторные обращения по тому же пути
+ * с тем же временем изменения и размером не читают файл вовсе, а копии
+ * с тем же содержимым находятся по SHA-256. Сведения о сертификате
+ * (конвертация, разбор DN, форматирование) общие для всех подписей,
+ * сделанных одним сертификатом.
+ */
+public final class SignerInfoCache {
+
+    // Сведения о сертификате по его держателю (для разбора в PDFSigner)
+    @FunctionalInterface
+    interface CertificateResolver {
+        SignerCertificate resolve(X509CertificateHolder holder) throws CertificateException;
+    }
+
+    private static final Map<FileKey, String> DIGESTS_BY_FILE = new ConcurrentHashMap<>();
+    private static final Map<String, ParsedSignature> SIGNATURES = new ConcurrentHashMap<>();
+    private static final Map<X509CertificateHolder, SignerCertificate> CERTIFICATES = new ConcurrentHashMap<>();
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private SignerInfoCache() {
+    }
+
+    public static ParsedSignature get(File sigFile) throws Exception {
+        FileKey key = new FileKey(sigFile);
+
+        String digest = DIGESTS_BY_FILE.get(key);
+        if (digest != null) {
+            ParsedSignature cached = SIGNATURES.get(digest);
+            if (cached != null) {
+                HITS.incrementAndGet();
+                return cached;
+            }
+        }
+
+        // Повторное обращение к уже разобранной подписи допустимо и из потока интерфейса
+        BackgroundJobs.checkNotFxThread("Разбор подписи");
+        byte[] content = Files.readAllBytes(sigFile.toPath());
+        digest = sha256(content);
+        DIGESTS_BY_FILE.put(key, digest);
+
+        ParsedSignature cached = SIGNATURES.get(digest);
+        if (cached != null) {
+            // Та же подпись под другим именем или после копирования
+            HITS.incrementAndGet();
+            return cached;
+        }
+
+        MISSES.incrementAndGet();
+        ParsedSignature parsed = PDFSigner.parseSignature(content, digest, SignerInfoCache::certificate);
+        ParsedSignature existing = SIGNATURES.putIfAbsent(digest, parsed);
+        return existing != null ? existing : parsed;
+    }
+
+    private static SignerCertificate certificate(X509CertificateHolder holder) throws CertificateException {
+        SignerCertificate certificate = CERTIFICATES.get(holder);
+        if (certificate == null) {
+            certificate = PDFSigner.describeCertificate(holder);
+            SignerCertificate existing = CERTIFICATES.putIfAbsent(holder, certificate);
+            if (existing != null) {
+                certificate = existing;
+            }
+        }
+        return certificate;
+    }
+
+    // Новый сеанс (новый комплект документов)
+    public static void clear() {
+        DIGESTS_BY_FILE.clear();
+        SIGNATURES.clear();
+        CERTIFICATES.clear();
+    }
+
+    /**
+     * Забыть файлы подписи, которые больше не понадобятся (временные файлы
+     * запроса службы), чтобы долгоживущий процесс не копил разборы каждой
+     * присланной подписи. Сведения о сертификатах остаются общими.
+     */
+    public static void forget(Collection<File> sigFiles) {
+        Set<String> paths = new HashSet<>();
+        for (File sigFile : sigFiles) {
+            try {
+                paths.add(sigFile.getCanonicalPath());
+            } catch (IOException e) {
+                paths.add(sigFile.getAbsolutePath());
+            }
+        }
+        DIGESTS_BY_FILE.entrySet().removeIf(entry -> {
+            if (!paths.contains(entry.getKey().path)) {
+                return false;
+            }
+            SIGNATURES.remove(entry.getValue());
+            return true;
+        });
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static String getStatistics() {
+        return String.format("Кэш подписей: попаданий %d, промахов %d, подписей %d, сертификатов %d",
+                HITS.get(), MISSES.get(), SIGNATURES.size(), CERTIFICATES.size());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Путь + время изменения + размер: изменившийся файл получает новый ключ
+    private static final class FileKey {
+        private final String path;
+        private final long lastModified;
+        private final long length;
+
+        FileKey(File file) throws IOException {
+            this.path = file.getCanonicalPath();
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FileKey)) return false;
+            FileKey other = (FileKey) o;
+            return lastModified == other.lastModified && length == other.length && path.equals(other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified, length);
+        }
+    }
+}
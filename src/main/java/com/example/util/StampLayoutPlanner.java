@@ -0,0 +1,320 @@
+package com.example.util;
+
+import com.example.model.*;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Планировщик размещения штампов по страницам документа.
+ *
+ * Геометрия колонок (ширины, масштаб, положение блока) зависит только от
+ * набора подписей и размера страницы, поэтому для каждого размера страницы
+ * она считается один раз - вместе с цепочкой страниц продолжения, на которые
+ * переносятся не поместившиеся штампы. Результат - явный план, который
+ * можно отрисовать или только проверить (пробный запуск).
+ *
+ * Если известны занятые области страницы (PageOccupancy), блок
+ * штампов на ней поднимается над содержимым у нижнего поля и не заходит
+ * на содержимое выше; не поместившиеся штампы уходят на страницы
+ * продолжения. Такие цепочки зависят от страницы и не кэшируются.
+ */
+public class StampLayoutPlanner {
+    private static final float MARGIN_HORIZONTAL = 30;
+    private static final float MARGIN_VERTICAL = 50;
+    private static final float COLUMN_SPACING = 20;
+    private static final float TITLE_TO_STAMP_SPACING = 15; // Отступ между заголовком и штампами
+    private static final float STAMP_SPACING = 5; // Интервал между штампами
+    private static final float MIN_COLUMN_WIDTH = 120f;
+    // Запас на погрешность вычислений с float при проверке, помещается ли штамп
+    private static final float FIT_TOLERANCE = 0.01f;
+    // Отступ блока штампов от содержимого страницы
+    private static final float CONTENT_GAP = 10;
+
+    private final SignatureInfo signatureInfo;
+    private final String leftTitle;
+    private final String rightTitle;
+    private final String additionalTitle;
+    private final String proxySurname;
+
+    // Цепочки страниц по размеру страницы (ширина и высота в битах float)
+    private final Map<Long, Chain> chains = new HashMap<>();
+
+    public StampLayoutPlanner(SignatureInfo signatureInfo, String leftTitle, String rightTitle,
+                              String additionalTitle, ProxyInfo proxyInfo) {
+        this.signatureInfo = signatureInfo;
+        this.leftTitle = leftTitle;
+        this.rightTitle = rightTitle;
+        this.additionalTitle = additionalTitle;
+        // Фамилия из доверенности выделяется один раз на документ
+        this.proxySurname = proxyInfo != null ? SignerRecord.surnameOf(proxyInfo.getFullName()) : null;
+    }
+
+    /**
+     * План для запрошенных страниц. pageSizes - размеры страниц документа,
+     * номер -1 означает последнюю страницу, номера сверх числа страниц
+     * дополняют документ пустыми страницами A4.
+     */
+    public LayoutPlan plan(List<PDRectangle> pageSizes, List<Integer> pageNumbers) {
+        return plan(pageSizes, pageNumbers, new HashMap<>());
+    }
+
+    // occupancy - занятые области по номерам страниц (с 1); страницы без записи считаются пустыми
+    public LayoutPlan plan(List<PDRectangle> pageSizes, List<Integer> pageNumbers,
+                           Map<Integer, ? extends PageOccupancy> occupancy) {
+        List<PagePlan> pages = new ArrayList<>();
+        List<SignerRecord> unplaced = new ArrayList<>();
+        List<Chain> usedChains = new ArrayList<>();
+
+        int pageCount = pageSizes.size();
+        for (int pageNumber : pageNumbers) {
+            int adjustedPageNumber = (pageNumber == -1) ? pageCount : pageNumber;
+            pageCount = Math.max(pageCount, adjustedPageNumber);
+
+            PDRectangle size = adjustedPageNumber <= pageSizes.size()
+                    ? pageSizes.get(adjustedPageNumber - 1) : PDRectangle.A4;
+            PageOccupancy content = occupancy.get(adjustedPageNumber);
+            Chain chain = content != null
+                    ? buildChain(size.getWidth(), size.getHeight(), freeBand(content, size.getWidth(), size.getHeight()))
+                    : chainFor(size.getWidth(), size.getHeight());
+
+            for (int i = 0; i < chain.pages.size(); i++) {
+                pages.add(new PagePlan(adjustedPageNumber, i, size.getWidth(), size.getHeight(), chain.pages.get(i)));
+            }
+            if (!usedChains.contains(chain)) {
+                usedChains.add(chain);
+                unplaced.addAll(chain.unplaced);
+            }
+        }
+        return new LayoutPlan(pageSizes.size(), pages, unplaced);
+    }
+
+    private Chain chainFor(float pageWidth, float pageHeight) {
+        long key = ((long) Float.floatToIntBits(pageWidth) << 32) | (Float.floatToIntBits(pageHeight) & 0xFFFFFFFFL);
+        Chain chain = chains.get(key);
+        if (chain == null) {
+            chain = buildChain(pageWidth, pageHeight, defaultBand(pageHeight));
+            chains.put(key, chain);
+        }
+        return chain;
+    }
+
+    // Первая страница цепочки - с полосой firstBand, страницы продолжения пустые
+    private Chain buildChain(float pageWidth, float pageHeight, float[] firstBand) {
+        Chain chain = new Chain();
+        SignatureInfo pending = signatureInfo;
+        float[] band = firstBand;
+
+        while (true) {
+            List<ColumnPlacement> columns = new ArrayList<>();
+            StampPosition position = layoutPage(pageWidth, band[0], band[1], pending, columns);
+            boolean blankPage = band[0] == MARGIN_VERTICAL && band[1] == pageHeight - MARGIN_VERTICAL;
+            band = defaultBand(pageHeight);
+            if (chain.pages.isEmpty() || !columns.isEmpty()) {
+                chain.pages.add(columns);
+            }
+            if (!position.hasRemainingStamps()) {
+                break;
+            }
+
+            SignatureInfo remaining = position.getRemainingSignatureInfo();
+            if (columns.isEmpty() && blankPage) {
+                // Ни один из оставшихся штампов не помещается даже на пустую страницу
+                chain.unplaced.addAll(remaining.bankSignerInfos);
+                chain.unplaced.addAll(remaining.rightSignerInfos);
+                chain.unplaced.addAll(remaining.additionalSignerInfos);
+                break;
+            }
+            pending = remaining;
+        }
+        return chain;
+    }
+
+    // Полоса по высоте для блока штампов: {низ, верх}
+    private static float[] defaultBand(float pageHeight) {
+        return new float[]{MARGIN_VERTICAL, pageHeight - MARGIN_VERTICAL};
+    }
+
+    /**
+     * Полоса над содержимым у нижнего поля: низ - первое снизу место, где
+     * помещаются заголовки и самый низкий штамп, верх - ближайшее содержимое
+     * над ним. Если места нет, полоса пустая и все штампы уходят дальше.
+     */
+    private float[] freeBand(PageOccupancy content, float pageWidth, float pageHeight) {
+        float x = MARGIN_HORIZONTAL;
+        float width = pageWidth - 2 * MARGIN_HORIZONTAL;
+        float limit = pageHeight - MARGIN_VERTICAL;
+        float minHeight = PDFSigner.getColumnTitleHeight() + TITLE_TO_STAMP_SPACING + minStampHeight();
+
+        float bottom = content.findFreeAbove(x, MARGIN_VERTICAL, width, minHeight, CONTENT_GAP);
+        if (bottom + minHeight > limit) {
+            return new float[]{limit, limit};
+        }
+        float next = content.nextContentAbove(x, bottom, width, limit);
+        return new float[]{bottom, next < limit ? next - CONTENT_GAP : limit};
+    }
+
+    private float minStampHeight() {
+        float minHeight = Float.MAX_VALUE;
+        for (List<SignerRecord> records : Arrays.asList(signatureInfo.bankSignerInfos,
+                signatureInfo.rightSignerInfos, signatureInfo.additionalSignerInfos)) {
+            for (SignerRecord record : records) {
+                minHeight = Math.min(minHeight, PDFSigner.Stamp.measureHeight(record, record.hasSurname(proxySurname)));
+            }
+        }
+        return minHeight == Float.MAX_VALUE ? 0 : minHeight;
+    }
+
+    // Размещение одной страницы в полосе [bandBottom, bandTop]; не поместившиеся штампы возвращаются для следующей
+    private StampPosition layoutPage(float pageWidth, float bandBottom, float bandTop, SignatureInfo info,
+                                     List<ColumnPlacement> columns) {
+        List<SignerRecord> leftRecords = info.bankSignerInfos;
+        List<SignerRecord> rightRecords = info.rightSignerInfos;
+        List<SignerRecord> additionalRecords = info.additionalSignerInfos;
+
+        // Рассчитываем ширину колонок на основе фактического содержания
+        float leftColumnWidth = calculateColumnWidth(leftRecords);
+        float rightColumnWidth = calculateColumnWidth(rightRecords);
+        float additionalColumnWidth = calculateColumnWidth(additionalRecords);
+
+        // Выравниваем ширину всех трех колонок по максимальной
+        float maxColumnWidth = Math.max(leftColumnWidth, Math.max(rightColumnWidth, additionalColumnWidth));
+        leftColumnWidth = maxColumnWidth;
+        rightColumnWidth = maxColumnWidth;
+        additionalColumnWidth = maxColumnWidth;
+
+        float maxAvailableWidth = pageWidth - 2 * MARGIN_HORIZONTAL;
+
+        // Определяем, есть ли подписи в дополнительной категории
+        boolean hasAdditionalSignatures = !additionalRecords.isEmpty();
+
+        float leftX, rightX, additionalX;
+
+        if (hasAdditionalSignatures) {
+            // Есть подписи в категории Поручители и/или залогодатели - размещаем все три колонки
+            float totalColumnsWidth = leftColumnWidth + COLUMN_SPACING + rightColumnWidth + COLUMN_SPACING + additionalColumnWidth;
+
+            // Если не помещается, масштабируем
+            if (totalColumnsWidth > maxAvailableWidth) {
+                float scaleFactor = maxAvailableWidth / totalColumnsWidth;
+                leftColumnWidth *= scaleFactor;
+                rightColumnWidth *= scaleFactor;
+                additionalColumnWidth *= scaleFactor;
+            }
+
+            // Выравниваем все три колонки рядом
+            float groupWidth = leftColumnWidth + COLUMN_SPACING + rightColumnWidth + COLUMN_SPACING + additionalColumnWidth;
+            float groupStartX = (pageWidth - groupWidth) / 2;
+
+            leftX = groupStartX;
+            rightX = groupStartX + leftColumnWidth + COLUMN_SPACING;
+            additionalX = rightX + rightColumnWidth + COLUMN_SPACING;
+        } else {
+            // Нет подписей в категории Поручители и/или залогодатели - размещаем только две колонки по краям
+            float totalColumnsWidth = leftColumnWidth + COLUMN_SPACING + rightColumnWidth;
+
+            // Если не помещается, масштабируем
+            if (totalColumnsWidth > maxAvailableWidth) {
+                float scaleFactor = maxAvailableWidth / totalColumnsWidth;
+                leftColumnWidth *= scaleFactor;
+                rightColumnWidth *= scaleFactor;
+            }
+
+            // Размещаем колонки по краям листа
+            leftX = MARGIN_HORIZONTAL;
+            rightX = pageWidth - MARGIN_HORIZONTAL - rightColumnWidth;
+            additionalX = 0; // Не используется
+        }
+
+        float titleHeight = PDFSigner.getColumnTitleHeight();
+
+        // Находим максимальную высоту штампов
+        float maxStampsHeight = Math.max(calculateColumnHeight(leftRecords), calculateColumnHeight(rightRecords));
+        if (hasAdditionalSignatures) {
+            maxStampsHeight = Math.max(maxStampsHeight, calculateColumnHeight(additionalRecords));
+        }
+
+        // Блок не выходит за верх полосы: остальные штампы уйдут на страницу продолжения
+        float availableStampsHeight = bandTop - bandBottom - titleHeight - TITLE_TO_STAMP_SPACING;
+        maxStampsHeight = Math.min(maxStampsHeight, availableStampsHeight);
+
+        // Общая высота блока (заголовки + отступ + штампы), размещение ОТ САМОГО НИЗА листа
+        float totalBlockHeight = titleHeight + TITLE_TO_STAMP_SPACING + maxStampsHeight;
+        float blockBottomY = bandBottom;
+        float blockTopY = blockBottomY + totalBlockHeight;
+
+        List<SignerRecord> remainingBank = new ArrayList<>();
+        List<SignerRecord> remainingRight = new ArrayList<>();
+        List<SignerRecord> remainingAdditional = new ArrayList<>();
+
+        // 1. Левая колонка (Банк), 2. Центральная (Заемщик), 3. Правая (Поручители и/или залогодатели)
+        placeColumn(ColumnPlacement.Column.BANK, leftTitle, leftRecords, leftX, leftColumnWidth,
+                blockBottomY, blockTopY, titleHeight, columns, remainingBank);
+        placeColumn(ColumnPlacement.Column.RIGHT, rightTitle, rightRecords, rightX, rightColumnWidth,
+                blockBottomY, blockTopY, titleHeight, columns, remainingRight);
+        if (hasAdditionalSignatures) {
+            placeColumn(ColumnPlacement.Column.ADDITIONAL, additionalTitle, additionalRecords, additionalX,
+                    additionalColumnWidth, blockBottomY, blockTopY, titleHeight, columns, remainingAdditional);
+        }
+
+        return new StampPosition(remainingBank, remainingRight, remainingAdditional);
+    }
+
+    private void placeColumn(ColumnPlacement.Column column, String title, List<SignerRecord> records,
+                             float x, float columnWidth, float blockBottomY, float blockTopY, float titleHeight,
+                             List<ColumnPlacement> columns, List<SignerRecord> remaining) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        // Заголовок - САМЫЙ ВЕРХ блока, штампы - под ним сверху вниз
+        float titleY = blockTopY - titleHeight;
+        float currentY = blockTopY - titleHeight - TITLE_TO_STAMP_SPACING;
+
+        List<StampPlacement> stamps = new ArrayList<>();
+        for (SignerRecord record : records) {
+            boolean hasProxyInfo = record.hasSurname(proxySurname);
+            float stampHeight = PDFSigner.Stamp.measureHeight(record, hasProxyInfo);
+            if (currentY - stampHeight >= blockBottomY - FIT_TOLERANCE) {
+                stamps.add(new StampPlacement(record, hasProxyInfo, x, currentY - stampHeight, columnWidth, stampHeight));
+                currentY -= stampHeight + STAMP_SPACING;
+            } else {
+                remaining.add(record);
+            }
+        }
+
+        if (!stamps.isEmpty()) {
+            columns.add(new ColumnPlacement(column, title, x, titleY, columnWidth, stamps));
+        }
+    }
+
+    private static float calculateColumnWidth(List<SignerRecord> records) {
+        float maxWidth = MIN_COLUMN_WIDTH; // минимальная ширина по умолчанию
+        for (SignerRecord record : records) {
+            maxWidth = Math.max(maxWidth, PDFSigner.Stamp.measureWidth(record));
+        }
+        return maxWidth;
+    }
+
+    private float calculateColumnHeight(List<SignerRecord> records) {
+        if (records.isEmpty()) {
+            return 0f;
+        }
+        float totalHeight = 0;
+        for (SignerRecord record : records) {
+            float stampHeight = PDFSigner.Stamp.measureHeight(record, record.hasSurname(proxySurname));
+            totalHeight = totalHeight + stampHeight + STAMP_SPACING;
+        }
+        return totalHeight - STAMP_SPACING;
+    }
+
+    // Запрошенная страница и ее страницы продолжения для одного размера страницы
+    private static final class Chain {
+        private final List<List<ColumnPlacement>> pages = new ArrayList<>();
+        private final List<SignerRecord> unplaced = new ArrayList<>();
+    }
+}
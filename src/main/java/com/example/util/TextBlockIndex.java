@@ -0,0 +1,291 @@
+package com.example.util;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+
+/**
+ * Пространственный индекс строк текста одной страницы (TextGeometry).
+ *
+ * Блоки раскладываются по ячейкам равномерной сетки (CELL_SIZE пунктов),
+ * поэтому проверка пересечения просматривает только блоки соседних ячеек,
+ * а не весь список. Для поиска свободного места строится карта занятости
+ * с шагом OCCUPANCY_CELL: ячейка свободна, только если ее не касается ни
+ * один блок, так что найденный прямоугольник гарантированно пуст.
+ * Координаты - пространство PDF (начало в левом нижнем углу страницы).
+ * Индекс строится один раз на страницу и не изменяется.
+ */
+public final class TextBlockIndex implements PageOccupancy {
+    private static final float CELL_SIZE = 32;
+    private static final float OCCUPANCY_CELL = 4;
+
+    private final TextGeometry blocks;
+    private final float pageWidth;
+    private final float pageHeight;
+    private final int columns;
+    private final int rows;
+    // Номера блоков по ячейкам: блоки ячейки i - cellItems[cellStart[i]..cellStart[i + 1])
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    private boolean[][] occupancy;
+
+    public TextBlockIndex(TextGeometry blocks, float pageWidth, float pageHeight) {
+        this.blocks = blocks;
+        this.pageWidth = pageWidth;
+        this.pageHeight = pageHeight;
+        this.columns = Math.max(1, (int) Math.ceil(pageWidth / CELL_SIZE));
+        this.rows = Math.max(1, (int) Math.ceil(pageHeight / CELL_SIZE));
+
+        // Два прохода: число блоков в ячейках, затем раскладка в общий массив
+        int[] counts = new int[columns * rows + 1];
+        for (int i = 0; i < blocks.size(); i++) {
+            forEachCell(i, cell -> counts[cell + 1]++);
+        }
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+        cellStart = counts.clone();
+        cellItems = new int[counts[counts.length - 1]];
+        for (int i = 0; i < blocks.size(); i++) {
+            int blockIndex = i;
+            forEachCell(i, cell -> cellItems[counts[cell]++] = blockIndex);
+        }
+    }
+
+    // Текст страницы (нумерация с 1) анализируется один раз, без копирования строк
+    public static TextBlockIndex build(PDDocument doc, int pageNum) throws IOException {
+        return build(doc.getPage(pageNum - 1), PDFSigner.PDFContentAnalyzer.analyzeGeometry(doc, pageNum));
+    }
+
+    // Для уже проанализированной страницы (например, из analyzeDocument)
+    public static TextBlockIndex build(PDPage page, TextGeometry geometry) {
+        PDRectangle mediaBox = page.getMediaBox();
+        return new TextBlockIndex(geometry, mediaBox.getWidth(), mediaBox.getHeight());
+    }
+
+    public int size() {
+        return blocks.size();
+    }
+
+    public TextGeometry getGeometry() {
+        return blocks;
+    }
+
+    public float getPageWidth() {
+        return pageWidth;
+    }
+
+    @Override
+    public float getPageHeight() {
+        return pageHeight;
+    }
+
+    // Прямоугольник (x, y - левый нижний угол) не пересекается ни с одним блоком
+    @Override
+    public boolean isFree(float x, float y, float width, float height) {
+        int firstColumn = column(x);
+        int lastColumn = column(x + width);
+        int firstRow = row(y);
+        int lastRow = row(y + height);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (blocks.overlaps(cellItems[i], x, y, width, height)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Номера строк geometry, пересекающихся с прямоугольником, каждый один раз
+    public int[] query(float x, float y, float width, float height) {
+        int[] result = new int[8];
+        int count = 0;
+        BitSet seen = new BitSet(blocks.size());
+        int firstColumn = column(x);
+        int lastColumn = column(x + width);
+        int firstRow = row(y);
+        int lastRow = row(y + height);
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int cell = r * columns + c;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    int blockIndex = cellItems[i];
+                    if (!seen.get(blockIndex) && blocks.overlaps(blockIndex, x, y, width, height)) {
+                        seen.set(blockIndex);
+                        if (count == result.length) {
+                            result = Arrays.copyOf(result, count * 2);
+                        }
+                        result[count++] = blockIndex;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Перекрывающие блоки перешагиваются целиком; если места нет - положение над последним блоком
+    @Override
+    public float findFreeAbove(float x, float y, float width, float height, float margin) {
+        float current = y;
+        while (current + height <= pageHeight) {
+            int[] hits = query(x, current - margin, width, height + 2 * margin);
+            if (hits.length == 0) {
+                return current;
+            }
+            float top = current;
+            for (int hit : hits) {
+                top = Math.max(top, blocks.getY(hit) + blocks.getHeight(hit));
+            }
+            current = top + margin;
+        }
+        return current;
+    }
+
+    @Override
+    public float findFreeBelow(float x, float top, float width, float height, float margin) {
+        float current = top;
+        while (current - height >= 0) {
+            int[] hits = query(x, current - height - margin, width, height + 2 * margin);
+            if (hits.length == 0) {
+                return current;
+            }
+            float bottom = current;
+            for (int hit : hits) {
+                bottom = Math.min(bottom, blocks.getY(hit));
+            }
+            current = bottom - margin;
+        }
+        return current;
+    }
+
+    @Override
+    public float nextContentAbove(float x, float y, float width, float limit) {
+        float bottom = limit;
+        for (int hit : query(x, y, width, limit - y)) {
+            bottom = Math.min(bottom, blocks.getY(hit));
+        }
+        return Math.max(bottom, y);
+    }
+
+    /**
+     * Наибольший по площади свободный прямоугольник не меньше minWidth x minHeight
+     * в пределах area (или null). Перебираются максимальные пустые прямоугольники
+     * карты занятости методом гистограмм: O(строк x столбцов).
+     */
+    public PDRectangle findLargestEmpty(PDRectangle area, float minWidth, float minHeight) {
+        boolean[][] occupied = occupancy();
+        int firstColumn = Math.max(0, (int) Math.ceil(area.getLowerLeftX() / OCCUPANCY_CELL));
+        int lastColumn = Math.min(occupied[0].length, (int) Math.floor(area.getUpperRightX() / OCCUPANCY_CELL));
+        int firstRow = Math.max(0, (int) Math.ceil(area.getLowerLeftY() / OCCUPANCY_CELL));
+        int lastRow = Math.min(occupied.length, (int) Math.floor(area.getUpperRightY() / OCCUPANCY_CELL));
+        int width = lastColumn - firstColumn;
+        if (width <= 0 || lastRow <= firstRow) {
+            return null;
+        }
+
+        int minColumns = (int) Math.ceil(minWidth / OCCUPANCY_CELL);
+        int minRows = (int) Math.ceil(minHeight / OCCUPANCY_CELL);
+        int[] heights = new int[width];
+        long bestArea = -1;
+        int bestColumn = 0;
+        int bestRow = 0;
+        int bestColumns = 0;
+        int bestRows = 0;
+
+        // Строки сверху вниз: heights - число свободных ячеек вверх от текущей строки
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int r = lastRow - 1; r >= firstRow; r--) {
+            for (int c = 0; c < width; c++) {
+                heights[c] = occupied[r][firstColumn + c] ? 0 : heights[c] + 1;
+            }
+            stack.clear();
+            for (int c = 0; c <= width; c++) {
+                int h = c < width ? heights[c] : 0;
+                while (!stack.isEmpty() && heights[stack.peek()] >= h) {
+                    int barHeight = heights[stack.pop()];
+                    int left = stack.isEmpty() ? 0 : stack.peek() + 1;
+                    int spanColumns = c - left;
+                    long barArea = (long) barHeight * spanColumns;
+                    if (barHeight >= minRows && spanColumns >= minColumns && barArea > bestArea) {
+                        bestArea = barArea;
+                        bestColumn = firstColumn + left;
+                        bestRow = r;
+                        bestColumns = spanColumns;
+                        bestRows = barHeight;
+                    }
+                }
+                stack.push(c);
+            }
+        }
+
+        if (bestArea < 0) {
+            return null;
+        }
+        return new PDRectangle(bestColumn * OCCUPANCY_CELL, bestRow * OCCUPANCY_CELL,
+                bestColumns * OCCUPANCY_CELL, bestRows * OCCUPANCY_CELL);
+    }
+
+    public PDRectangle findLargestEmpty(float minWidth, float minHeight) {
+        return findLargestEmpty(new PDRectangle(pageWidth, pageHeight), minWidth, minHeight);
+    }
+
+    // Карта занятости строится при первом поиске свободного места: [строка снизу][столбец]
+    private boolean[][] occupancy() {
+        if (occupancy == null) {
+            int occupancyColumns = Math.max(1, (int) Math.ceil(pageWidth / OCCUPANCY_CELL));
+            int occupancyRows = Math.max(1, (int) Math.ceil(pageHeight / OCCUPANCY_CELL));
+            boolean[][] grid = new boolean[occupancyRows][occupancyColumns];
+            for (int i = 0; i < blocks.size(); i++) {
+                int c0 = clamp((int) Math.floor(blocks.getX(i) / OCCUPANCY_CELL), occupancyColumns);
+                int c1 = clamp((int) Math.floor((blocks.getX(i) + blocks.getWidth(i)) / OCCUPANCY_CELL), occupancyColumns);
+                int r0 = clamp((int) Math.floor(blocks.getY(i) / OCCUPANCY_CELL), occupancyRows);
+                int r1 = clamp((int) Math.floor((blocks.getY(i) + blocks.getHeight(i)) / OCCUPANCY_CELL), occupancyRows);
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        grid[r][c] = true;
+                    }
+                }
+            }
+            occupancy = grid;
+        }
+        return occupancy;
+    }
+
+    private interface CellConsumer {
+        void accept(int cell);
+    }
+
+    private void forEachCell(int block, CellConsumer consumer) {
+        float x = blocks.getX(block);
+        float y = blocks.getY(block);
+        for (int r = row(y); r <= row(y + blocks.getHeight(block)); r++) {
+            for (int c = column(x); c <= column(x + blocks.getWidth(block)); c++) {
+                consumer.accept(r * columns + c);
+            }
+        }
+    }
+
+    // Блоки за пределами страницы попадают в крайние ячейки
+    private int column(float x) {
+        return clamp((int) Math.floor(x / CELL_SIZE), columns);
+    }
+
+    private int row(float y) {
+        return clamp((int) Math.floor(y / CELL_SIZE), rows);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
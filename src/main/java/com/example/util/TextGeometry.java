@@ -0,0 +1,115 @@
+package com.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Прямоугольники текстовых строк страницы в виде параллельных массивов
+ * (x, y, ширина, высота в координатах PDF), без объекта на каждую строку.
+ * Текст строк, если он нужен, хранится в одном общем буфере символов.
+ * Заполняется анализатором (PDFContentAnalyzer), после анализа не изменяется.
+ */
+public final class TextGeometry {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean withText;
+    private float[] x;
+    private float[] y;
+    private float[] width;
+    private float[] height;
+    private int size;
+
+    // Текст строки i - chars[textStart[i]..textStart[i + 1])
+    private int[] textStart;
+    private char[] chars;
+
+    TextGeometry(boolean withText) {
+        this.withText = withText;
+        this.x = new float[INITIAL_CAPACITY];
+        this.y = new float[INITIAL_CAPACITY];
+        this.width = new float[INITIAL_CAPACITY];
+        this.height = new float[INITIAL_CAPACITY];
+        if (withText) {
+            this.textStart = new int[INITIAL_CAPACITY + 1];
+            this.chars = new char[INITIAL_CAPACITY * 32];
+        }
+    }
+
+    void add(float blockX, float blockY, float blockWidth, float blockHeight, String text) {
+        if (size == x.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            if (withText) {
+                textStart = Arrays.copyOf(textStart, capacity + 1);
+            }
+        }
+        x[size] = blockX;
+        y[size] = blockY;
+        width[size] = blockWidth;
+        height[size] = blockHeight;
+        if (withText) {
+            int start = textStart[size];
+            int end = start + text.length();
+            if (end > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(end, chars.length * 2));
+            }
+            text.getChars(0, text.length(), chars, start);
+            textStart[size + 1] = end;
+        }
+        size++;
+    }
+
+    // Массивы обрезаются до фактического размера - для хранения результата в кэше
+    TextGeometry trim() {
+        x = Arrays.copyOf(x, size);
+        y = Arrays.copyOf(y, size);
+        width = Arrays.copyOf(width, size);
+        height = Arrays.copyOf(height, size);
+        if (withText) {
+            textStart = Arrays.copyOf(textStart, size + 1);
+            chars = Arrays.copyOf(chars, textStart[size]);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasText() {
+        return withText;
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    public float getWidth(int index) {
+        return width[index];
+    }
+
+    public float getHeight(int index) {
+        return height[index];
+    }
+
+    public String getText(int index) {
+        if (!withText) {
+            throw new IllegalStateException("Текст строк не сохранялся при анализе");
+        }
+        return new String(chars, textStart[index], textStart[index + 1] - textStart[index]);
+    }
+
+    // Пересекается ли строка index с прямоугольником (x, y - левый нижний угол)
+    public boolean overlaps(int index, float rectX, float rectY, float rectWidth, float rectHeight) {
+        return rectY < y[index] + height[index] &&
+                rectY + rectHeight > y[index] &&
+                rectX < x[index] + width[index] &&
+                rectX + rectWidth > x[index];
+    }
+}
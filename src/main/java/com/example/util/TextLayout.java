@@ -0,0 +1,217 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Перенос строк и подбор кегля по таблице ширин символов шрифта
+ * (FontCache.CachedFont). Ширина каждого символа берется из таблицы
+ * один раз, ширины слов складываются при разборе текста, поэтому
+ * перенос - линейный по длине текста, без повторного измерения
+ * растущей строки.
+ *
+ * Слова разделяются пробелами. Слово шире строки разбивается на части
+ * по ширине; если разрыв приходится между двумя буквами, в конце части
+ * ставится дефис.
+ */
+public final class TextLayout {
+    private static final char HYPHEN = '-';
+
+    private TextLayout() {
+    }
+
+    // Ширина текста в пунктах
+    public static float width(FontCache.CachedFont font, float fontSize, String text) {
+        return font.getStringWidth(text) / 1000 * fontSize;
+    }
+
+    /**
+     * Жадный перенос: в строку добавляются слова, пока они помещаются.
+     * Пустой текст - ни одной строки.
+     */
+    public static List<String> wrap(FontCache.CachedFont font, float fontSize, String text, float maxWidth) {
+        Tokens tokens = Tokens.split(font, text, maxWidth * 1000 / fontSize);
+        List<String> lines = new ArrayList<>();
+        float limit = tokens.limit;
+        float space = font.getAdvance(' ');
+
+        int start = 0;
+        float lineWidth = 0;
+        for (int i = 0; i < tokens.size; i++) {
+            if (i > start) {
+                float candidate = lineWidth + space + tokens.width[i];
+                if (candidate > limit || tokens.forcedBreak[i - 1]) {
+                    lines.add(tokens.line(start, i));
+                    start = i;
+                    lineWidth = tokens.width[i];
+                } else {
+                    lineWidth = candidate;
+                }
+            } else {
+                lineWidth = tokens.width[i];
+            }
+        }
+        if (tokens.size > start) {
+            lines.add(tokens.line(start, tokens.size));
+        }
+        return lines;
+    }
+
+    /**
+     * Перенос с наименьшей неровностью правого края: минимизируется сумма
+     * квадратов свободного места во всех строках, кроме последней.
+     * Перебираются только строки, которые помещаются по ширине, поэтому
+     * время растет линейно с длиной текста.
+     */
+    public static List<String> wrapBalanced(FontCache.CachedFont font, float fontSize, String text, float maxWidth) {
+        Tokens tokens = Tokens.split(font, text, maxWidth * 1000 / fontSize);
+        int n = tokens.size;
+        float limit = tokens.limit;
+        float space = font.getAdvance(' ');
+
+        // cost[i] - лучшая стоимость набора первых i слов, from[i] - начало последней строки
+        double[] cost = new double[n + 1];
+        int[] from = new int[n + 1];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        cost[0] = 0;
+
+        for (int start = 0; start < n; start++) {
+            if (cost[start] == Double.POSITIVE_INFINITY) {
+                continue;
+            }
+            float lineWidth = -space;
+            for (int end = start + 1; end <= n; end++) {
+                lineWidth += space + tokens.width[end - 1];
+                // Первое слово строки ставится всегда, даже если оно не помещается
+                if (lineWidth > limit && end > start + 1) {
+                    break;
+                }
+                double slack = end == n ? 0 : Math.max(0, limit - lineWidth);
+                double candidate = cost[start] + slack * slack;
+                if (candidate < cost[end]) {
+                    cost[end] = candidate;
+                    from[end] = start;
+                }
+                if (tokens.forcedBreak[end - 1]) {
+                    break;
+                }
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (int end = n; end > 0; end = from[end]) {
+            lines.add(tokens.line(from[end], end));
+        }
+        Collections.reverse(lines);
+        return lines;
+    }
+
+    /**
+     * Наибольший кегль не больше initialSize, при котором текст помещается
+     * в одну строку шириной maxWidth, но не меньше minSize. Считается
+     * сразу по ширине текста в единицах 1/1000 кегля.
+     */
+    public static float fitFontSize(FontCache.CachedFont font, String text, float maxWidth,
+                                    float initialSize, float minSize) {
+        float units = font.getStringWidth(text);
+        if (units <= 0) {
+            return initialSize;
+        }
+        float size = Math.min(initialSize, maxWidth * 1000 / units);
+        return Math.max(minSize, size);
+    }
+
+    /**
+     * Слова текста с шириной в единицах 1/1000 кегля. Слова шире строки
+     * заранее разбиты на части; после каждой части, кроме последней,
+     * перенос обязателен.
+     */
+    private static final class Tokens {
+        final float limit;
+        String[] text = new String[16];
+        float[] width = new float[16];
+        boolean[] forcedBreak = new boolean[16];
+        int size;
+
+        private Tokens(float limit) {
+            this.limit = limit;
+        }
+
+        static Tokens split(FontCache.CachedFont font, String source, float limit) {
+            Tokens tokens = new Tokens(limit);
+            int length = source.length();
+            int i = 0;
+            while (i < length) {
+                while (i < length && source.charAt(i) == ' ') {
+                    i++;
+                }
+                int start = i;
+                float wordWidth = 0;
+                while (i < length && source.charAt(i) != ' ') {
+                    wordWidth += font.getAdvance(source.charAt(i));
+                    i++;
+                }
+                if (i == start) {
+                    break;
+                }
+                if (wordWidth <= limit) {
+                    tokens.add(source.substring(start, i), wordWidth, false);
+                } else {
+                    tokens.addHyphenated(font, source, start, i);
+                }
+            }
+            return tokens;
+        }
+
+        // Разбиение длинного слова за один проход по символам
+        private void addHyphenated(FontCache.CachedFont font, String source, int start, int end) {
+            float hyphen = font.getAdvance(HYPHEN);
+            int pieceStart = start;
+            float pieceWidth = 0;
+            for (int i = start; i < end; i++) {
+                float advance = font.getAdvance(source.charAt(i));
+                if (i > pieceStart && pieceWidth + advance > limit) {
+                    // Дефис, если разрыв между буквами и он помещается; иначе на символ раньше
+                    boolean letters = Character.isLetter(source.charAt(i - 1)) && Character.isLetter(source.charAt(i));
+                    if (letters && pieceWidth + hyphen > limit && i - 1 > pieceStart) {
+                        i--;
+                        pieceWidth -= font.getAdvance(source.charAt(i));
+                        letters = Character.isLetter(source.charAt(i - 1));
+                    }
+                    if (letters) {
+                        add(source.substring(pieceStart, i) + HYPHEN, pieceWidth + hyphen, true);
+                    } else {
+                        add(source.substring(pieceStart, i), pieceWidth, true);
+                    }
+                    pieceStart = i;
+                    pieceWidth = font.getAdvance(source.charAt(i));
+                } else {
+                    pieceWidth += advance;
+                }
+            }
+            add(source.substring(pieceStart, end), pieceWidth, false);
+        }
+
+        private void add(String token, float tokenWidth, boolean breakAfter) {
+            if (size == text.length) {
+                text = Arrays.copyOf(text, size * 2);
+                width = Arrays.copyOf(width, size * 2);
+                forcedBreak = Arrays.copyOf(forcedBreak, size * 2);
+            }
+            text[size] = token;
+            width[size] = tokenWidth;
+            forcedBreak[size] = breakAfter;
+            size++;
+        }
+
+        String line(int from, int to) {
+            StringBuilder line = new StringBuilder(text[from]);
+            for (int i = from + 1; i < to; i++) {
+                line.append(' ').append(text[i]);
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.util;
+
+import com.example.model.ChainValidation;
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x500.RDN;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x500.style.BCStyle;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import javax.security.auth.x500.X500Principal;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.Provider;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Доверенные сертификаты (корневые и промежуточные УЦ) из локального
+ * каталога и построение цепочки сертификата подписанта до корневого.
+ *
+ * Сертификаты каталога (*.cer, *.crt, *.der, *.pem, *.p7b) индексируются
+ * по идентификатору ключа (Subject Key Identifier) и по имени владельца;
+ * издатель каждого звена находится одним поиском по Authority Key
+ * Identifier сертификата, а если его нет - по имени издателя. Доверенными
+ * корнями считаются самоподписанные сертификаты каталога.
+ *
+ * Построение цепочки и проверка подписей звеньев не зависят от времени
+ * и запоминаются по сертификату: пакет, в котором одни и те же
+ * сотрудники подписали тысячи документов, строит каждую цепочку один
+ * раз. Для момента проверки (времени подписания) остается сверить сроки
+ * действия звеньев. Отзыв промежуточных сертификатов здесь не проверяется.
+ *
+ * Хранилище по умолчанию задается свойством nbdsig.trust.dir; без него
+ * цепочка не проверяется. Каталог читается при первой проверке, reload()
+ * перечитывает его и сбрасывает запомненные цепочки.
+ */
+public final class TrustStore {
+    private static final int MAX_DEPTH = 10;
+    private static final Provider PROVIDER = new BouncyCastleProvider();
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd.MM.yyyy").withZone(ZoneId.systemDefault());
+    private static final String[] EXTENSIONS = {".cer", ".crt", ".der", ".pem", ".p7b"};
+
+    private static volatile TrustStore defaultStore = fromSystemProperties();
+
+    private final File trustDir;
+    private volatile Index index;
+    // Цепочки без учета времени по сертификату подписанта
+    private final Map<X509Certificate, Path> paths = new ConcurrentHashMap<>();
+
+    private final AtomicLong validations = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+
+    public TrustStore(File trustDir) {
+        this.trustDir = trustDir;
+    }
+
+    public static TrustStore fromSystemProperties() {
+        String dir = System.getProperty("nbdsig.trust.dir");
+        return dir == null || dir.trim().isEmpty() ? null : new TrustStore(new File(dir.trim()));
+    }
+
+    // null - цепочка не проверяется
+    public static TrustStore getDefault() {
+        return defaultStore;
+    }
+
+    public static void setDefault(TrustStore store) {
+        defaultStore = store;
+    }
+
+    public synchronized void reload() throws IOException {
+        File[] files = trustDir.listFiles((dir, name) -> hasCertificateExtension(name));
+        if (files == null) {
+            throw new IOException("Каталог доверенных сертификатов недоступен: " + trustDir);
+        }
+        CertificateFactory factory;
+        try {
+            factory = CertificateFactory.getInstance("X.509", PROVIDER);
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+
+        Index loaded = new Index();
+        for (File file : files) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                for (Certificate certificate : factory.generateCertificates(in)) {
+                    loaded.add((X509Certificate) certificate);
+                }
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                System.err.println("Сертификат " + file.getName() + " не читается: " + e.getMessage());
+            }
+        }
+        index = loaded;
+        paths.clear();
+    }
+
+    /**
+     * Цепочка сертификата до доверенного корневого на момент time
+     * (время подписания; null - текущее).
+     */
+    public ChainValidation validate(X509Certificate certificate, Date time) {
+        validations.incrementAndGet();
+        Index current = index();
+        Path path = paths.computeIfAbsent(certificate, key -> build(current, key));
+        if (path.status != ChainValidation.Status.VALID) {
+            return new ChainValidation(path.status, path.chain, path.message);
+        }
+
+        // Общий срок действия звеньев посчитан при построении; звено ищется только при ошибке
+        Date moment = time != null ? time : new Date();
+        if (moment.getTime() < path.notBefore || moment.getTime() > path.notAfter) {
+            for (X509Certificate link : path.chain) {
+                if (moment.before(link.getNotBefore()) || moment.after(link.getNotAfter())) {
+                    return new ChainValidation(ChainValidation.Status.INVALID, path.chain,
+                            "сертификат \"" + displayName(link.getSubjectX500Principal()) + "\" не действовал на " +
+                                    DATE_FORMAT.format(moment.toInstant()));
+                }
+            }
+        }
+        return new ChainValidation(ChainValidation.Status.VALID, path.chain, path.message);
+    }
+
+    public String getStatistics() {
+        Index current = index;
+        return String.format("Доверенные сертификаты: %d, корневых %d, проверок цепочек %d, построено цепочек %d",
+                current != null ? current.all.size() : 0, current != null ? current.anchors.size() : 0,
+                validations.get(), builds.get());
+    }
+
+    private Index index() {
+        Index current = index;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (index == null) {
+                try {
+                    reload();
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                    index = new Index();
+                }
+            }
+            return index;
+        }
+    }
+
+    private Path build(Index current, X509Certificate certificate) {
+        builds.incrementAndGet();
+        List<X509Certificate> chain = new ArrayList<>();
+        chain.add(certificate);
+        X509Certificate link = certificate;
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            if (current.anchors.contains(link)) {
+                return new Path(ChainValidation.Status.VALID, chain,
+                        "цепочка до доверенного сертификата \"" +
+                                displayName(link.getSubjectX500Principal()) + "\" подтверждена");
+            }
+            if (link.getSubjectX500Principal().equals(link.getIssuerX500Principal()) && verifies(link, link)) {
+                return new Path(ChainValidation.Status.UNTRUSTED, chain, "самоподписанный сертификат \"" +
+                        displayName(link.getSubjectX500Principal()) + "\" не входит в доверенные");
+            }
+
+            List<X509Certificate> candidates = current.issuersOf(link);
+            X509Certificate issuer = null;
+            for (X509Certificate candidate : candidates) {
+                if (verifies(link, candidate)) {
+                    issuer = candidate;
+                    break;
+                }
+            }
+            if (issuer == null) {
+                return candidates.isEmpty()
+                        ? new Path(ChainValidation.Status.UNTRUSTED, chain, "не найден сертификат издателя \"" +
+                                displayName(link.getIssuerX500Principal()) + "\"")
+                        : new Path(ChainValidation.Status.INVALID, chain, "подпись сертификата \"" +
+                                displayName(link.getSubjectX500Principal()) + "\" не подтверждается ключом издателя");
+            }
+            if (!isCertificateAuthority(issuer)) {
+                return new Path(ChainValidation.Status.INVALID, chain, "сертификат \"" +
+                        displayName(issuer.getSubjectX500Principal()) + "\" не является сертификатом УЦ");
+            }
+            if (chain.contains(issuer)) {
+                return new Path(ChainValidation.Status.UNTRUSTED, chain, "цепочка сертификатов замкнута");
+            }
+            chain.add(issuer);
+            link = issuer;
+        }
+        return new Path(ChainValidation.Status.UNTRUSTED, chain, "цепочка длиннее " + MAX_DEPTH + " сертификатов");
+    }
+
+    private static boolean verifies(X509Certificate certificate, X509Certificate issuer) {
+        try {
+            certificate.verify(issuer.getPublicKey(), PROVIDER);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    // Корневые сертификаты версии 1 не содержат basicConstraints
+    private static boolean isCertificateAuthority(X509Certificate certificate) {
+        boolean[] keyUsage = certificate.getKeyUsage();
+        if (keyUsage != null && keyUsage.length > 5 && !keyUsage[5]) {
+            return false;
+        }
+        return certificate.getBasicConstraints() >= 0 || certificate.getVersion() == 1;
+    }
+
+    private static boolean hasCertificateExtension(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String extension : EXTENSIONS) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // CN, а без него - имя целиком
+    private static String displayName(X500Principal principal) {
+        X500Name name = X500Name.getInstance(principal.getEncoded());
+        RDN[] rdns = name.getRDNs(BCStyle.CN);
+        return rdns.length > 0 ? rdns[0].getFirst().getValue().toString() : name.toString();
+    }
+
+    private static byte[] keyIdentifier(X509Certificate certificate, boolean authority) {
+        byte[] extension = certificate.getExtensionValue(
+                authority ? Extension.authorityKeyIdentifier.getId() : Extension.subjectKeyIdentifier.getId());
+        if (extension == null) {
+            return null;
+        }
+        byte[] value = ASN1OctetString.getInstance(extension).getOctets();
+        return authority
+                ? AuthorityKeyIdentifier.getInstance(value).getKeyIdentifier()
+                : SubjectKeyIdentifier.getInstance(value).getKeyIdentifier();
+    }
+
+    // Сертификаты каталога по идентификатору ключа и по имени владельца
+    private static final class Index {
+        final Map<ByteBuffer, List<X509Certificate>> byKeyId = new HashMap<>();
+        final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+        final Set<X509Certificate> anchors = new HashSet<>();
+        final Set<X509Certificate> all = new HashSet<>();
+
+        void add(X509Certificate certificate) {
+            if (!all.add(certificate)) {
+                return;
+            }
+            byte[] keyId = keyIdentifier(certificate, false);
+            if (keyId != null) {
+                byKeyId.computeIfAbsent(ByteBuffer.wrap(keyId), key -> new ArrayList<>()).add(certificate);
+            }
+            bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), key -> new ArrayList<>())
+                    .add(certificate);
+            if (certificate.getSubjectX500Principal().equals(certificate.getIssuerX500Principal())
+                    && verifies(certificate, certificate)) {
+                anchors.add(certificate);
+            }
+        }
+
+        // Кандидаты в издатели: по Authority Key Identifier, иначе по имени издателя
+        List<X509Certificate> issuersOf(X509Certificate certificate) {
+            byte[] authorityKeyId = keyIdentifier(certificate, true);
+            if (authorityKeyId != null) {
+                List<X509Certificate> byKey = byKeyId.get(ByteBuffer.wrap(authorityKeyId));
+                if (byKey != null) {
+                    return byKey;
+                }
+            }
+            List<X509Certificate> byName = bySubject.get(certificate.getIssuerX500Principal());
+            return byName != null ? byName : Collections.emptyList();
+        }
+    }
+
+    // Цепочка без учета времени: звенья, итог, сообщение и общий срок действия звеньев
+    private static final class Path {
+        final ChainValidation.Status status;
+        final List<X509Certificate> chain;
+        final String message;
+        final long notBefore;
+        final long notAfter;
+
+        Path(ChainValidation.Status status, List<X509Certificate> chain, String message) {
+            this.status = status;
+            this.chain = chain;
+            this.message = message;
+            long from = Long.MIN_VALUE;
+            long to = Long.MAX_VALUE;
+            for (X509Certificate link : chain) {
+                from = Math.max(from, link.getNotBefore().getTime());
+                to = Math.min(to, link.getNotAfter().getTime());
+            }
+            this.notBefore = from;
+            this.notAfter = to;
+        }
+    }
+}
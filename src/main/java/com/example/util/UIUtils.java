@@ -9,8 +9,6 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.VBox;
 import javafx.util.Pair;
 
-import java.io.File;
-import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
@@ -147,9 +145,12 @@ public class UIUtils {
         CheckBox blankPageCheckBox = new CheckBox("Добавить пустой лист для дополнительной информации");
         blankPageCheckBox.getStyleClass().add("check-box");
 
+        CheckBox avoidContentCheckBox = new CheckBox("Не накладывать протокол на текст и изображения страницы");
+        avoidContentCheckBox.getStyleClass().add("check-box");
+
         VBox content = new VBox(15);
         content.setPadding(new Insets(20));
-        content.getChildren().add(blankPageCheckBox);
+        content.getChildren().addAll(blankPageCheckBox, avoidContentCheckBox);
 
         dialog.getDialogPane().setContent(content);
         dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
@@ -162,7 +163,9 @@ public class UIUtils {
 
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == ButtonType.OK) {
-                return new ProtocolSettings(blankPageCheckBox.isSelected());
+                ProtocolSettings settings = new ProtocolSettings(blankPageCheckBox.isSelected());
+                settings.setAvoidContent(avoidContentCheckBox.isSelected());
+                return settings;
             }
             return null;
         });
@@ -170,12 +173,13 @@ public class UIUtils {
         return dialog.showAndWait();
     }
 
-    public static Optional<String> showPagesInputDialog(File pdfFile) throws IOException {
+    // Число страниц определяется заранее, вне потока интерфейса
+    public static Optional<String> showPagesInputDialog(int pageCount) {
         TextInputDialog dialog = new TextInputDialog("-1");
         dialog.setTitle("Ввод страниц");
         dialog.setHeaderText(String.format("Введите номера страниц для штампов (1-%d, -1 для последней):\n"
                         + "Примеры: '1,3,5' или '1-3,5'",
-                PDFSigner.getPageCount(pdfFile)));
+                pageCount));
         dialog.setContentText("Номера страниц:");
 
         DialogPane dialogPane = dialog.getDialogPane();